@@ -0,0 +1,169 @@
+package de.amr.games.puzzle15.benchmark;
+
+import static de.amr.games.puzzle15.solver.Solver.frontierSizeMax;
+import static de.amr.games.puzzle15.solver.Solver.runtimeSecMax;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.amr.games.puzzle15.model.Puzzle15;
+import de.amr.games.puzzle15.solver.Heuristics;
+import de.amr.games.puzzle15.solver.Node;
+import de.amr.games.puzzle15.solver.Solver;
+import de.amr.games.puzzle15.solver.SolverAStar;
+import de.amr.games.puzzle15.solver.SolverAStarPacked;
+import de.amr.games.puzzle15.solver.SolverBFS;
+import de.amr.games.puzzle15.solver.SolverBestFirstSearch;
+import de.amr.games.puzzle15.solver.SolverBidirectionalBFS;
+import de.amr.games.puzzle15.solver.SolverGivingUpException;
+import de.amr.games.puzzle15.solver.SolverHillClimbing;
+import de.amr.games.puzzle15.solver.SolverIDAStar;
+import de.amr.games.puzzle15.solver.SolverIDDFS;
+import de.amr.games.puzzle15.solver.SolverParallelIDAStar;
+
+/**
+ * Runs each solver over a fixed instance set. One benchmark operation solves all instances of the
+ * set.
+ *
+ * <p>
+ * Instance sets:
+ * <ul>
+ * <li><code>walkN</code>: 10 instances created by N random moves from the ordered puzzle, always the
+ * same because the random generator is seeded
+ * <li><code>file:path</code>: instances read from a text file with one puzzle per line (16 numbers,
+ * 0 = blank, row by row), e.g. Korf's 100 instances converted to the ordered puzzle used here
+ * </ul>
+ *
+ * <p>
+ * Besides the time per operation, the auxiliary counters report the nodes expanded, the sum of the
+ * peak frontier sizes, and the number of instances where the solver gave up. Example:
+ *
+ * <pre>
+ * java -jar benchmarks.jar SolverBenchmark -p solver=AStarPacked,IDAStar -p instances=walk30
+ * </pre>
+ *
+ * @author Armin Reichert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SolverBenchmark {
+
+	private static final long SEED = 15;
+	private static final int WALK_INSTANCES = 10;
+
+	@Param({ "AStar", "AStarPacked", "BFS", "BestFirstSearch", "BidirectionalBFS", "HillClimbing", "IDAStar", "IDDFS", "ParallelIDAStar" })
+	public String solver;
+
+	@Param({ "walk10", "walk20", "walk30" })
+	public String instances;
+
+	private List<Puzzle15> puzzles;
+
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Counters {
+
+		public long expandedNodes;
+		public long peakFrontierSize;
+		public long givingUps;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			expandedNodes = 0;
+			peakFrontierSize = 0;
+			givingUps = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void loadInstances() throws IOException {
+		if (instances.startsWith("walk")) {
+			int numMoves = Integer.parseInt(instances.substring(4));
+			Random rnd = new Random(SEED);
+			puzzles = new ArrayList<>();
+			for (int i = 0; i < WALK_INSTANCES; ++i) {
+				puzzles.add(Puzzle15.randomMoves(numMoves, rnd));
+			}
+		} else if (instances.startsWith("file:")) {
+			puzzles = readInstances(Path.of(instances.substring(5)));
+		} else {
+			throw new IllegalArgumentException("Unknown instance set: " + instances);
+		}
+	}
+
+	private static List<Puzzle15> readInstances(Path file) throws IOException {
+		List<Puzzle15> list = new ArrayList<>();
+		for (String line : Files.readAllLines(file)) {
+			line = line.trim();
+			if (!line.isEmpty() && !line.startsWith("#")) {
+				String[] tokens = line.split("[\\s,]+");
+				int[] cells = new int[tokens.length];
+				for (int i = 0; i < tokens.length; ++i) {
+					cells[i] = Integer.parseInt(tokens[i]);
+				}
+				list.add(Puzzle15.of(cells));
+			}
+		}
+		return list;
+	}
+
+	private Solver createSolver() {
+		Predicate<Solver> givingUp = frontierSizeMax(1_000_000).or(runtimeSecMax(30));
+		return switch (solver) {
+		case "AStar" -> new SolverAStar(Heuristics::manhattan, givingUp);
+		case "AStarPacked" -> new SolverAStarPacked(givingUp);
+		case "BFS" -> new SolverBFS(givingUp);
+		case "BestFirstSearch" -> new SolverBestFirstSearch(Heuristics::manhattan, givingUp);
+		case "BidirectionalBFS" -> new SolverBidirectionalBFS(givingUp);
+		case "HillClimbing" -> new SolverHillClimbing(givingUp);
+		case "IDAStar" -> new SolverIDAStar(givingUp);
+		case "IDDFS" -> new SolverIDDFS(givingUp);
+		case "ParallelIDAStar" -> new SolverParallelIDAStar(givingUp);
+		default -> throw new IllegalArgumentException("Unknown solver: " + solver);
+		};
+	}
+
+	@Benchmark
+	public int solveAll(Counters counters) {
+		int totalLength = 0;
+		for (Puzzle15 puzzle : puzzles) {
+			Solver s = createSolver();
+			try {
+				Optional<List<Node>> solution = s.solve(puzzle);
+				if (solution.isPresent()) {
+					totalLength += solution.get().size() - 1;
+				}
+			} catch (SolverGivingUpException x) {
+				counters.givingUps += 1;
+			}
+			counters.expandedNodes += s.getMetrics().getExpandedNodes();
+			counters.peakFrontierSize += s.getMaxFrontierSize();
+		}
+		return totalLength;
+	}
+}
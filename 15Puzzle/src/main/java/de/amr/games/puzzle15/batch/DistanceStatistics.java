@@ -0,0 +1,363 @@
+package de.amr.games.puzzle15.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import de.amr.games.puzzle15.model.Dir;
+import de.amr.games.puzzle15.model.Permutations;
+import de.amr.games.puzzle15.model.Puzzle15;
+import de.amr.games.puzzle15.model.PuzzleIndex;
+
+/**
+ * Computes the distance of every state from the ordered puzzle by an exhaustive breadth-first
+ * search, either for the complete state space of a small puzzle (2x2, 3x3) or for an abstraction of
+ * a larger puzzle where only the positions of some pattern tiles and the blank are distinguished.
+ * Each move of the abstraction costs 1, so the abstract distance is a lower bound of the real
+ * distance.
+ *
+ * <p>
+ * The states are numbered by a ranking ({@link PuzzleIndex} or the rank of the partial permutation
+ * of the pattern tile and blank positions), and the search uses only 2 bits per state: unvisited,
+ * current layer, next layer or earlier layer. Each layer is expanded by scanning the bit array in
+ * parallel chunks, new states are marked with a compare-and-set. Then a second parallel pass turns
+ * the current layer into an earlier one and the next layer into the current one.
+ *
+ * <p>
+ * The result is the number of states for each distance and for each distance a sample of states
+ * (pseudo-randomly selected, but the same in each run), starting with the hardest ones. The samples
+ * of a full puzzle can be used as input of {@link PuzzleBatchApp} to create instance sets of graded
+ * difficulty.
+ *
+ * <p>
+ * Usage: <code>DistanceStatistics (2x2|3x3|4x4:tiles) [samples]</code>, e.g.
+ * <code>DistanceStatistics 4x4:1,2,3,4,5,6 20</code>. The output is CSV: first
+ * <code>distance,count</code>, then after an empty line <code>distance,cells</code> with the cells
+ * in row-major order (0 = blank, * = tile not in the pattern). The abstraction with 7 pattern tiles
+ * of the 15-puzzle needs about 130 MB of heap.
+ *
+ * @author Armin Reichert
+ */
+public class DistanceStatistics {
+
+	public static void main(String[] args) {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Usage: DistanceStatistics (2x2|3x3|4x4:tiles) [samples]");
+			System.exit(1);
+		}
+		StateSpace space = parseStateSpace(args[0]);
+		int samples = args.length == 2 ? Integer.parseInt(args[1]) : 10;
+		long start = System.nanoTime();
+		Result result = compute(space, samples);
+		System.out.println("distance,count");
+		for (int d = 0; d <= result.maxDistance(); ++d) {
+			System.out.println(d + "," + result.histogram()[d]);
+		}
+		System.out.println();
+		System.out.println("distance,cells");
+		for (int d = result.maxDistance(); d >= 0; --d) {
+			for (long state : result.samples().get(d)) {
+				System.out.println(d + "," + space.format(state));
+			}
+		}
+		System.err.println(String.format("%,d states, maximum distance %d, %d seconds", space.size(),
+				result.maxDistance(), (System.nanoTime() - start) / 1_000_000_000));
+	}
+
+	private static StateSpace parseStateSpace(String spec) {
+		String[] parts = spec.split(":");
+		String[] dimensions = parts[0].split("x");
+		if (dimensions.length != 2 || !dimensions[0].equals(dimensions[1])) {
+			throw new IllegalArgumentException("Illegal puzzle size: " + parts[0]);
+		}
+		int width = Integer.parseInt(dimensions[0]);
+		if (parts.length == 1) {
+			return fullPuzzle(width);
+		}
+		return pattern(width, Arrays.stream(parts[1].split(",")).mapToInt(Integer::parseInt).toArray());
+	}
+
+	/**
+	 * Numbered states and their successors.
+	 */
+	public interface StateSpace {
+
+		/**
+		 * @return number of states, the states are numbered <code>0..size()-1</code>
+		 */
+		long size();
+
+		/**
+		 * @return number of the ordered state
+		 */
+		long ordered();
+
+		/**
+		 * Passes the numbers of the successors of the given state to the consumer.
+		 *
+		 * @param state    state number
+		 * @param consumer receives the successors
+		 */
+		void successors(long state, LongConsumer consumer);
+
+		/**
+		 * @param state state number
+		 * @return cells of the state in row-major order
+		 */
+		String format(long state);
+	}
+
+	/**
+	 * @param histogram number of states for each distance
+	 * @param samples   sample states for each distance
+	 */
+	public record Result(long[] histogram, List<long[]> samples) {
+
+		public int maxDistance() {
+			return histogram.length - 1;
+		}
+	}
+
+	/**
+	 * @param width number of rows and columns (2 or 3)
+	 * @return complete state space of the puzzle, the states are numbered by {@link PuzzleIndex}
+	 */
+	public static StateSpace fullPuzzle(int width) {
+		if (width < 2 || width > 3) {
+			throw new IllegalArgumentException("Complete state space only for 2x2 and 3x3, use a pattern");
+		}
+		PuzzleIndex index = new PuzzleIndex(width);
+		int numCells = width * width;
+		int[][] neighbors = neighbors(width);
+		return new StateSpace() {
+
+			@Override
+			public long size() {
+				return index.size();
+			}
+
+			@Override
+			public long ordered() {
+				byte[] cells = new byte[numCells];
+				for (int i = 0; i < numCells - 1; ++i) {
+					cells[i] = (byte) (i + 1);
+				}
+				return index.index(cells);
+			}
+
+			@Override
+			public void successors(long state, LongConsumer consumer) {
+				byte[] cells = new byte[numCells];
+				index.cells(state, cells);
+				int blank = 0;
+				while (cells[blank] != 0) {
+					++blank;
+				}
+				for (int cell : neighbors[blank]) {
+					cells[blank] = cells[cell];
+					cells[cell] = 0;
+					consumer.accept(index.index(cells));
+					cells[cell] = cells[blank];
+					cells[blank] = 0;
+				}
+			}
+
+			@Override
+			public String format(long state) {
+				byte[] cells = new byte[numCells];
+				index.cells(state, cells);
+				return IntStream.range(0, numCells).mapToObj(i -> String.valueOf(cells[i]))
+						.collect(Collectors.joining(" "));
+			}
+		};
+	}
+
+	/**
+	 * @param width   number of rows and columns
+	 * @param pattern distinguished tiles, all other tiles are indistinguishable
+	 * @return abstract state space, a state is numbered by the rank of the partial permutation given by
+	 *         the positions of the pattern tiles followed by the blank position
+	 */
+	public static StateSpace pattern(int width, int[] pattern) {
+		int numCells = width * width;
+		int k = pattern.length + 1; // pattern tiles and blank
+		if (width < 2 || width > 4 || pattern.length == 0 || pattern.length > numCells - 3) {
+			throw new IllegalArgumentException("Illegal pattern for puzzle size " + width);
+		}
+		if (Arrays.stream(pattern).distinct().count() != pattern.length
+				|| Arrays.stream(pattern).anyMatch(tile -> tile < 1 || tile >= numCells)) {
+			throw new IllegalArgumentException("Illegal pattern tiles: " + Arrays.toString(pattern));
+		}
+		long size = Permutations.numPartial(numCells, k);
+		if (size > (long) Integer.MAX_VALUE * 4) {
+			throw new IllegalArgumentException("Pattern too large: " + pattern.length + " tiles");
+		}
+		int[][] neighbors = neighbors(width);
+		return new StateSpace() {
+
+			@Override
+			public long size() {
+				return size;
+			}
+
+			@Override
+			public long ordered() {
+				byte[] positions = new byte[k];
+				for (int i = 0; i < pattern.length; ++i) {
+					positions[i] = (byte) (pattern[i] - 1);
+				}
+				positions[k - 1] = (byte) (numCells - 1);
+				return Permutations.rankPartial(positions, k, numCells);
+			}
+
+			@Override
+			public void successors(long state, LongConsumer consumer) {
+				byte[] positions = new byte[k];
+				Permutations.unrankPartial(state, k, numCells, positions);
+				int blank = positions[k - 1];
+				for (int cell : neighbors[blank]) {
+					int tile = 0;
+					while (tile < k - 1 && positions[tile] != cell) {
+						++tile;
+					}
+					if (tile < k - 1) {
+						positions[tile] = (byte) blank;
+					}
+					positions[k - 1] = (byte) cell;
+					consumer.accept(Permutations.rankPartial(positions, k, numCells));
+					if (tile < k - 1) {
+						positions[tile] = (byte) cell;
+					}
+					positions[k - 1] = (byte) blank;
+				}
+			}
+
+			@Override
+			public String format(long state) {
+				byte[] positions = new byte[k];
+				Permutations.unrankPartial(state, k, numCells, positions);
+				String[] cells = new String[numCells];
+				Arrays.fill(cells, "*");
+				for (int i = 0; i < pattern.length; ++i) {
+					cells[positions[i]] = String.valueOf(pattern[i]);
+				}
+				cells[positions[k - 1]] = "0";
+				return String.join(" ", cells);
+			}
+		};
+	}
+
+	private static int[][] neighbors(int width) {
+		int[][] neighbors = new int[width * width][];
+		for (int cell = 0; cell < neighbors.length; ++cell) {
+			int c = cell;
+			neighbors[cell] = Arrays.stream(Dir.values()).mapToInt(dir -> Puzzle15.target(width, c, dir))
+					.filter(target -> target != -1).toArray();
+		}
+		return neighbors;
+	}
+
+	private static final int STATES_PER_CHUNK = 1 << 16; // multiple of 32
+	private static final long LOW_BITS = 0x5555_5555_5555_5555L;
+
+	// 2-bit marks of a state
+	private static final int CURRENT = 1, NEXT = 2;
+
+	// result of expanding a chunk of a layer
+	private record ChunkResult(long newStates, List<Long> samples) {
+	}
+
+	/**
+	 * Runs the breadth-first search, the layers are expanded by a parallel stream.
+	 *
+	 * @param space   state space
+	 * @param samples maximum number of sample states per distance
+	 * @return distance histogram and samples
+	 */
+	public static Result compute(StateSpace space, int samples) {
+		long size = space.size();
+		AtomicLongArray marks = new AtomicLongArray((int) ((size + 31) / 32));
+		mark(marks, space.ordered(), CURRENT);
+		int numChunks = (int) ((size + STATES_PER_CHUNK - 1) / STATES_PER_CHUNK);
+		List<Long> histogram = new ArrayList<>(List.of(1L));
+		List<long[]> sampleLists = new ArrayList<>();
+		for (int d = 0; histogram.get(d) > 0; ++d) {
+			List<ChunkResult> results = IntStream.range(0, numChunks).parallel()
+					.mapToObj(chunk -> expandChunk(space, marks, chunk, samples)).toList();
+			IntStream.range(0, numChunks).parallel().forEach(chunk -> nextLayer(marks, chunk));
+			histogram.add(results.stream().mapToLong(ChunkResult::newStates).sum());
+			sampleLists.add(results.stream().flatMap(result -> result.samples().stream())
+					.sorted(Comparator.comparingLong(DistanceStatistics::mix)).limit(samples).mapToLong(Long::longValue)
+					.toArray());
+		}
+		histogram.remove(histogram.size() - 1); // empty layer
+		return new Result(histogram.stream().mapToLong(Long::longValue).toArray(), sampleLists);
+	}
+
+	private static ChunkResult expandChunk(StateSpace space, AtomicLongArray marks, int chunk, int samples) {
+		long[] newStates = { 0 };
+		// keeps the samples with the smallest mix value, largest first
+		PriorityQueue<Long> sampleQueue = new PriorityQueue<>(
+				Comparator.comparingLong(DistanceStatistics::mix).reversed());
+		int firstWord = chunk * (STATES_PER_CHUNK / 32);
+		int lastWord = Math.min(marks.length(), firstWord + STATES_PER_CHUNK / 32);
+		for (int word = firstWord; word < lastWord; ++word) {
+			long value = marks.getPlain(word);
+			long matches = value & ~(value >>> 1) & LOW_BITS; // low bit set for each mark equal to CURRENT
+			while (matches != 0) {
+				int bit = Long.numberOfTrailingZeros(matches);
+				matches &= matches - 1;
+				long state = 32L * word + bit / 2;
+				space.successors(state, successor -> {
+					if (mark(marks, successor, NEXT)) {
+						++newStates[0];
+					}
+				});
+				if (samples > 0) {
+					sampleQueue.add(state);
+					if (sampleQueue.size() > samples) {
+						sampleQueue.poll();
+					}
+				}
+			}
+		}
+		return new ChunkResult(newStates[0], new ArrayList<>(sampleQueue));
+	}
+
+	// current layer (01) becomes earlier layer (11), next layer (10) becomes current layer (01)
+	private static void nextLayer(AtomicLongArray marks, int chunk) {
+		int firstWord = chunk * (STATES_PER_CHUNK / 32);
+		int lastWord = Math.min(marks.length(), firstWord + STATES_PER_CHUNK / 32);
+		for (int word = firstWord; word < lastWord; ++word) {
+			long value = marks.getPlain(word);
+			marks.setPlain(word, (value | value >>> 1) & LOW_BITS | (value & LOW_BITS) << 1);
+		}
+	}
+
+	// sets the mark of an unvisited state, returns if the state was unvisited
+	private static boolean mark(AtomicLongArray marks, long state, int mark) {
+		int word = (int) (state >>> 5);
+		int shift = (int) (state & 31) << 1;
+		while (true) {
+			long value = marks.get(word);
+			if ((value >>> shift & 3) != 0) {
+				return false;
+			}
+			if (marks.compareAndSet(word, value, value | (long) mark << shift)) {
+				return true;
+			}
+		}
+	}
+
+	// pseudo-random order of states for selecting samples
+	private static long mix(long state) {
+		long h = state * 0x9E37_79B9_7F4A_7C15L;
+		return h ^ (h >>> 29);
+	}
+}
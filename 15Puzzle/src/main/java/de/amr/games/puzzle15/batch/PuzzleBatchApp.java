@@ -0,0 +1,344 @@
+package de.amr.games.puzzle15.batch;
+
+import static de.amr.games.puzzle15.solver.Solver.memoryMax;
+import static de.amr.games.puzzle15.solver.Solver.runtimeSecMax;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import de.amr.games.puzzle15.model.Puzzle15;
+import de.amr.games.puzzle15.solver.CsvSolverListener;
+import de.amr.games.puzzle15.solver.Heuristics;
+import de.amr.games.puzzle15.solver.Node;
+import de.amr.games.puzzle15.solver.PatternDatabase;
+import de.amr.games.puzzle15.solver.Solver;
+import de.amr.games.puzzle15.solver.SolverAStar;
+import de.amr.games.puzzle15.solver.SolverAStarPacked;
+import de.amr.games.puzzle15.solver.SolverAnytimeAStar;
+import de.amr.games.puzzle15.solver.SolverBeamSearch;
+import de.amr.games.puzzle15.solver.SolverBestFirstSearch;
+import de.amr.games.puzzle15.solver.SolverBidirectionalBFS;
+import de.amr.games.puzzle15.solver.SolverExternalBFS;
+import de.amr.games.puzzle15.solver.SolverGivingUpException;
+import de.amr.games.puzzle15.solver.SolverIDAStar;
+import de.amr.games.puzzle15.solver.SolverMonitor;
+import de.amr.games.puzzle15.solver.SolverParallelIDAStar;
+
+/**
+ * Headless batch solver for 15-puzzle instances (and other puzzle sizes).
+ *
+ * <p>
+ * Reads one puzzle per line (n<sup>2</sup> numbers separated by blanks or commas, 0 = blank, row by
+ * row, e.g. 16 numbers for the 15-puzzle or 25 for the 24-puzzle; empty lines and lines starting with
+ * <code>#</code> are skipped) from a file or from standard input and
+ * solves the puzzles concurrently. The input is read only as fast as the puzzles are solved, so it
+ * may be arbitrarily long. For each puzzle, a CSV line is written to standard output as soon as it is
+ * finished:
+ *
+ * <pre>
+ * line,status,length,expanded,ms,moves
+ * </pre>
+ *
+ * where status is one of <code>solved, unsolvable, gave-up, no-solution, invalid, error</code> (invalid
+ * also includes puzzles of a size the solver or pattern database cannot handle, error means that the
+ * solver failed with an unexpected exception, which is reported on standard error). The results
+ * appear in the order the puzzles are finished, the <code>line</code> column gives the input line.
+ * Each solver thread reuses its solver for all puzzles it solves.
+ *
+ * <pre>
+ * java -cp 15Puzzle.jar de.amr.games.puzzle15.batch.PuzzleBatchApp [options] [file]
+ *
+ *   --solver name    IDAStar (default), ParallelIDAStar, AStarPacked, AnytimeAStar, AStar,
+ *                    BestFirstSearch, BeamSearch, BidirectionalBFS, ExternalBFS
+ *   --pdb file       pattern database used as heuristic
+ *   --beam n         beam width of BeamSearch (default: 1000)
+ *   --threads n      number of solver threads (default: number of processors)
+ *   --virtual        run each puzzle on its own virtual thread
+ *   --in-flight n    maximum number of puzzles read but not yet finished (default: 2 * threads)
+ *   --timeout sec    give up a puzzle after this number of seconds (default: no limit), AnytimeAStar
+ *                    returns the best solution found so far instead
+ *   --memory mb      give up a puzzle when the solver's estimated memory usage exceeds this number of
+ *                    megabytes or the heap is nearly exhausted (default: no limit)
+ *   --progress file  write the solver progress of each puzzle every second and when it is finished as
+ *                    CSV lines (line,{@value CsvSolverListener#HEADER}) to this file
+ * </pre>
+ *
+ * @author Armin Reichert
+ */
+public class PuzzleBatchApp {
+
+	public static final String HEADER = "line,status,length,expanded,ms,moves";
+
+	/** Sampling period of the solver progress in milliseconds. */
+	public static final long PROGRESS_PERIOD_MILLIS = 1000;
+
+	public static void main(String[] args) {
+		PuzzleBatchApp app = new PuzzleBatchApp(System.out);
+		try {
+			app.parseArgs(args);
+		} catch (IllegalArgumentException x) {
+			System.err.println(x.getMessage());
+			System.err.println("Usage: PuzzleBatchApp [--solver name] [--pdb file] [--beam n] [--threads n] [--virtual] "
+					+ "[--in-flight n] [--timeout sec] [--memory mb] [--progress file] [file]");
+			System.exit(1);
+		}
+		try {
+			app.run();
+		} catch (IOException x) {
+			System.err.println("Batch run failed: " + x.getMessage());
+			System.exit(2);
+		} catch (InterruptedException x) {
+			System.err.println("Batch run interrupted");
+			System.exit(3);
+		}
+	}
+
+	private String solverName = "IDAStar";
+	private Path pdbFile;
+	private int beamWidth = 1000;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private boolean virtualThreads;
+	private int maxInFlight;
+	private int timeoutSec;
+	private int memoryMB;
+	private Path progressFile;
+	private Path inputFile;
+	private PatternDatabase pdb;
+	private PrintWriter progress;
+	private final PrintStream out;
+	private final Queue<Solver> idleSolvers = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger numSolved = new AtomicInteger();
+	private final AtomicInteger numFailed = new AtomicInteger();
+
+	/**
+	 * @param out stream receiving the CSV lines
+	 */
+	public PuzzleBatchApp(PrintStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * @param args command line arguments as described above
+	 * @throws IllegalArgumentException if an argument is invalid
+	 */
+	public void parseArgs(String[] args) {
+		for (int i = 0; i < args.length; ++i) {
+			String arg = args[i];
+			switch (arg) {
+			case "--solver" -> solverName = value(args, ++i, arg);
+			case "--pdb" -> pdbFile = Path.of(value(args, ++i, arg));
+			case "--beam" -> beamWidth = intValue(args, ++i, arg);
+			case "--threads" -> threads = intValue(args, ++i, arg);
+			case "--virtual" -> virtualThreads = true;
+			case "--in-flight" -> maxInFlight = intValue(args, ++i, arg);
+			case "--timeout" -> timeoutSec = intValue(args, ++i, arg);
+			case "--memory" -> memoryMB = intValue(args, ++i, arg);
+			case "--progress" -> progressFile = Path.of(value(args, ++i, arg));
+			default -> {
+				if (arg.startsWith("--") || inputFile != null) {
+					throw new IllegalArgumentException("Illegal argument: " + arg);
+				}
+				inputFile = Path.of(arg);
+			}
+			}
+		}
+		if (maxInFlight <= 0) {
+			maxInFlight = 2 * threads;
+		}
+		createSolver(); // validates solver name
+	}
+
+	private static String value(String[] args, int i, String option) {
+		if (i >= args.length) {
+			throw new IllegalArgumentException("Missing value for " + option);
+		}
+		return args[i];
+	}
+
+	private static int intValue(String[] args, int i, String option) {
+		try {
+			int value = Integer.parseInt(value(args, i, option));
+			if (value <= 0) {
+				throw new IllegalArgumentException("Value for " + option + " must be positive");
+			}
+			return value;
+		} catch (NumberFormatException x) {
+			throw new IllegalArgumentException("Illegal value for " + option + ": " + args[i]);
+		}
+	}
+
+	private Solver createSolver() {
+		Predicate<Solver> givingUp = timeoutSec > 0 ? runtimeSecMax(timeoutSec) : solver -> false;
+		if (memoryMB > 0) {
+			givingUp = givingUp.or(memoryMax((long) memoryMB << 20));
+		}
+		return switch (solverName) {
+		case "IDAStar" -> new SolverIDAStar(pdb, givingUp);
+		case "ParallelIDAStar" -> new SolverParallelIDAStar(pdb, threads, givingUp);
+		case "AStarPacked" -> new SolverAStarPacked(pdb, givingUp);
+		case "AnytimeAStar" -> new SolverAnytimeAStar(pdb, 3, 0.5, givingUp);
+		case "AStar" -> new SolverAStar(pdb != null ? Heuristics.patternDatabase(pdb) : Heuristics::linearConflict,
+				givingUp);
+		case "BestFirstSearch" -> new SolverBestFirstSearch(Heuristics::manhattan, givingUp);
+		case "BeamSearch" -> new SolverBeamSearch(pdb, beamWidth, SolverBeamSearch.DEFAULT_MAX_DEPTH, givingUp);
+		case "BidirectionalBFS" -> new SolverBidirectionalBFS(givingUp);
+		case "ExternalBFS" -> new SolverExternalBFS(givingUp);
+		default -> throw new IllegalArgumentException("Unknown solver: " + solverName);
+		};
+	}
+
+	/**
+	 * Solves all puzzles of the input and returns when all results are written.
+	 * 
+	 * @throws IOException          if the input or the pattern database cannot be read or the progress file
+	 *                              cannot be written
+	 * @throws InterruptedException if the batch run is interrupted
+	 */
+	public void run() throws IOException, InterruptedException {
+		if (pdbFile != null) {
+			pdb = PatternDatabase.load(pdbFile);
+		}
+		if (progressFile != null) {
+			progress = new PrintWriter(Files.newBufferedWriter(progressFile));
+			progress.println("line," + CsvSolverListener.HEADER);
+			progress.flush();
+		}
+		long startTime = System.nanoTime();
+		ExecutorService executor = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor()
+				: Executors.newFixedThreadPool(threads);
+		Semaphore inFlight = new Semaphore(maxInFlight);
+		out.println(HEADER);
+		try (BufferedReader in = inputFile != null ? Files.newBufferedReader(inputFile)
+				: new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+			int lineNumber = 0;
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				++lineNumber;
+				String text = line.trim();
+				if (text.isEmpty() || text.startsWith("#")) {
+					continue;
+				}
+				inFlight.acquire();
+				int id = lineNumber;
+				executor.execute(() -> {
+					try {
+						out.println(solve(id, text));
+					} finally {
+						inFlight.release();
+					}
+				});
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+			idleSolvers.clear();
+			if (progress != null) {
+				progress.close();
+				progress = null;
+			}
+		}
+		System.err.println(String.format("%d solved, %d not solved, %d seconds", numSolved.get(), numFailed.get(),
+				TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startTime)));
+	}
+
+	private String solve(int id, String text) {
+		Puzzle15 puzzle;
+		try {
+			puzzle = parsePuzzle(text);
+		} catch (IllegalArgumentException x) {
+			numFailed.incrementAndGet();
+			return result(id, "invalid", -1, 0, 0, "");
+		}
+		if (!puzzle.isSolvable()) {
+			numFailed.incrementAndGet();
+			return result(id, "unsolvable", -1, 0, 0, "");
+		}
+		// a solver is only used by one thread at a time, at most one solver is created per solver thread
+		Solver solver = idleSolvers.poll();
+		if (solver == null) {
+			solver = createSolver();
+		}
+		SolverMonitor monitor = null;
+		if (progress != null) {
+			monitor = new SolverMonitor(solver, PROGRESS_PERIOD_MILLIS);
+			monitor.addListener(new CsvSolverListener(progress, String.valueOf(id)));
+			monitor.start();
+		}
+		try {
+			Optional<List<Node>> solution = solver.solve(puzzle);
+			if (solution.isEmpty()) {
+				numFailed.incrementAndGet();
+				return result(id, "no-solution", -1, solver.getMetrics().getExpandedNodes(), solver.getRunningTime(), "");
+			}
+			numSolved.incrementAndGet();
+			List<Node> path = solution.get();
+			String moves = path.stream().skip(1).map(node -> node.getDir().toString()).collect(Collectors.joining(" "));
+			return result(id, "solved", path.size() - 1, solver.getMetrics().getExpandedNodes(), solver.getRunningTime(),
+					moves);
+		} catch (SolverGivingUpException x) {
+			numFailed.incrementAndGet();
+			return result(id, "gave-up", -1, solver.getMetrics().getExpandedNodes(), solver.getRunningTime(), "");
+		} catch (IllegalArgumentException x) {
+			// puzzle size not supported by solver or pattern database
+			numFailed.incrementAndGet();
+			return result(id, "invalid", -1, 0, 0, "");
+		} catch (RuntimeException x) {
+			// a failing puzzle must not end the batch run or lose its result line
+			System.err.println(String.format("Line %d: %s failed: %s", id, solver.getClass().getSimpleName(), x));
+			numFailed.incrementAndGet();
+			return result(id, "error", -1, solver.getMetrics().getExpandedNodes(), solver.getRunningTime(), "");
+		} finally {
+			if (monitor != null) {
+				monitor.stop();
+			}
+			idleSolvers.add(solver);
+		}
+	}
+
+	private static String result(int id, String status, int length, long expanded, long millis, String moves) {
+		return String.format("%d,%s,%d,%d,%d,%s", id, status, length, expanded, millis, moves);
+	}
+
+	private static Puzzle15 parsePuzzle(String text) {
+		String[] tokens = text.split("[\\s,]+");
+		int n = tokens.length;
+		int size = (int) Math.round(Math.sqrt(n));
+		if (size < 2 || size > Puzzle15.MAX_SIZE || size * size != n) {
+			throw new IllegalArgumentException("Need a square number of numbers: " + text);
+		}
+		int[] cells = new int[n];
+		BitSet numbers = new BitSet(n);
+		for (int i = 0; i < n; ++i) {
+			try {
+				cells[i] = Integer.parseInt(tokens[i]);
+			} catch (NumberFormatException x) {
+				throw new IllegalArgumentException("Not a number: " + tokens[i]);
+			}
+			if (cells[i] < 0 || cells[i] >= n) {
+				throw new IllegalArgumentException("Number out of range: " + cells[i]);
+			}
+			numbers.set(cells[i]);
+		}
+		if (numbers.cardinality() != n) {
+			throw new IllegalArgumentException("Numbers 0.." + (n - 1) + " must occur exactly once: " + text);
+		}
+		return Puzzle15.of(cells);
+	}
+}
@@ -2,4 +2,13 @@ package de.amr.games.puzzle15.model;
 
 public enum Dir {
 	UP, DOWN, LEFT, RIGHT;
-}
\ No newline at end of file
+
+	public Dir opposite() {
+		return switch (this) {
+		case UP -> DOWN;
+		case DOWN -> UP;
+		case LEFT -> RIGHT;
+		case RIGHT -> LEFT;
+		};
+	}
+}
@@ -0,0 +1,114 @@
+package de.amr.games.puzzle15.model;
+
+/**
+ * Compact representation of a 15-puzzle as a single {@code long}. Each of the 16 cells is stored in
+ * a 4-bit nibble, the cell with index <code>i</code> occupying bits <code>4i..4i+3</code>.
+ * 
+ * <p>
+ * Solvers can use packed states as hash keys or store them in primitive arrays: 8 bytes per state
+ * instead of a {@link Puzzle15} object with its cell array.
+ * 
+ * <p>
+ * Smaller puzzles (2x2, 3x3) are packed the same way, their unused high nibbles are 0. Except for
+ * {@link #pack(byte[])}, {@link #unpack(long, int)}, {@link #get(long, int)} and
+ * {@link #move(long, int, int)}, the methods of this class assume a 15-puzzle.
+ * 
+ * @author Armin Reichert
+ */
+public final class PackedPuzzle15 {
+
+	/** Packed representation of the ordered puzzle. */
+	public static final long ORDERED = pack(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 0 });
+
+	private static final long LOW_BITS = 0x1111_1111_1111_1111L;
+
+	private PackedPuzzle15() {
+	}
+
+	/**
+	 * @param cells cell content in row-major order, at most 16 cells
+	 * @return packed representation
+	 */
+	public static long pack(byte[] cells) {
+		long state = 0;
+		for (int i = 0; i < cells.length; ++i) {
+			state |= (long) cells[i] << (i << 2);
+		}
+		return state;
+	}
+
+	/**
+	 * @param state packed state
+	 * @return cell content in row-major order
+	 */
+	public static byte[] unpack(long state) {
+		return unpack(state, 16);
+	}
+
+	/**
+	 * @param state    packed state
+	 * @param numCells number of cells (4, 9 or 16)
+	 * @return cell content in row-major order
+	 */
+	public static byte[] unpack(long state, int numCells) {
+		byte[] cells = new byte[numCells];
+		for (int i = 0; i < numCells; ++i) {
+			cells[i] = (byte) get(state, i);
+		}
+		return cells;
+	}
+
+	/**
+	 * @param state packed state
+	 * @param index cell index
+	 * @return number at given cell (0 = blank)
+	 */
+	public static int get(long state, int index) {
+		return (int) (state >>> (index << 2)) & 0xF;
+	}
+
+	/**
+	 * Finds the blank cell without looping over the cells.
+	 * 
+	 * @param state packed state
+	 * @return index of the blank cell
+	 */
+	public static int blank(long state) {
+		long x = state | (state >>> 1);
+		x |= x >>> 2;
+		// bit 4i of x is set iff nibble i is not zero
+		return Long.numberOfTrailingZeros(~x & LOW_BITS) >>> 2;
+	}
+
+	/**
+	 * Moves the tile at the target cell into the blank cell.
+	 * 
+	 * @param state  packed state
+	 * @param blank  index of blank cell
+	 * @param target index of cell with the tile to move, must be a neighbor of the blank cell
+	 * @return packed state after the move
+	 */
+	public static long move(long state, int blank, int target) {
+		long number = (state >>> (target << 2)) & 0xF;
+		return state & ~(0xFL << (target << 2)) | (number << (blank << 2));
+	}
+
+	/**
+	 * @param blank index of blank cell
+	 * @param dir   move direction
+	 * @return index of the cell whose tile is moved into the blank cell or <code>-1</code> if no move in
+	 *         this direction is possible
+	 */
+	public static int target(int blank, Dir dir) {
+		return switch (dir) {
+		case UP -> blank < 12 ? blank + 4 : -1;
+		case DOWN -> blank > 3 ? blank - 4 : -1;
+		case LEFT -> blank % 4 < 3 ? blank + 1 : -1;
+		case RIGHT -> blank % 4 > 0 ? blank - 1 : -1;
+		};
+	}
+
+	public static boolean isOrdered(long state) {
+		return state == ORDERED;
+	}
+}
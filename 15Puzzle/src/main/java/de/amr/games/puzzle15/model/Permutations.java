@@ -0,0 +1,159 @@
+package de.amr.games.puzzle15.model;
+
+/**
+ * Ranking and unranking of permutations, i.e. a bijection between the permutations (or
+ * k-permutations) of <code>n</code> elements and the integers <code>0, 1, ...</code>.
+ *
+ * <p>
+ * The rank of a k-permutation <code>(v<sub>0</sub>, ..., v<sub>k-1</sub>)</code> of
+ * <code>{0, ..., n-1}</code> is the number with mixed-radix digits
+ * <code>d<sub>i</sub> = v<sub>i</sub> - |{j &lt; i : v<sub>j</sub> &lt; v<sub>i</sub>}|</code> and
+ * radices <code>n, n-1, ..., n-k+1</code> (Lehmer code). For <code>k = n</code> this is the
+ * lexicographic rank. The digits are computed with a bit set of the used elements and a population
+ * count, so ranking takes O(k) time. Element values must be less than 64, full permutations must
+ * have at most 20 elements to keep ranks in the range of <code>long</code>.
+ *
+ * @author Armin Reichert
+ */
+public final class Permutations {
+
+	private Permutations() {
+	}
+
+	/**
+	 * @param n number
+	 * @return <code>n!</code>
+	 */
+	public static long factorial(int n) {
+		return numPartial(n, n);
+	}
+
+	/**
+	 * @param n number of elements
+	 * @param k length of the permutations
+	 * @return number of k-permutations of <code>n</code> elements: <code>n! / (n-k)!</code>
+	 */
+	public static long numPartial(int n, int k) {
+		long count = 1;
+		for (int i = 0; i < k; ++i) {
+			count *= n - i;
+		}
+		return count;
+	}
+
+	/**
+	 * @param perm permutation of <code>0..n-1</code>
+	 * @param n    number of elements
+	 * @return lexicographic rank in range <code>[0, n!)</code>
+	 */
+	public static long rank(byte[] perm, int n) {
+		return rankPartial(perm, n, n);
+	}
+
+	/**
+	 * @param rank lexicographic rank
+	 * @param n    number of elements
+	 * @param perm receives the permutation with the given rank
+	 */
+	public static void unrank(long rank, int n, byte[] perm) {
+		unrankPartial(rank, n, n, perm);
+	}
+
+	/**
+	 * @param values k-permutation of <code>0..n-1</code> (all different)
+	 * @param k      number of values
+	 * @param n      number of elements
+	 * @return rank in range <code>[0, numPartial(n, k))</code>
+	 */
+	public static long rankPartial(byte[] values, int k, int n) {
+		long rank = 0, used = 0;
+		for (int i = 0; i < k; ++i) {
+			int v = values[i];
+			rank = rank * (n - i) + v - Long.bitCount(used & ((1L << v) - 1));
+			used |= 1L << v;
+		}
+		return rank;
+	}
+
+	/**
+	 * Ranks the k-permutation <code>(values[elements[0]], ..., values[elements[k-1]])</code> without
+	 * copying it, e.g. the positions of the tiles of a pattern.
+	 *
+	 * @param values   values indexed by element
+	 * @param elements the <code>k</code> elements whose values are ranked
+	 * @param n        number of possible values
+	 * @return rank in range <code>[0, numPartial(n, k))</code>
+	 */
+	public static long rankPartial(byte[] values, int[] elements, int n) {
+		long rank = 0, used = 0;
+		for (int i = 0; i < elements.length; ++i) {
+			int v = values[elements[i]];
+			rank = rank * (n - i) + v - Long.bitCount(used & ((1L << v) - 1));
+			used |= 1L << v;
+		}
+		return rank;
+	}
+
+	/**
+	 * Ranks the k-permutation <code>(map[values[elements[0]]], ..., map[values[elements[k-1]]])</code>
+	 * without copying it, e.g. the positions of the tiles of a pattern in a mirrored puzzle.
+	 *
+	 * @param values   values indexed by element
+	 * @param elements the <code>k</code> elements whose mapped values are ranked
+	 * @param map      permutation of the values <code>0..n-1</code>
+	 * @param n        number of possible values
+	 * @return rank in range <code>[0, numPartial(n, k))</code>
+	 */
+	public static long rankPartial(byte[] values, int[] elements, byte[] map, int n) {
+		long rank = 0, used = 0;
+		for (int i = 0; i < elements.length; ++i) {
+			int v = map[values[elements[i]]];
+			rank = rank * (n - i) + v - Long.bitCount(used & ((1L << v) - 1));
+			used |= 1L << v;
+		}
+		return rank;
+	}
+
+	/**
+	 * @param rank   rank computed by {@link #rankPartial(byte[], int, int)}
+	 * @param k      number of values
+	 * @param n      number of elements
+	 * @param values receives the k-permutation with the given rank
+	 */
+	public static void unrankPartial(long rank, int k, int n, byte[] values) {
+		for (int i = k - 1; i >= 0; --i) {
+			values[i] = (byte) (rank % (n - i));
+			rank /= n - i;
+		}
+		long free = n == 64 ? -1L : (1L << n) - 1;
+		for (int i = 0; i < k; ++i) {
+			long p = free;
+			for (int d = values[i]; d > 0; --d) {
+				p &= p - 1; // clear lowest set bit
+			}
+			values[i] = (byte) Long.numberOfTrailingZeros(p);
+			free &= ~(1L << values[i]);
+		}
+	}
+
+	/**
+	 * @param perm permutation of <code>0..n-1</code>
+	 * @param n    number of elements
+	 * @return if the permutation has an even number of inversions
+	 */
+	public static boolean isEven(byte[] perm, int n) {
+		// a cycle of length L consists of L-1 transpositions
+		long visited = 0;
+		int transpositions = 0;
+		for (int i = 0; i < n; ++i) {
+			if ((visited & (1L << i)) == 0) {
+				for (int j = i; (visited & (1L << j)) == 0; j = perm[j]) {
+					visited |= 1L << j;
+					++transpositions;
+				}
+				--transpositions;
+			}
+		}
+		return (transpositions & 1) == 0;
+	}
+}
@@ -6,49 +6,150 @@ import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.BooleanSupplier;
 import java.util.stream.Stream;
 
+/**
+ * Sliding puzzle with <code>size x size</code> cells, by default the 15-puzzle (size 4). The other
+ * sizes (3 = 8-puzzle, 5 = 24-puzzle, ...) are supported by the IDA* solvers and the solvers not
+ * storing nodes, the solvers storing nodes by their packed state (see {@link PackedPuzzle15}) support
+ * sizes up to {@link #MAX_PACKED_SIZE}, some of them only size 4.
+ * 
+ * <p>
+ * A puzzle of size up to {@link #MAX_PACKED_SIZE} also keeps its packed representation, which is
+ * updated with each move. It is used for {@link #packed()}, {@link #equals(Object)} and
+ * {@link #hashCode()} without converting the cells.
+ * 
+ * @author Armin Reichert
+ */
 public class Puzzle15 {
 
-	private static final byte[] ORDERED_SEQ = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 0 };
+	/** Maximum number of rows and columns. */
+	public static final int MAX_SIZE = 11; // cell numbers must fit into a byte
 
+	/** Maximum number of rows and columns of a puzzle with a packed representation. */
+	public static final int MAX_PACKED_SIZE = 4; // cells must fit into the nibbles of a long
+
+	private final byte size;
 	private final byte[] cells;
+	private byte blank;
+	private long packed; // only used up to MAX_PACKED_SIZE
 
 	private Puzzle15(int[] seq) {
-		cells = new byte[16];
-		for (byte i = 0; i < 16; ++i) {
+		size = (byte) sizeOf(seq.length);
+		cells = new byte[seq.length];
+		for (int i = 0; i < cells.length; ++i) {
 			cells[i] = (byte) seq[i];
 		}
+		blank = findBlank();
+		packed = size <= MAX_PACKED_SIZE ? PackedPuzzle15.pack(cells) : 0;
 	}
 
 	private Puzzle15(byte[] seq) {
-		cells = new byte[16];
-		for (byte i = 0; i < 16; ++i) {
-			cells[i] = seq[i];
-		}
+		size = (byte) sizeOf(seq.length);
+		cells = seq.clone();
+		blank = findBlank();
+		packed = size <= MAX_PACKED_SIZE ? PackedPuzzle15.pack(cells) : 0;
 	}
 
 	private Puzzle15(Puzzle15 other) {
-		this(other.cells);
+		size = other.size;
+		cells = other.cells.clone();
+		blank = other.blank;
+		packed = other.packed;
+	}
+
+	private static int sizeOf(int numCells) {
+		int size = (int) Math.round(Math.sqrt(numCells));
+		if (size < 2 || size > MAX_SIZE || size * size != numCells) {
+			throw new IllegalArgumentException("Illegal number of cells: " + numCells);
+		}
+		return size;
+	}
+
+	private static byte[] orderedSeq(int size) {
+		byte[] seq = new byte[size * size];
+		for (int i = 0; i < seq.length - 1; ++i) {
+			seq[i] = (byte) (i + 1);
+		}
+		return seq;
 	}
 
+	/**
+	 * @param cells cell content in row-major order (0 = blank), the number of cells determines the size
+	 * @return puzzle with the given cell content
+	 */
 	public static Puzzle15 of(int... cells) {
 		return new Puzzle15(cells);
 	}
 
+	/**
+	 * @param state packed representation, see {@link PackedPuzzle15}
+	 * @return puzzle with the given packed representation
+	 */
+	public static Puzzle15 ofPacked(long state) {
+		return new Puzzle15(PackedPuzzle15.unpack(state));
+	}
+
+	/**
+	 * @param size  number of rows and columns, at most {@link #MAX_PACKED_SIZE}
+	 * @param state packed representation, see {@link PackedPuzzle15}
+	 * @return puzzle of the given size with the given packed representation
+	 */
+	public static Puzzle15 ofPacked(int size, long state) {
+		if (size > MAX_PACKED_SIZE) {
+			throw new IllegalArgumentException("No packed representation for puzzle size " + size);
+		}
+		return new Puzzle15(PackedPuzzle15.unpack(state, size * size));
+	}
+
 	public static Puzzle15 ordered() {
-		return new Puzzle15(ORDERED_SEQ);
+		return ordered(4);
+	}
+
+	/**
+	 * @param size number of rows and columns
+	 * @return ordered puzzle of the given size
+	 */
+	public static Puzzle15 ordered(int size) {
+		return new Puzzle15(orderedSeq(size));
 	}
 
 	public static Puzzle15 shuffled() {
-		Puzzle15 puzzle = new Puzzle15(ORDERED_SEQ);
-		shuffleArray(puzzle.cells);
-		return puzzle;
+		return shuffled(4);
+	}
+
+	/**
+	 * @param size number of rows and columns
+	 * @return puzzle of the given size with randomly permuted cells, not always solvable
+	 */
+	public static Puzzle15 shuffled(int size) {
+		byte[] seq = orderedSeq(size);
+		shuffleArray(seq);
+		return new Puzzle15(seq);
 	}
 
 	public static Puzzle15 randomMoves(int numMoves) {
-		Puzzle15 puzzle = new Puzzle15(ORDERED_SEQ);
+		return randomMoves(numMoves, new Random());
+	}
+
+	/**
+	 * @param numMoves number of random moves starting from the ordered puzzle
+	 * @param rnd      random generator, use a seeded one for reproducible puzzles
+	 * @return puzzle after the random moves
+	 */
+	public static Puzzle15 randomMoves(int numMoves, Random rnd) {
+		return randomMoves(4, numMoves, rnd);
+	}
+
+	/**
+	 * @param size     number of rows and columns
+	 * @param numMoves number of random moves starting from the ordered puzzle
+	 * @param rnd      random generator, use a seeded one for reproducible puzzles
+	 * @return puzzle after the random moves
+	 */
+	public static Puzzle15 randomMoves(int size, int numMoves, Random rnd) {
+		Puzzle15 puzzle = ordered(size);
 		int moves = 0;
 		while (moves < numMoves) {
-			Dir dir = Dir.values()[new Random().nextInt(4)];
+			Dir dir = Dir.values()[rnd.nextInt(4)];
 			if (puzzle.canMove(dir)) {
 				puzzle = puzzle.move(dir);
 				moves++;
@@ -57,12 +158,20 @@ public class Puzzle15 {
 		return puzzle;
 	}
 
+	/**
+	 * @return packed representation of this puzzle, see {@link PackedPuzzle15}
+	 * @throws IllegalStateException if this puzzle is larger than {@link #MAX_PACKED_SIZE}
+	 */
+	public long packed() {
+		if (size > MAX_PACKED_SIZE) {
+			throw new IllegalStateException("No packed representation for puzzle size " + size);
+		}
+		return packed;
+	}
+
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + Arrays.hashCode(cells);
-		return result;
+		return size <= MAX_PACKED_SIZE ? Long.hashCode(packed) : Arrays.hashCode(cells);
 	}
 
 	@Override
@@ -74,14 +183,51 @@ public class Puzzle15 {
 		if (getClass() != obj.getClass())
 			return false;
 		Puzzle15 other = (Puzzle15) obj;
-        return Arrays.equals(cells, other.cells);
-    }
+		if (size != other.size) {
+			return false;
+		}
+		if (size <= MAX_PACKED_SIZE) {
+			return packed == other.packed;
+		}
+		return Arrays.equals(cells, other.cells);
+	}
 
 	public boolean isOrdered() {
-		return Arrays.equals(cells, ORDERED_SEQ);
+		for (int i = 0; i < cells.length - 1; ++i) {
+			if (cells[i] != i + 1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return number of rows and columns
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of cells
+	 */
+	public int numCells() {
+		return cells.length;
+	}
+
+	/**
+	 * @param index cell index
+	 * @return number at the cell with the given index (0 = blank)
+	 */
+	public byte get(int index) {
+		return cells[index];
 	}
 
 	public byte blank() {
+		return blank;
+	}
+
+	private byte findBlank() {
 		for (byte i = 0; i < cells.length; ++i) {
 			if (cells[i] == 0) {
 				return i;
@@ -91,7 +237,7 @@ public class Puzzle15 {
 	}
 
 	public byte get(int row, int col) {
-		return cells[row * 4 + col];
+		return cells[row * size + col];
 	}
 
 	public static int col(byte index) {
@@ -102,6 +248,39 @@ public class Puzzle15 {
 		return index / 4;
 	}
 
+	/**
+	 * @param index cell index
+	 * @return row of the cell in this puzzle (unlike {@link #row(byte)} which assumes size 4)
+	 */
+	public int rowOf(int index) {
+		return index / size;
+	}
+
+	/**
+	 * @param index cell index
+	 * @return column of the cell in this puzzle (unlike {@link #col(byte)} which assumes size 4)
+	 */
+	public int colOf(int index) {
+		return index % size;
+	}
+
+	/**
+	 * @param size  number of rows and columns
+	 * @param index cell index
+	 * @param dir   move direction
+	 * @return index of the cell whose tile moves into the blank at the given index or -1 if the move is
+	 *         not possible
+	 */
+	public static int target(int size, int index, Dir dir) {
+		int row = index / size, col = index % size;
+		return switch (dir) {
+		case UP -> row < size - 1 ? index + size : -1;
+		case DOWN -> row > 0 ? index - size : -1;
+		case LEFT -> col < size - 1 ? index + 1 : -1;
+		case RIGHT -> col > 0 ? index - 1 : -1;
+		};
+	}
+
 	public Puzzle15 move(Dir dir) {
         return switch (dir) {
             case DOWN -> down();
@@ -112,27 +291,27 @@ public class Puzzle15 {
 	}
 
 	public boolean canMoveUp() {
-		return row(blank()) < 3;
+		return rowOf(blank()) < size - 1;
 	}
 
 	public boolean canMoveDown() {
-		return row(blank()) > 0;
+		return rowOf(blank()) > 0;
 	}
 
 	public boolean canMoveLeft() {
-		return col(blank()) < 3;
+		return colOf(blank()) < size - 1;
 	}
 
 	public boolean canMoveRight() {
-		return col(blank()) > 0;
+		return colOf(blank()) > 0;
 	}
 
 	public Puzzle15 up() {
-		return move((byte) (blank() + 4), this::canMoveUp);
+		return move((byte) (blank() + size), this::canMoveUp);
 	}
 
 	public Puzzle15 down() {
-		return move((byte) (blank() - 4), this::canMoveDown);
+		return move((byte) (blank() - size), this::canMoveDown);
 	}
 
 	public Puzzle15 left() {
@@ -147,7 +326,11 @@ public class Puzzle15 {
 		if (precondition.getAsBoolean()) {
 			Puzzle15 result = new Puzzle15(this);
 			result.cells[index] = 0;
-			result.cells[blank()] = cells[index];
+			result.cells[blank] = cells[index];
+			result.blank = index;
+			if (size <= MAX_PACKED_SIZE) {
+				result.packed = PackedPuzzle15.move(packed, blank, index);
+			}
 			return result;
 		}
 		throw new IllegalStateException();
@@ -193,9 +376,9 @@ public class Puzzle15 {
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
 		sb.append("\n");
-		for (int row = 0; row < 4; ++row) {
-			for (int col = 0; col < 4; ++col) {
-				byte i = cells[row * 4 + col];
+		for (int row = 0; row < size; ++row) {
+			for (int col = 0; col < size; ++col) {
+				byte i = cells[row * size + col];
 				sb.append(i == 0 ? "   " : String.format("%02d ", i));
 			}
 			sb.append("\n");
@@ -204,6 +387,7 @@ public class Puzzle15 {
 	}
 
 	/**
+     * If N is odd, puzzle instance is solvable if the number of inversions is even.
      *
      * <p>
      * If N is even, puzzle instance is solvable if
@@ -217,7 +401,11 @@ public class Puzzle15 {
      * @see <a href="https://www.geeksforgeeks.org/check-instance-15-puzzle-solvable/">...</a>
      */
 	public boolean isSolvable() {
-		int numInversions = numInversions(), row = 4 - row(blank());
+		int numInversions = numInversions();
+		if (!even(size)) {
+			return even(numInversions);
+		}
+		int row = size - rowOf(blank());
 		return even(row) != even(numInversions);
 	}
 
@@ -227,8 +415,8 @@ public class Puzzle15 {
 
 	public int numInversions() {
 		int cnt = 0;
-		for (int i = 0; i < 15; ++i) {
-			for (int j = i + 1; j < 16; ++j) {
+		for (int i = 0; i < cells.length - 1; ++i) {
+			for (int j = i + 1; j < cells.length; ++j) {
 				if (cells[i] != 0 && cells[j] != 0 && cells[i] > cells[j]) {
 					++cnt;
 				}
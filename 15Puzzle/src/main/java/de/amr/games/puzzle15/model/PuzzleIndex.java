@@ -0,0 +1,142 @@
+package de.amr.games.puzzle15.model;
+
+/**
+ * Dense index of the solvable states of a sliding puzzle with <code>width x width</code> cells and
+ * the blank in the last cell of the ordered state.
+ *
+ * <p>
+ * For a fixed blank position, exactly half of the permutations of the tiles are solvable. The
+ * lexicographic ranks <code>2j</code> and <code>2j+1</code> only differ by swapping the last two
+ * tiles and thus have different parity, so <code>rank / 2</code> numbers the solvable tile
+ * permutations without gaps. The index of a state is
+ *
+ * <pre>
+ * blank position * ((n - 1)! / 2) + rank(tiles) / 2
+ * </pre>
+ *
+ * where the tiles are read in row-major order skipping the blank. This gives 181,440 indices for the
+ * 8-puzzle and 10,461,394,944,000 for the 15-puzzle. An index can be used as offset into a flat
+ * distance table, a bit set of visited states or a memory-mapped file instead of a hash set of
+ * puzzle objects.
+ *
+ * @author Armin Reichert
+ */
+public class PuzzleIndex {
+
+	/** Index for the 3x3 puzzle. */
+	public static final PuzzleIndex PUZZLE8 = new PuzzleIndex(3);
+
+	/** Index for the 4x4 puzzle. */
+	public static final PuzzleIndex PUZZLE15 = new PuzzleIndex(4);
+
+	private final int width;
+	private final int numCells;
+	private final long numTilePermutations; // solvable tile permutations per blank position
+
+	/**
+	 * @param width number of rows and columns (2..4, larger puzzles exceed the range of
+	 *              <code>long</code>)
+	 */
+	public PuzzleIndex(int width) {
+		if (width < 2 || width > 4) {
+			throw new IllegalArgumentException("Illegal puzzle width: " + width);
+		}
+		this.width = width;
+		this.numCells = width * width;
+		this.numTilePermutations = Permutations.factorial(numCells - 1) / 2;
+	}
+
+	public int width() {
+		return width;
+	}
+
+	/**
+	 * @return number of solvable states
+	 */
+	public long size() {
+		return numCells * numTilePermutations;
+	}
+
+	/**
+	 * @param cells cell content in row-major order (0 = blank), must be solvable
+	 * @return index of the state in range <code>[0, size())</code>
+	 */
+	public long index(byte[] cells) {
+		int blank = -1;
+		long rank = 0, used = 0;
+		for (int i = 0, t = 0; i < numCells; ++i) {
+			int v = cells[i] - 1;
+			if (v == -1) {
+				blank = i;
+				continue;
+			}
+			rank = rank * (numCells - 1 - t) + v - Long.bitCount(used & ((1L << v) - 1));
+			used |= 1L << v;
+			++t;
+		}
+		return blank * numTilePermutations + rank / 2;
+	}
+
+	/**
+	 * @param state packed state with cell <code>i</code> in bits <code>4i..4i+3</code>, see
+	 *              {@link PackedPuzzle15}
+	 * @return index of the state in range <code>[0, size())</code>
+	 */
+	public long index(long state) {
+		int blank = -1;
+		long rank = 0, used = 0;
+		for (int i = 0, t = 0; i < numCells; ++i) {
+			int v = (int) (state >>> (i << 2) & 0xF) - 1;
+			if (v == -1) {
+				blank = i;
+				continue;
+			}
+			rank = rank * (numCells - 1 - t) + v - Long.bitCount(used & ((1L << v) - 1));
+			used |= 1L << v;
+			++t;
+		}
+		return blank * numTilePermutations + rank / 2;
+	}
+
+	/**
+	 * @param index index in range <code>[0, size())</code>
+	 * @param cells receives the cell content of the state with the given index
+	 */
+	public void cells(long index, byte[] cells) {
+		int blank = (int) (index / numTilePermutations);
+		byte[] tiles = new byte[numCells - 1];
+		Permutations.unrank(2 * (index % numTilePermutations), numCells - 1, tiles);
+		if (Permutations.isEven(tiles, numCells - 1) != evenTilePermutation(blank)) {
+			byte tmp = tiles[numCells - 2];
+			tiles[numCells - 2] = tiles[numCells - 3];
+			tiles[numCells - 3] = tmp;
+		}
+		for (int i = 0, t = 0; i < numCells; ++i) {
+			cells[i] = i == blank ? 0 : (byte) (tiles[t++] + 1);
+		}
+	}
+
+	/**
+	 * @param index index in range <code>[0, size())</code>
+	 * @return packed state with the given index
+	 */
+	public long state(long index) {
+		byte[] cells = new byte[numCells];
+		cells(index, cells);
+		long state = 0;
+		for (int i = 0; i < numCells; ++i) {
+			state |= (long) cells[i] << (i << 2);
+		}
+		return state;
+	}
+
+	/*
+	 * A state is solvable iff the parity of the full permutation (blank as largest number) equals the
+	 * parity of the Manhattan distance of the blank from the last cell. The full permutation has
+	 * (numCells - 1 - blank) more inversions than the tile permutation.
+	 */
+	private boolean evenTilePermutation(int blank) {
+		int blankDist = (width - 1 - blank / width) + (width - 1 - blank % width);
+		return ((blankDist + numCells - 1 - blank) & 1) == 0;
+	}
+}
@@ -1,9 +1,14 @@
 package de.amr.games.puzzle15.solver;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 
+import de.amr.games.puzzle15.model.Dir;
+import de.amr.games.puzzle15.model.Puzzle15;
+
 /**
  * Solver base class.
  * 
@@ -11,22 +16,81 @@ import java.util.function.Predicate;
  */
 public abstract class AbstractSolver implements Solver {
 
+	/** Estimated bytes per entry of a hash map or hash set (entry object and table slots). */
+	protected static final int HASH_ENTRY_BYTES = 48;
+
+	/** Estimated bytes per entry of an array-based queue (reference plus unused capacity). */
+	protected static final int QUEUE_ENTRY_BYTES = 8;
+
+	private static final AtomicLong RUN_IDS = new AtomicLong();
+
 	private final Predicate<Solver> givingUpCondition;
 	private int maxFrontierSize;
 	private long startTime; // nanoseconds
+	private volatile long runId;
+	private final SolverMetrics metrics;
+	private final boolean ownMetrics;
+	private volatile boolean cancelled;
 
 	protected AbstractSolver(Predicate<Solver> givingUpCondition) {
 		this.givingUpCondition = givingUpCondition;
+		this.metrics = new SolverMetrics();
+		this.ownMetrics = true;
+	}
+
+	/**
+	 * Creates a solver which is run as part of another solver and counts into the metrics of that
+	 * solver. The metrics and the cancellation state are not reset when this solver starts.
+	 * 
+	 * @param givingUpCondition condition for giving up
+	 * @param metrics           metrics of the enclosing solver
+	 */
+	AbstractSolver(Predicate<Solver> givingUpCondition, SolverMetrics metrics) {
+		this.givingUpCondition = givingUpCondition;
+		this.metrics = metrics;
+		this.ownMetrics = false;
 	}
 
 	protected List<Node> solution(Node goal) {
-		List<Node> solution = new LinkedList<>();
+		List<Node> solution = new ArrayList<>(goal.getMovesSoFar() + 1);
 		for (Node current = goal; current != null; current = current.getParent()) {
-			solution.add(0, current);
+			solution.add(current);
 		}
+		Collections.reverse(solution);
 		return solution;
 	}
 
+	/**
+	 * Creates the solution path for solvers which do not store nodes during the search.
+	 * 
+	 * @param start start puzzle
+	 * @param moves moves leading from the start puzzle to the goal
+	 * @return solution path starting with the node for the start puzzle
+	 */
+	protected List<Node> solution(Puzzle15 start, List<Dir> moves) {
+		Node node = new Node(start);
+		for (Dir dir : moves) {
+			Node next = new Node(node.getPuzzle().move(dir));
+			next.setParent(node);
+			next.setDir(dir);
+			next.setMovesSoFar(node.getMovesSoFar() + 1);
+			node = next;
+		}
+		return solution(node);
+	}
+
+	/**
+	 * Checks that the given puzzle can be solved by a solver working on packed 15-puzzle states.
+	 * 
+	 * @param puzzle puzzle to solve
+	 * @throws IllegalArgumentException if the puzzle is not a 15-puzzle
+	 */
+	protected void requireSize4(Puzzle15 puzzle) {
+		if (puzzle.size() != 4) {
+			throw new IllegalArgumentException(getClass().getSimpleName() + " only solves the 15-puzzle");
+		}
+	}
+
 	protected abstract int getFrontierSize();
 
 	@Override
@@ -34,8 +98,45 @@ public abstract class AbstractSolver implements Solver {
 		return maxFrontierSize;
 	}
 
+	/**
+	 * Returns 0 which is right for solvers whose memory usage only depends on the search depth (e.g.
+	 * IDA*). Solvers storing the frontier or the visited states must override this method.
+	 */
+	@Override
+	public long getMemoryUsage() {
+		return 0;
+	}
+
+	/**
+	 * @return new run identity, see {@link Solver#getRunId()}
+	 */
+	static long nextRunId() {
+		return RUN_IDS.incrementAndGet();
+	}
+
+	/**
+	 * Starts the clock, assigns a new run identity and resets the metrics and the cancellation state for
+	 * a new run.
+	 */
 	protected void startClock() {
 		startTime = System.nanoTime();
+		runId = nextRunId();
+		if (ownMetrics) {
+			metrics.reset();
+			cancelled = false;
+		}
+	}
+
+	@Override
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Resets the cancellation state of a solver run as part of another solver.
+	 */
+	void clearCancellation() {
+		cancelled = false;
 	}
 
 	@Override
@@ -43,24 +144,67 @@ public abstract class AbstractSolver implements Solver {
 		return (System.nanoTime() - startTime) / 1_000_000;
 	}
 
+	@Override
+	public long getRunId() {
+		return runId;
+	}
+
+	/**
+	 * Counts the expansion of a node.
+	 * 
+	 * @return number of nodes expanded so far
+	 */
+	protected long countExpandedNode() {
+		return metrics.countExpanded();
+	}
+
+	/**
+	 * Counts the generation of a successor node.
+	 */
+	protected void countGeneratedNode() {
+		metrics.countGenerated();
+	}
+
+	/**
+	 * Counts a generated node that is discarded because its state has already been seen.
+	 */
+	protected void countDuplicate() {
+		metrics.countDuplicate();
+	}
+
+	/**
+	 * Publishes the current f-cost bound of the search.
+	 * 
+	 * @param bound cost bound
+	 */
+	protected void updateCostBound(int bound) {
+		metrics.setCostBound(bound);
+	}
+
+	@Override
+	public SolverMetrics getMetrics() {
+		return metrics;
+	}
+
 	protected void resetMaxFrontierSize() {
 		maxFrontierSize = 0;
 	}
 
 	protected void updateMaxFrontierSize() {
 		int size = getFrontierSize();
+		metrics.setFrontierSize(size);
 		if (size > maxFrontierSize) {
-			if (size / 10_000 > maxFrontierSize / 10_000) {
-				System.out.println(String.format("Frontier size: %,d", size));
-			}
 			maxFrontierSize = size;
 		}
 	}
 
 	protected void maybeGiveUp() throws SolverGivingUpException {
+		if (cancelled) {
+			throw new SolverCancelledException(String.format("Cancelled after %d millseconds", getRunningTime()));
+		}
 		if (givingUpCondition.test(this)) {
-			throw new SolverGivingUpException(String.format("Frontier size: %d, running time %d millseconds",
-					getFrontierSize(), getRunningTime()));
+			throw new SolverGivingUpException(String.format("Frontier size: %d, memory %d MB, running time %d millseconds",
+					getFrontierSize(), getMemoryUsage() >> 20, getRunningTime()));
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+package de.amr.games.puzzle15.solver;
+
+import java.util.Arrays;
+
+/**
+ * Priority queue for node indices with small non-negative integer priorities.
+ * 
+ * <p>
+ * Each priority has a bucket implemented as doubly-linked list through the arrays
+ * <code>next</code>/<code>prev</code> (indexed by node index). Insertion, removal and decrease-key
+ * are O(1), extracting the minimum is amortized O(1) as long as the minimum priority does not jump
+ * around much, which holds for A* with a consistent heuristic. Within a bucket, the node added last
+ * is extracted first.
+ * 
+ * @author Armin Reichert
+ */
+public final class BucketQueue {
+
+	private static final int NIL = -1;
+
+	private int[] heads;
+	private int[] next;
+	private int[] prev;
+	private int minPriority;
+	private int size;
+
+	public BucketQueue(int maxPriority, int initialCapacity) {
+		heads = new int[maxPriority + 1];
+		next = new int[initialCapacity];
+		prev = new int[initialCapacity];
+		clear();
+	}
+
+	public void clear() {
+		Arrays.fill(heads, NIL);
+		minPriority = heads.length;
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return number of bytes used by the bucket and link arrays
+	 */
+	public long memoryUsage() {
+		return (long) (heads.length + next.length + prev.length) * Integer.BYTES;
+	}
+
+	/**
+	 * @param node     node index
+	 * @param priority priority of node
+	 */
+	public void add(int node, int priority) {
+		if (priority >= heads.length) {
+			int oldLength = heads.length;
+			heads = Arrays.copyOf(heads, Math.max(priority + 1, 2 * oldLength));
+			Arrays.fill(heads, oldLength, heads.length, NIL);
+		}
+		if (node >= next.length) {
+			int capacity = Math.max(node + 1, 2 * next.length);
+			next = Arrays.copyOf(next, capacity);
+			prev = Arrays.copyOf(prev, capacity);
+		}
+		int head = heads[priority];
+		next[node] = head;
+		prev[node] = NIL;
+		if (head != NIL) {
+			prev[head] = node;
+		}
+		heads[priority] = node;
+		if (priority < minPriority) {
+			minPriority = priority;
+		}
+		++size;
+	}
+
+	/**
+	 * @param node     node index
+	 * @param priority current priority of node
+	 */
+	public void remove(int node, int priority) {
+		if (prev[node] != NIL) {
+			next[prev[node]] = next[node];
+		} else {
+			heads[priority] = next[node];
+		}
+		if (next[node] != NIL) {
+			prev[next[node]] = prev[node];
+		}
+		--size;
+	}
+
+	/**
+	 * @param node        node index
+	 * @param oldPriority current priority of node
+	 * @param newPriority new priority of node
+	 */
+	public void changePriority(int node, int oldPriority, int newPriority) {
+		remove(node, oldPriority);
+		add(node, newPriority);
+	}
+
+	/**
+	 * @return minimum priority of all nodes in the queue
+	 */
+	public int minPriority() {
+		if (size == 0) {
+			throw new IllegalStateException("Queue is empty");
+		}
+		while (heads[minPriority] == NIL) {
+			++minPriority;
+		}
+		return minPriority;
+	}
+
+	/**
+	 * @return node index with minimum priority
+	 */
+	public int poll() {
+		int node = heads[minPriority()];
+		remove(node, minPriority);
+		return node;
+	}
+}
@@ -0,0 +1,126 @@
+package de.amr.games.puzzle15.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import de.amr.games.puzzle15.model.Dir;
+import de.amr.games.puzzle15.model.Puzzle15;
+
+/**
+ * Solver decorator which looks up solutions in a {@link SolutionCache} before running the wrapped
+ * solver.
+ *
+ * <p>
+ * Each solution found by the wrapped solver is stored in the cache together with all its suffixes,
+ * so solving any puzzle on a previously returned solution path (e.g. after playing a part of the
+ * solution) needs no search at all. A cached solution is as good as the solver which found it, so a
+ * cache should only be shared by solvers returning solutions of the same quality (e.g. only optimal
+ * solvers).
+ *
+ * <p>
+ * The metrics are those of the wrapped solver. When a solution is taken from the cache, the metrics
+ * are reset, so they show no expanded nodes.
+ *
+ * @author Armin Reichert
+ */
+public class CachingSolver implements Solver {
+
+	private final Solver solver;
+	private final SolutionCache cache;
+	private long startTime; // nanoseconds
+	private volatile long runId; // of the last cache hit
+	private boolean cacheHit;
+
+	/**
+	 * @param solver       wrapped solver
+	 * @param memoryBudget maximum estimated memory in bytes used by the cache
+	 */
+	public CachingSolver(Solver solver, long memoryBudget) {
+		this(solver, new SolutionCache(memoryBudget));
+	}
+
+	/**
+	 * @param solver wrapped solver
+	 * @param cache  solution cache, may be shared by several solvers
+	 */
+	public CachingSolver(Solver solver, SolutionCache cache) {
+		this.solver = solver;
+		this.cache = cache;
+	}
+
+	public Solver getSolver() {
+		return solver;
+	}
+
+	public SolutionCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * @return if the last solution has been taken from the cache
+	 */
+	public boolean isCacheHit() {
+		return cacheHit;
+	}
+
+	@Override
+	public Optional<List<Node>> solve(Puzzle15 puzzle) throws SolverGivingUpException {
+		startTime = System.nanoTime();
+		Optional<List<Dir>> moves = cache.get(puzzle);
+		cacheHit = moves.isPresent();
+		if (cacheHit) {
+			runId = AbstractSolver.nextRunId();
+			solver.getMetrics().reset();
+			return Optional.of(path(puzzle, moves.get()));
+		}
+		Optional<List<Node>> solution = solver.solve(puzzle);
+		solution.ifPresent(cache::put);
+		return solution;
+	}
+
+	private static List<Node> path(Puzzle15 start, List<Dir> moves) {
+		List<Node> path = new ArrayList<>(moves.size() + 1);
+		Node node = new Node(start);
+		path.add(node);
+		for (Dir dir : moves) {
+			Node next = new Node(node.getPuzzle().move(dir));
+			next.setParent(node);
+			next.setDir(dir);
+			next.setMovesSoFar(node.getMovesSoFar() + 1);
+			path.add(next);
+			node = next;
+		}
+		return path;
+	}
+
+	@Override
+	public void cancel() {
+		solver.cancel();
+	}
+
+	@Override
+	public int getMaxFrontierSize() {
+		return cacheHit ? 0 : solver.getMaxFrontierSize();
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		return cacheHit ? 0 : solver.getMemoryUsage();
+	}
+
+	@Override
+	public long getRunningTime() {
+		return cacheHit ? (System.nanoTime() - startTime) / 1_000_000 : solver.getRunningTime();
+	}
+
+	@Override
+	public long getRunId() {
+		return cacheHit ? runId : solver.getRunId();
+	}
+
+	@Override
+	public SolverMetrics getMetrics() {
+		return solver.getMetrics();
+	}
+}
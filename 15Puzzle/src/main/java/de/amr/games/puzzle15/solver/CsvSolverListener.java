@@ -0,0 +1,49 @@
+package de.amr.games.puzzle15.solver;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Writes the progress reports of a solver run as CSV lines, e.g. for batch runs.
+ *
+ * @author Armin Reichert
+ */
+public class CsvSolverListener implements SolverListener {
+
+	public static final String HEADER = "elapsed_ms,expanded,generated,duplicates,frontier,cost_bound,expansions_per_sec";
+
+	private final PrintWriter out;
+	private final String key;
+
+	/**
+	 * Creates a listener and writes the CSV header line.
+	 *
+	 * @param out writer receiving the CSV lines
+	 */
+	public CsvSolverListener(PrintWriter out) {
+		this.out = out;
+		this.key = null;
+		out.println(HEADER);
+		out.flush();
+	}
+
+	/**
+	 * Creates a listener whose lines start with an additional key column, so the lines of several solver
+	 * runs can be written to the same writer. No header line is written.
+	 *
+	 * @param out writer receiving the CSV lines
+	 * @param key value of the first column, e.g. the input line of a batch run
+	 */
+	public CsvSolverListener(PrintWriter out, String key) {
+		this.out = out;
+		this.key = key;
+	}
+
+	@Override
+	public void progress(SolverProgress p) {
+		String line = String.format(Locale.ROOT, "%d,%d,%d,%d,%d,%d,%.0f", p.elapsedMillis(), p.expandedNodes(),
+				p.generatedNodes(), p.duplicatesPruned(), p.frontierSize(), p.costBound(), p.expansionsPerSecond());
+		out.println(key != null ? key + "," + line : line);
+		out.flush();
+	}
+}
@@ -3,25 +3,289 @@ package de.amr.games.puzzle15.solver;
 import static de.amr.games.puzzle15.model.Puzzle15.col;
 import static de.amr.games.puzzle15.model.Puzzle15.row;
 
+import java.util.function.Function;
+
 import de.amr.games.puzzle15.model.Puzzle15;
 
+/**
+ * Heuristics estimating the number of moves needed to order a puzzle.
+ *
+ * <p>
+ * The node-based heuristics ({@link #manhattan(Node)}, {@link #linearConflict(Node)},
+ * {@link #walkingDistance(Node)}) store their value in the node. If the parent node of a node already
+ * has a value, only the change caused by the single moved tile is computed instead of scanning the
+ * whole puzzle. The value is stored together with the heuristic which computed it, so a node scored
+ * by another heuristic is computed again.
+ *
+ * <p>
+ * The Manhattan distance and the linear conflict heuristic work for all puzzle sizes, the
+ * table-based versions are only used for size 4. The walking distance is only available for size 4.
+ *
+ * @author Armin Reichert
+ */
 public class Heuristics {
 
+	// keys of the node-based heuristics for the state stored in the node
+	static final byte MANHATTAN_KEY = 1, LINEAR_CONFLICT_KEY = 2, WALKING_DISTANCE_KEY = 3;
+
+	// MANHATTAN[number][index] = Manhattan distance of given number at given index from its ordered index
+	private static final byte[][] MANHATTAN;
+
+	// Manhattan distance tables for all puzzle sizes, filled when the class is loaded (about 50 KB)
+	private static final byte[][][] MANHATTAN_BY_SIZE = new byte[Puzzle15.MAX_SIZE + 1][][];
+
+	// ROW/COL_CONFLICTS[line][4 numbers of line as nibbles] = number of tiles that must leave the line
+	private static final byte[][] ROW_CONFLICTS = new byte[4][1 << 16];
+	private static final byte[][] COL_CONFLICTS = new byte[4][1 << 16];
+
+	static {
+		for (int size = 2; size <= Puzzle15.MAX_SIZE; ++size) {
+			int numCells = size * size;
+			byte[][] table = new byte[numCells][numCells];
+			for (int number = 1; number < numCells; ++number) {
+				int orderedIndex = number - 1;
+				for (int index = 0; index < numCells; ++index) {
+					table[number][index] = (byte) (Math.abs(orderedIndex / size - index / size)
+							+ Math.abs(orderedIndex % size - index % size));
+				}
+			}
+			MANHATTAN_BY_SIZE[size] = table;
+		}
+		MANHATTAN = MANHATTAN_BY_SIZE[4];
+		for (int line = 0; line < 4; ++line) {
+			for (int numbers = 0; numbers < (1 << 16); ++numbers) {
+				ROW_CONFLICTS[line][numbers] = (byte) lineConflicts(line, numbers, true);
+				COL_CONFLICTS[line][numbers] = (byte) lineConflicts(line, numbers, false);
+			}
+		}
+	}
+
+	/*
+	 * Minimum number of tiles that have to leave the line so that the remaining tiles which belong into
+	 * this line are in correct order: number of such tiles minus the length of the longest increasing
+	 * subsequence of their ordered positions.
+	 */
+	private static int lineConflicts(int line, int numbers, boolean row) {
+		int[] orderedPos = new int[4];
+		int count = 0;
+		for (int i = 0; i < 4; ++i) {
+			int number = (numbers >>> (4 * i)) & 0xF;
+			if (number != 0) {
+				byte orderedIndex = (byte) (number - 1);
+				if (row && row(orderedIndex) == line) {
+					orderedPos[count++] = col(orderedIndex);
+				} else if (!row && col(orderedIndex) == line) {
+					orderedPos[count++] = row(orderedIndex);
+				}
+			}
+		}
+		return count - longestIncreasingSubsequence(orderedPos, count);
+	}
+
+	/**
+	 * @param size puzzle size
+	 * @return table with the Manhattan distance of each number at each cell index from its ordered
+	 *         index, indexed by <code>[number][index]</code>
+	 */
+	public static byte[][] manhattanTable(int size) {
+		return MANHATTAN_BY_SIZE[size];
+	}
+
+	private static int rowConflicts(Puzzle15 puzzle, int row) {
+		int numbers = 0;
+		for (int col = 0; col < 4; ++col) {
+			numbers |= puzzle.get(row, col) << (4 * col);
+		}
+		return ROW_CONFLICTS[row][numbers];
+	}
+
+	private static int colConflicts(Puzzle15 puzzle, int col) {
+		int numbers = 0;
+		for (int row = 0; row < 4; ++row) {
+			numbers |= puzzle.get(row, col) << (4 * row);
+		}
+		return COL_CONFLICTS[col][numbers];
+	}
+
+	/**
+	 * @param number number on tile (0 = blank)
+	 * @param index  cell index
+	 * @return Manhattan distance of the tile at the given index from its position in the ordered puzzle
+	 */
+	public static int manhattanDist(int number, int index) {
+		return MANHATTAN[number][index];
+	}
+
 	public static int manhattanDistFromOrdered(Puzzle15 puzzle) {
+		int size = puzzle.size();
 		int dist = 0;
-		for (int row = 0; row < 4; ++row) {
-			for (int col = 0; col < 4; ++col) {
+		for (int row = 0; row < size; ++row) {
+			for (int col = 0; col < size; ++col) {
 				byte number = puzzle.get(row, col);
 				if (number != 0) {
-					byte orderedIndex = (byte) (number - 1);
-					dist += Math.abs(row(orderedIndex) - row) + Math.abs(col(orderedIndex) - col);
+					int orderedIndex = number - 1;
+					dist += Math.abs(orderedIndex / size - row) + Math.abs(orderedIndex % size - col);
 				}
 			}
 		}
 		return dist;
 	}
 
+	/**
+	 * Manhattan distance plus 2 moves for each tile that has to leave its ordered row or column to let
+	 * other tiles pass.
+	 *
+	 * @param puzzle puzzle
+	 * @return linear conflict distance of the puzzle
+	 */
+	public static int linearConflictDistFromOrdered(Puzzle15 puzzle) {
+		int conflicts = 0;
+		if (puzzle.size() == 4) {
+			for (int line = 0; line < 4; ++line) {
+				conflicts += rowConflicts(puzzle, line) + colConflicts(puzzle, line);
+			}
+		} else {
+			for (int line = 0; line < puzzle.size(); ++line) {
+				conflicts += lineConflicts(puzzle, line, true) + lineConflicts(puzzle, line, false);
+			}
+		}
+		return manhattanDistFromOrdered(puzzle) + 2 * conflicts;
+	}
+
+	// same as lineConflicts(int, int, boolean) for any puzzle size, without table
+	private static int lineConflicts(Puzzle15 puzzle, int line, boolean row) {
+		int size = puzzle.size();
+		int[] orderedPos = new int[size];
+		int count = 0;
+		for (int i = 0; i < size; ++i) {
+			int number = row ? puzzle.get(line, i) : puzzle.get(i, line);
+			if (number != 0) {
+				int orderedIndex = number - 1;
+				if (row && orderedIndex / size == line) {
+					orderedPos[count++] = orderedIndex % size;
+				} else if (!row && orderedIndex % size == line) {
+					orderedPos[count++] = orderedIndex / size;
+				}
+			}
+		}
+		return count - longestIncreasingSubsequence(orderedPos, count);
+	}
+
+	private static int longestIncreasingSubsequence(int[] values, int count) {
+		int[] lis = new int[count];
+		int longest = 0;
+		for (int i = 0; i < count; ++i) {
+			lis[i] = 1;
+			for (int j = 0; j < i; ++j) {
+				if (values[j] < values[i]) {
+					lis[i] = Math.max(lis[i], lis[j] + 1);
+				}
+			}
+			longest = Math.max(longest, lis[i]);
+		}
+		return longest;
+	}
+
+	/**
+	 * @param puzzle puzzle
+	 * @return sum of vertical and horizontal walking distance of the puzzle
+	 */
+	public static int walkingDistFromOrdered(Puzzle15 puzzle) {
+		requireSize4(puzzle);
+		return WalkingDistance.distance(WalkingDistance.state(puzzle, true))
+				+ WalkingDistance.distance(WalkingDistance.state(puzzle, false));
+	}
+
+	private static void requireSize4(Puzzle15 puzzle) {
+		if (puzzle.size() != 4) {
+			throw new IllegalArgumentException("Walking distance is only available for the 15-puzzle");
+		}
+	}
+
+	// tile moved from the blank cell of the node into the blank cell of the parent node
+	private static byte movedNumber(Node node) {
+		return node.getPuzzle().get(node.getParent().getPuzzle().blank());
+	}
+
+	private static boolean canUpdate(Node node, byte heuristic) {
+		return node.getParent() != null && node.getParent().getHeuristicState(heuristic) != -1;
+	}
+
 	public static int manhattan(Node node) {
-		return manhattanDistFromOrdered(node.getPuzzle());
+		if (node.getHeuristicState(MANHATTAN_KEY) == -1) {
+			int dist;
+			if (canUpdate(node, MANHATTAN_KEY)) {
+				byte[][] table = manhattanTable(node.getPuzzle().size());
+				byte number = movedNumber(node);
+				dist = node.getParent().getHeuristicState(MANHATTAN_KEY) - table[number][node.getPuzzle().blank()]
+						+ table[number][node.getParent().getPuzzle().blank()];
+			} else {
+				dist = manhattanDistFromOrdered(node.getPuzzle());
+			}
+			node.setHeuristicState(MANHATTAN_KEY, dist);
+		}
+		return node.getHeuristicState(MANHATTAN_KEY);
+	}
+
+	public static int linearConflict(Node node) {
+		if (node.getPuzzle().size() != 4) {
+			return linearConflictDistFromOrdered(node.getPuzzle());
+		}
+		if (node.getHeuristicState(LINEAR_CONFLICT_KEY) == -1) {
+			int dist;
+			if (canUpdate(node, LINEAR_CONFLICT_KEY)) {
+				Puzzle15 puzzle = node.getPuzzle(), parentPuzzle = node.getParent().getPuzzle();
+				byte from = puzzle.blank(), to = parentPuzzle.blank();
+				byte number = movedNumber(node);
+				dist = node.getParent().getHeuristicState(LINEAR_CONFLICT_KEY) - manhattanDist(number, from) + manhattanDist(number, to);
+				// only the conflicts of the two lines crossed by the moved tile can change
+				if (col(from) == col(to)) {
+					dist += 2 * (rowConflicts(puzzle, row(from)) + rowConflicts(puzzle, row(to))
+							- rowConflicts(parentPuzzle, row(from)) - rowConflicts(parentPuzzle, row(to)));
+				} else {
+					dist += 2 * (colConflicts(puzzle, col(from)) + colConflicts(puzzle, col(to))
+							- colConflicts(parentPuzzle, col(from)) - colConflicts(parentPuzzle, col(to)));
+				}
+			} else {
+				dist = linearConflictDistFromOrdered(node.getPuzzle());
+			}
+			node.setHeuristicState(LINEAR_CONFLICT_KEY, dist);
+		}
+		return node.getHeuristicState(LINEAR_CONFLICT_KEY);
+	}
+
+	public static int walkingDistance(Node node) {
+		requireSize4(node.getPuzzle());
+		if (node.getHeuristicState(WALKING_DISTANCE_KEY) == -1) {
+			// state = vertical state index (high 16 bits), horizontal state index (low 16 bits)
+			int vertical, horizontal;
+			if (canUpdate(node, WALKING_DISTANCE_KEY)) {
+				int parentState = node.getParent().getHeuristicState(WALKING_DISTANCE_KEY);
+				vertical = parentState >>> 16;
+				horizontal = parentState & 0xFFFF;
+				byte from = node.getPuzzle().blank(), to = node.getParent().getPuzzle().blank();
+				byte orderedIndex = (byte) (movedNumber(node) - 1);
+				if (col(from) == col(to)) {
+					vertical = WalkingDistance.successor(vertical, row(orderedIndex), row(from) > row(to));
+				} else {
+					horizontal = WalkingDistance.successor(horizontal, col(orderedIndex), col(from) > col(to));
+				}
+			} else {
+				vertical = WalkingDistance.state(node.getPuzzle(), true);
+				horizontal = WalkingDistance.state(node.getPuzzle(), false);
+			}
+			node.setHeuristicState(WALKING_DISTANCE_KEY, vertical << 16 | horizontal);
+		}
+		int state = node.getHeuristicState(WALKING_DISTANCE_KEY);
+		return WalkingDistance.distance(state >>> 16) + WalkingDistance.distance(state & 0xFFFF);
+	}
+
+	/**
+	 * @param pdb additive pattern database
+	 * @return heuristic node cost given by the pattern database, also looked up for the puzzle mirrored
+	 *         at the main diagonal
+	 */
+	public static Function<Node, Integer> patternDatabase(PatternDatabase pdb) {
+		return node -> pdb.distFromOrdered(node.getPuzzle());
 	}
-}
\ No newline at end of file
+}
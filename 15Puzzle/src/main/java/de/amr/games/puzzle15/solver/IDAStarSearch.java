@@ -0,0 +1,236 @@
+package de.amr.games.puzzle15.solver;
+
+import de.amr.games.puzzle15.model.Dir;
+import de.amr.games.puzzle15.model.PackedPuzzle15;
+import de.amr.games.puzzle15.model.Puzzle15;
+
+/**
+ * Depth-first core of the IDA* solvers.
+ *
+ * <p>
+ * Works on a single mutable board and makes/unmakes moves in place. The heuristic (Manhattan distance
+ * or additive pattern database) is updated incrementally for the moved tile; with a pattern database,
+ * the distance sums of the puzzle and of the mirrored puzzle are both kept up to date and their
+ * maximum is used (see {@link PatternDatabase}). Moves producing
+ * duplicate states are pruned by the FSM of a {@link MoveGenerator}. No objects are created during
+ * the search. Works for all puzzle sizes. Each thread needs its own instance.
+ *
+ * @author Armin Reichert
+ */
+abstract class IDAStarSearch {
+
+	/**
+	 * Upper bound of the length of an optimal solution: the known maximum for sizes 2 to 4 (6, 31 and
+	 * 80 moves), otherwise the number of moves needed by Parberry's real-time algorithm
+	 * (5n<sup>3</sup> - 9n<sup>2</sup>/2 + 19n/2 - 3).
+	 * 
+	 * @param size number of rows and columns of the puzzle
+	 * @return maximum number of moves of an optimal solution
+	 */
+	static int maxDepth(int size) {
+		return switch (size) {
+		case 2 -> 6;
+		case 3 -> 31;
+		case 4 -> 80;
+		default -> (10 * size * size * size - 9 * size * size + 19 * size - 6) / 2;
+		};
+	}
+
+	/** Number of rows and columns of the puzzle. */
+	final int size;
+
+	/** Maximum number of moves of an optimal solution, see {@link #maxDepth(int)}. */
+	final int maxDepth;
+
+	private final PatternDatabase pdb;
+	private final MoveGenerator moves;
+	private final byte[][] manhattan;
+	private final byte[] board;
+	private final byte[] positions;
+	private final int[] patternDist;
+	private final int[] transposedDist;
+	private int patternDistSum;
+	private int transposedDistSum;
+	private int blank;
+
+	/** Moves leading from the start state to the current state, valid up to {@link #depth}. */
+	final Dir[] path;
+
+	/** Number of moves made so far. */
+	int depth;
+
+	/** Nodes with a higher f-value are not expanded in this iteration. */
+	int costBound;
+
+	/** Minimum f-value of all nodes cut off in this iteration. */
+	int nextCostBound;
+
+	/**
+	 * @param size number of rows and columns of the puzzle
+	 * @param pdb  additive pattern database for this puzzle size or <code>null</code> for Manhattan
+	 *             distance
+	 */
+	IDAStarSearch(int size, PatternDatabase pdb) {
+		if (pdb != null && pdb.size() != size) {
+			throw new IllegalArgumentException(
+					String.format("Pattern database is for puzzle size %d, not %d", pdb.size(), size));
+		}
+		this.size = size;
+		this.maxDepth = maxDepth(size);
+		this.pdb = pdb;
+		path = new Dir[maxDepth];
+		int numCells = size * size;
+		moves = MoveGenerator.of(size, true);
+		manhattan = Heuristics.manhattanTable(size);
+		board = new byte[numCells];
+		positions = new byte[numCells];
+		patternDist = pdb != null ? new int[pdb.numPatterns()] : null;
+		transposedDist = pdb != null ? new int[pdb.numPatterns()] : null;
+	}
+
+	/**
+	 * @param costBound cost bound of the next iteration
+	 * @throws SolverGivingUpException if the cost bound exceeds the maximum length of an optimal
+	 *                                 solution (unsolvable puzzles are rejected before the search
+	 *                                 starts, so this should not happen)
+	 */
+	void checkCostBound(int costBound) throws SolverGivingUpException {
+		if (costBound > maxDepth) {
+			throw new SolverGivingUpException(
+					String.format("Cost bound %d exceeds maximum solution length %d", costBound, maxDepth));
+		}
+	}
+
+	/**
+	 * Called when a node is expanded, before its successors are generated.
+	 *
+	 * @param g depth of the expanded node
+	 * @throws SolverGivingUpException if the search should be given up
+	 */
+	abstract void expanded(int g) throws SolverGivingUpException;
+
+	/**
+	 * Called when a successor node is generated.
+	 */
+	abstract void generated();
+
+	/**
+	 * Loads the board with the given 15-puzzle state.
+	 *
+	 * @param state packed state, see {@link PackedPuzzle15}
+	 * @return heuristic estimate of the state
+	 */
+	int load(long state) {
+		for (int i = 0; i < 16; ++i) {
+			board[i] = (byte) PackedPuzzle15.get(state, i);
+		}
+		return boardLoaded();
+	}
+
+	/**
+	 * Loads the board with the given puzzle.
+	 *
+	 * @param puzzle puzzle of this search's size
+	 * @return heuristic estimate of the puzzle
+	 */
+	int load(Puzzle15 puzzle) {
+		for (int i = 0; i < board.length; ++i) {
+			board[i] = puzzle.get(i);
+		}
+		return boardLoaded();
+	}
+
+	private int boardLoaded() {
+		int h = 0;
+		for (byte i = 0; i < board.length; ++i) {
+			positions[board[i]] = i;
+			if (board[i] == 0) {
+				blank = i;
+			} else if (pdb == null) {
+				h += manhattan[board[i]][i];
+			}
+		}
+		if (pdb != null) {
+			patternDistSum = transposedDistSum = 0;
+			for (int p = 0; p < patternDist.length; ++p) {
+				patternDist[p] = pdb.distance(p, positions);
+				transposedDist[p] = pdb.transposedDistance(p, positions);
+				patternDistSum += patternDist[p];
+				transposedDistSum += transposedDist[p];
+			}
+			h = Math.max(patternDistSum, transposedDistSum);
+		}
+		return h;
+	}
+
+	/**
+	 * Searches the subtree below the current state depth-first up to the cost bound.
+	 *
+	 * @param g         number of moves leading to the current state
+	 * @param h         heuristic estimate of the current state
+	 * @param moveState state of the moves leading to the current state, see {@link MoveGenerator}
+	 * @return if the ordered state has been reached, the moves are stored in {@link #path}
+	 * @throws SolverGivingUpException if the search has been given up
+	 */
+	boolean search(int g, int h, int moveState) throws SolverGivingUpException {
+		int f = g + h;
+		if (f > costBound) {
+			if (f < nextCostBound) {
+				nextCostBound = f;
+			}
+			return false;
+		}
+		if (h == 0) {
+			return true;
+		}
+		expanded(g);
+		for (Dir dir : moves.moves(blank)) {
+			int nextMoveState = moves.next(moveState, dir);
+			if (nextMoveState == MoveGenerator.PRUNED) {
+				continue;
+			}
+			int target = moves.target(blank, dir);
+			generated();
+			byte number = board[target];
+			int pattern = -1, oldPatternDist = 0, transposedPattern = -1, oldTransposedDist = 0, hNext;
+			if (pdb == null) {
+				hNext = h - manhattan[number][target] + manhattan[number][blank];
+				makeMove(target);
+			} else {
+				makeMove(target);
+				pattern = pdb.patternOf(number);
+				oldPatternDist = patternDist[pattern];
+				patternDist[pattern] = pdb.distance(pattern, positions);
+				patternDistSum += patternDist[pattern] - oldPatternDist;
+				transposedPattern = pdb.transposedPatternOf(number);
+				oldTransposedDist = transposedDist[transposedPattern];
+				transposedDist[transposedPattern] = pdb.transposedDistance(transposedPattern, positions);
+				transposedDistSum += transposedDist[transposedPattern] - oldTransposedDist;
+				hNext = Math.max(patternDistSum, transposedDistSum);
+			}
+			path[g] = dir;
+			depth = g + 1;
+			if (search(g + 1, hNext, nextMoveState)) {
+				return true;
+			}
+			makeMove(moves.target(blank, dir.opposite()));
+			if (pattern != -1) {
+				patternDistSum -= patternDist[pattern] - oldPatternDist;
+				patternDist[pattern] = oldPatternDist;
+				transposedDistSum -= transposedDist[transposedPattern] - oldTransposedDist;
+				transposedDist[transposedPattern] = oldTransposedDist;
+			}
+			depth = g;
+		}
+		return false;
+	}
+
+	private void makeMove(int target) {
+		byte number = board[target];
+		board[blank] = number;
+		positions[number] = (byte) blank;
+		board[target] = 0;
+		positions[0] = (byte) target;
+		blank = target;
+	}
+}
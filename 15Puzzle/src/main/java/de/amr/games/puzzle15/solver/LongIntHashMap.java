@@ -0,0 +1,123 @@
+package de.amr.games.puzzle15.solver;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from <code>long</code> keys to <code>int</code> values with linear
+ * probing. Used to map packed puzzle states to node indices without boxing.
+ * 
+ * @author Armin Reichert
+ */
+public class LongIntHashMap {
+
+	/** Value returned by {@link #get(long)} for keys which are not contained. */
+	public static final int NO_VALUE = -1;
+
+	private static final long FREE = 0;
+
+	private long[] keys;
+	private int[] values;
+	private int size;
+	private int mask;
+	private boolean hasFreeKey; // key 0 is stored outside of the table
+	private int freeKeyValue;
+
+	public LongIntHashMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+		keys = new long[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E37_79B9_7F4A_7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of bytes used by the key and value arrays
+	 */
+	public long memoryUsage() {
+		return (long) keys.length * (Long.BYTES + Integer.BYTES);
+	}
+
+	public void clear() {
+		Arrays.fill(keys, FREE);
+		size = 0;
+		hasFreeKey = false;
+	}
+
+	/**
+	 * @param key key
+	 * @return value for key or {@link #NO_VALUE}
+	 */
+	public int get(long key) {
+		if (key == FREE) {
+			return hasFreeKey ? freeKeyValue : NO_VALUE;
+		}
+		for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return values[i];
+			}
+			if (keys[i] == FREE) {
+				return NO_VALUE;
+			}
+		}
+	}
+
+	public boolean containsKey(long key) {
+		return get(key) != NO_VALUE;
+	}
+
+	/**
+	 * Stores a value for a key, replacing the current value.
+	 * 
+	 * @param key   key
+	 * @param value value, must not be {@link #NO_VALUE}
+	 */
+	public void put(long key, int value) {
+		if (key == FREE) {
+			if (!hasFreeKey) {
+				hasFreeKey = true;
+				++size;
+			}
+			freeKeyValue = value;
+			return;
+		}
+		int i = hash(key) & mask;
+		while (keys[i] != FREE) {
+			if (keys[i] == key) {
+				values[i] = value;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		if (++size > keys.length / 2) {
+			rehash(keys.length * 2);
+		}
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+		for (int j = 0; j < oldKeys.length; ++j) {
+			if (oldKeys[j] != FREE) {
+				int i = hash(oldKeys[j]) & mask;
+				while (keys[i] != FREE) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package de.amr.games.puzzle15.solver;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.function.Predicate;
+
+/**
+ * Giving-up condition limiting the memory used by a solver (see {@link Solver#memoryMax(long)}).
+ *
+ * <p>
+ * The condition holds when the memory usage estimated by the solver (see
+ * {@link Solver#getMemoryUsage()}) exceeds the budget. The estimate only covers the main data
+ * structures of the solver, so it is cross-checked against the heap usage reported by the
+ * {@link MemoryMXBean}: if the used heap is above 15/16 of the maximum heap size in two consecutive
+ * samples, the condition holds too. Because the heap also contains garbage which is not yet
+ * collected, a single sample is not enough. The heap is sampled at most every 100 milliseconds.
+ *
+ * <p>
+ * A budget can be shared by solvers running in parallel and by the worker threads of a parallel
+ * solver: the heap samples are kept per thread. They are discarded when a new solver run starts in
+ * that thread, so full heap samples of a previous run never make the next run give up. A run is
+ * identified by its run identity (see {@link Solver#getRunId()}). The samples do not reference the
+ * solver, so a budget kept in a long-lived thread does not keep solvers alive.
+ *
+ * <p>
+ * This lets the solver end with a {@link SolverGivingUpException} instead of an
+ * {@link OutOfMemoryError} if the budget is larger than the available heap or the estimate is too
+ * low.
+ *
+ * @author Armin Reichert
+ */
+public class MemoryBudget implements Predicate<Solver> {
+
+	private static final long SAMPLE_NANOS = 100_000_000;
+
+	/** Heap samples taken during a solver run in one thread. */
+	private static class HeapSamples {
+
+		private long runId; // 0 = no run sampled yet
+		private long lastSampleTime; // nanoseconds
+		private int fullHeapSamples;
+
+		private void startRun(long id) {
+			runId = id;
+			lastSampleTime = System.nanoTime() - SAMPLE_NANOS;
+			fullHeapSamples = 0;
+		}
+	}
+
+	private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+	private final ThreadLocal<HeapSamples> samples = ThreadLocal.withInitial(HeapSamples::new);
+	private final long budget;
+
+	/**
+	 * @param budget memory budget in bytes
+	 */
+	public MemoryBudget(long budget) {
+		if (budget <= 0) {
+			throw new IllegalArgumentException("Memory budget must be positive");
+		}
+		this.budget = budget;
+	}
+
+	public long getBudget() {
+		return budget;
+	}
+
+	@Override
+	public boolean test(Solver solver) {
+		if (solver.getMemoryUsage() > budget) {
+			return true;
+		}
+		HeapSamples s = samples.get();
+		long runId = solver.getRunId();
+		if (runId != s.runId) {
+			s.startRun(runId);
+		}
+		long now = System.nanoTime();
+		if (now - s.lastSampleTime >= SAMPLE_NANOS) {
+			s.lastSampleTime = now;
+			s.fullHeapSamples = isHeapNearlyFull() ? s.fullHeapSamples + 1 : 0;
+		}
+		return s.fullHeapSamples >= 2;
+	}
+
+	private boolean isHeapNearlyFull() {
+		MemoryUsage heap = memoryBean.getHeapMemoryUsage();
+		long max = heap.getMax();
+		return max != -1 && heap.getUsed() > max - max / 16;
+	}
+}
@@ -0,0 +1,289 @@
+package de.amr.games.puzzle15.solver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import de.amr.games.puzzle15.model.Dir;
+import de.amr.games.puzzle15.model.Puzzle15;
+
+/**
+ * Successor generator with move pruning for depth-first searches which do not store visited states.
+ *
+ * <p>
+ * The legal moves for each blank position are precomputed. A sequence of moves is tracked by an
+ * integer state: starting with {@link #START}, the state after a move is given by
+ * {@link #next(int, Dir)} which returns {@link #PRUNED} if the move leads to a state which is also
+ * reached by a shorter or an equally long but preferred move sequence. The simplest pruning only
+ * excludes the move undoing the last move. The finite-state machine (FSM) pruning of Taylor and Korf
+ * additionally excludes all move sequences known to produce duplicates: all move sequences up to
+ * length {@value #FSM_DEPTH} are enumerated on an unbounded board, and a sequence is pruned if a
+ * preferred sequence with the same effect exists which is legal wherever the pruned one is legal
+ * (it visits no other cells). The pruned sequences are compiled into an Aho-Corasick automaton whose
+ * states are the move sequence states. The automaton does not depend on the puzzle size and is built
+ * once when first requested.
+ *
+ * <p>
+ * Pruning keeps at least one shortest path to each state, so depth-first searches remain complete
+ * and IDA* remains optimal.
+ *
+ * @author Armin Reichert
+ */
+public class MoveGenerator {
+
+	/** State of a move sequence before the first move. */
+	public static final int START = 0;
+
+	/** Returned by {@link #next(int, Dir)} for pruned moves. */
+	public static final int PRUNED = -1;
+
+	/** Maximum length of the move sequences compared for building the FSM. */
+	public static final int FSM_DEPTH = 10;
+
+	private static final Dir[] DIRS = Dir.values();
+	private static final int[] INVERSE_TRANSITIONS = inverseTransitions();
+	private static final MoveGenerator[] generators = new MoveGenerator[Puzzle15.MAX_SIZE + 1];
+	private static final MoveGenerator[] fsmGenerators = new MoveGenerator[Puzzle15.MAX_SIZE + 1];
+	private static int[] fsmTransitions;
+
+	/**
+	 * @param size number of rows and columns of the puzzle
+	 * @param fsm  if the FSM pruning is used, else only the inverse of the last move is pruned
+	 * @return move generator, shared by all callers
+	 */
+	public static synchronized MoveGenerator of(int size, boolean fsm) {
+		MoveGenerator[] cache = fsm ? fsmGenerators : generators;
+		if (cache[size] == null) {
+			if (fsm && fsmTransitions == null) {
+				fsmTransitions = fsmTransitions(FSM_DEPTH);
+			}
+			cache[size] = new MoveGenerator(size, fsm ? fsmTransitions : INVERSE_TRANSITIONS);
+		}
+		return cache[size];
+	}
+
+	private final int size;
+	private final Dir[][] moves; // legal moves for blank index
+	private final int[][] targets; // targets[blank][dir] = index of cell moving into blank or -1
+	private final int[] transitions; // transitions[4 * state + dir] = next state or PRUNED
+
+	private MoveGenerator(int size, int[] transitions) {
+		this.size = size;
+		this.transitions = transitions;
+		int numCells = size * size;
+		moves = new Dir[numCells][];
+		targets = new int[numCells][DIRS.length];
+		for (int i = 0; i < numCells; ++i) {
+			List<Dir> legal = new ArrayList<>(DIRS.length);
+			for (Dir dir : DIRS) {
+				targets[i][dir.ordinal()] = Puzzle15.target(size, i, dir);
+				if (targets[i][dir.ordinal()] != -1) {
+					legal.add(dir);
+				}
+			}
+			moves[i] = legal.toArray(Dir[]::new);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param blank blank index
+	 * @return legal moves for the given blank position (the array must not be modified)
+	 */
+	public Dir[] moves(int blank) {
+		return moves[blank];
+	}
+
+	/**
+	 * @param blank blank index
+	 * @param dir   move direction
+	 * @return index of the cell whose tile moves into the blank or -1 if the move is not possible
+	 */
+	public int target(int blank, Dir dir) {
+		return targets[blank][dir.ordinal()];
+	}
+
+	/**
+	 * @param state state of the move sequence so far
+	 * @param dir   next move
+	 * @return state of the extended move sequence or {@link #PRUNED}
+	 */
+	public int next(int state, Dir dir) {
+		return transitions[DIRS.length * state + dir.ordinal()];
+	}
+
+	/**
+	 * @return number of move sequence states
+	 */
+	public int numStates() {
+		return transitions.length / DIRS.length;
+	}
+
+	// state 0 = no move yet, state 1 + d = last move was d
+	private static int[] inverseTransitions() {
+		int[] transitions = new int[DIRS.length * (DIRS.length + 1)];
+		for (int state = 0; state <= DIRS.length; ++state) {
+			for (Dir dir : DIRS) {
+				boolean inverse = state > 0 && dir == DIRS[state - 1].opposite();
+				transitions[DIRS.length * state + dir.ordinal()] = inverse ? PRUNED : 1 + dir.ordinal();
+			}
+		}
+		return transitions;
+	}
+
+	/*
+	 * Enumerates the move sequences breadth-first in lexicographic order and collects the pruned ones,
+	 * then builds the automaton recognizing them.
+	 */
+	private static int[] fsmTransitions(int depth) {
+		List<byte[]> patterns = new ArrayList<>();
+		Set<Long> patternKeys = new HashSet<>();
+		Map<String, List<BitSet>> effects = new HashMap<>(); // effect -> visited cells of kept sequences
+		List<byte[]> level = new ArrayList<>();
+		level.add(new byte[0]);
+		Effect root = Effect.of(new byte[0]);
+		effects.computeIfAbsent(root.key(), key -> new ArrayList<>()).add(root.visited());
+		for (int length = 1; length <= depth; ++length) {
+			List<byte[]> nextLevel = new ArrayList<>();
+			for (byte[] sequence : level) {
+				for (Dir dir : DIRS) {
+					byte[] extended = Arrays.copyOf(sequence, length);
+					extended[length - 1] = (byte) dir.ordinal();
+					if (endsWithPattern(extended, patternKeys)) {
+						continue;
+					}
+					Effect effect = Effect.of(extended);
+					List<BitSet> kept = effects.computeIfAbsent(effect.key(), key -> new ArrayList<>());
+					if (kept.stream().anyMatch(visited -> isSubset(visited, effect.visited()))) {
+						patterns.add(extended);
+						patternKeys.add(encode(extended, 0));
+					} else {
+						kept.add(effect.visited());
+						nextLevel.add(extended);
+					}
+				}
+			}
+			level = nextLevel;
+		}
+		return automaton(patterns);
+	}
+
+	private static boolean endsWithPattern(byte[] sequence, Set<Long> patternKeys) {
+		for (int from = sequence.length - 2; from >= 1; --from) {
+			if (patternKeys.contains(encode(sequence, from))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// encodes the moves from the given index on with 2 bits per move, preceded by a 1-bit
+	private static long encode(byte[] sequence, int from) {
+		long code = 1;
+		for (int i = from; i < sequence.length; ++i) {
+			code = code << 2 | sequence[i];
+		}
+		return code;
+	}
+
+	private static boolean isSubset(BitSet subset, BitSet set) {
+		BitSet difference = (BitSet) subset.clone();
+		difference.andNot(set);
+		return difference.isEmpty();
+	}
+
+	/*
+	 * Builds the Aho-Corasick automaton of the given patterns, no pattern containing another one. The
+	 * states are the nodes of the pattern trie, transitions completing a pattern are pruned.
+	 */
+	private static int[] automaton(List<byte[]> patterns) {
+		List<int[]> children = new ArrayList<>();
+		children.add(newChildren());
+		Set<Integer> terminals = new HashSet<>();
+		for (byte[] pattern : patterns) {
+			int node = START;
+			for (byte d : pattern) {
+				if (children.get(node)[d] == PRUNED) {
+					children.get(node)[d] = children.size();
+					children.add(newChildren());
+				}
+				node = children.get(node)[d];
+			}
+			terminals.add(node);
+		}
+		int[] transitions = new int[DIRS.length * children.size()];
+		int[] fail = new int[children.size()];
+		Queue<Integer> queue = new ArrayDeque<>();
+		queue.add(START);
+		while (!queue.isEmpty()) {
+			int node = queue.poll();
+			for (int d = 0; d < DIRS.length; ++d) {
+				int child = children.get(node)[d];
+				int failTransition = node == START ? START : transitions[DIRS.length * fail[node] + d];
+				if (child == PRUNED) {
+					transitions[DIRS.length * node + d] = failTransition;
+				} else if (terminals.contains(child)) {
+					transitions[DIRS.length * node + d] = PRUNED;
+				} else {
+					transitions[DIRS.length * node + d] = child;
+					fail[child] = failTransition;
+					queue.add(child);
+				}
+			}
+		}
+		return transitions;
+	}
+
+	private static int[] newChildren() {
+		int[] children = new int[DIRS.length];
+		Arrays.fill(children, PRUNED);
+		return children;
+	}
+
+	/*
+	 * Effect of a move sequence on an unbounded board: the final blank position and the displaced
+	 * tiles (as key) and the visited cells. Cells are relative to the start position of the blank.
+	 */
+	private record Effect(String key, BitSet visited) {
+
+		private static final int WIDTH = 2 * FSM_DEPTH + 1;
+
+		static Effect of(byte[] sequence) {
+			int[] tileAt = new int[WIDTH * WIDTH]; // cell -> original cell of its tile
+			for (int cell = 0; cell < tileAt.length; ++cell) {
+				tileAt[cell] = cell;
+			}
+			BitSet visited = new BitSet(tileAt.length);
+			int blank = FSM_DEPTH * WIDTH + FSM_DEPTH; // center
+			visited.set(blank);
+			for (byte d : sequence) {
+				int target = switch (DIRS[d]) {
+				case UP -> blank + WIDTH;
+				case DOWN -> blank - WIDTH;
+				case LEFT -> blank + 1;
+				case RIGHT -> blank - 1;
+				};
+				tileAt[blank] = tileAt[target];
+				blank = target;
+				visited.set(blank);
+			}
+			StringBuilder key = new StringBuilder().append(blank);
+			for (int cell = visited.nextSetBit(0); cell != -1; cell = visited.nextSetBit(cell + 1)) {
+				if (cell != blank && tileAt[cell] != cell) {
+					key.append(',').append(cell).append('=').append(tileAt[cell]);
+				}
+			}
+			return new Effect(key.toString(), visited);
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package de.amr.games.puzzle15.solver;
 
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.stream.Stream;
 
@@ -15,19 +16,52 @@ public class Node {
 	private Node parent;
 	private int movesSoFar;
 	private int score;
+	private int heuristicState = -1; // used by incremental heuristics, -1 = not computed
+	private byte heuristic; // heuristic which computed the heuristic state, see Heuristics
+	private int moveState = MoveGenerator.START; // used by move pruning, see MoveGenerator
 
 	public Node(Puzzle15 puzzle) {
 		this.puzzle = puzzle;
 	}
 
+	/**
+	 * Estimates the heap size of a node together with its puzzle on a 64-bit JVM with compressed
+	 * object references: 48 bytes for the node, 32 bytes for the puzzle object and the cell array
+	 * (16 bytes header, padded to a multiple of 8).
+	 * 
+	 * @param numCells number of puzzle cells
+	 * @return estimated number of bytes
+	 */
+	public static long estimatedBytes(int numCells) {
+		return 48 + 32 + ((16 + numCells + 7) & ~7);
+	}
+
+	/**
+	 * @return successor nodes, except the one undoing the move leading to this node
+	 */
 	public Stream<Node> successors() {
-		return puzzle.possibleMoveDirs().map(dir -> {
-			Node successor = new Node(puzzle.move(dir));
-			successor.dir = dir;
-			successor.parent = this;
-			successor.movesSoFar = movesSoFar + 1;
-			return successor;
-		});
+		return puzzle.possibleMoveDirs().filter(d -> dir == null || d != dir.opposite()).map(this::successor);
+	}
+
+	/**
+	 * @param generator move generator for the size of this node's puzzle
+	 * @return successor nodes not pruned by the move generator, each with its move state
+	 */
+	public Stream<Node> successors(MoveGenerator generator) {
+		return Arrays.stream(generator.moves(puzzle.blank()))
+				.filter(d -> generator.next(moveState, d) != MoveGenerator.PRUNED).map(d -> {
+					Node successor = successor(d);
+					successor.moveState = generator.next(moveState, d);
+					return successor;
+				});
+	}
+
+	private Node successor(Dir successorDir) {
+		Node successor = new Node(puzzle.move(successorDir));
+		successor.dir = successorDir;
+		successor.parent = this;
+		successor.movesSoFar = movesSoFar + 1;
+		return successor;
 	}
 
 	public Puzzle15 getPuzzle() {
@@ -66,6 +100,30 @@ public class Node {
 		this.score = score;
 	}
 
+	/**
+	 * @param heuristic key of an incremental heuristic
+	 * @return state stored by the given heuristic or -1 if the state has not been computed by it
+	 */
+	public int getHeuristicState(byte heuristic) {
+		return this.heuristic == heuristic ? heuristicState : -1;
+	}
+
+	/**
+	 * @return key of the incremental heuristic which computed the heuristic state or 0 if none
+	 */
+	public byte getHeuristic() {
+		return heuristic;
+	}
+
+	/**
+	 * @param heuristic      key of the incremental heuristic computing the state
+	 * @param heuristicState state computed by the heuristic
+	 */
+	public void setHeuristicState(byte heuristic, int heuristicState) {
+		this.heuristic = heuristic;
+		this.heuristicState = heuristicState;
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
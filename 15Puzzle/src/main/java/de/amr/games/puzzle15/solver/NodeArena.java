@@ -0,0 +1,259 @@
+package de.amr.games.puzzle15.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import de.amr.games.puzzle15.model.Dir;
+import de.amr.games.puzzle15.model.PackedPuzzle15;
+
+/**
+ * Struct-of-arrays store for search nodes of the 15-puzzle.
+ *
+ * <p>
+ * Instead of a {@link Node} object graph, the node data is kept in parallel primitive arrays and a
+ * node is identified by its index: packed state (see {@link PackedPuzzle15}), index of the parent
+ * node, move leading to the node, path cost g, heuristic estimate h and some flag bits for the use of
+ * the solver. A node takes {@value #BYTES_PER_NODE} bytes (compared to about 100 bytes for a
+ * {@link Node} with its puzzle), and the garbage collector only sees a few large arrays. The arrays
+ * grow by doubling. Path cost and heuristic estimate are stored as shorts, values outside of
+ * 0..{@value #MAX_VALUE} are rejected.
+ *
+ * <p>
+ * An arena created with heuristic state also stores the state of an incremental heuristic (see
+ * {@link Node#getHeuristicState(byte)}) for each node, {@value #HEURISTIC_STATE_BYTES} more bytes per
+ * node. A node object recreated from the arena then scores its successors by the change caused by
+ * the moved tile instead of scanning the whole puzzle.
+ *
+ * @author Armin Reichert
+ */
+public class NodeArena {
+
+	/** Parent index of a root node. */
+	public static final int NO_PARENT = -1;
+
+	/** Direction value of a root node. */
+	public static final int NO_DIR = -1;
+
+	/** Maximum path cost and heuristic estimate of a node. */
+	public static final int MAX_VALUE = Short.MAX_VALUE;
+
+	/** Bytes used per node. */
+	public static final int BYTES_PER_NODE = Long.BYTES + Integer.BYTES + 2 * Short.BYTES + 2;
+
+	/** Additional bytes used per node by an arena with heuristic state. */
+	public static final int HEURISTIC_STATE_BYTES = Integer.BYTES + 1;
+
+	private static final int MIN_CAPACITY = 16;
+
+	private static final Dir[] DIRS = Dir.values();
+
+	private long[] state;
+	private int[] parent;
+	private byte[] dir;
+	private short[] g;
+	private short[] h;
+	private byte[] flags;
+	private byte[] heuristic; // null if the arena has no heuristic state
+	private int[] heuristicState;
+	private int size;
+
+	/**
+	 * Creates an arena without heuristic state.
+	 * 
+	 * @param initialCapacity number of nodes that can be added before the arrays grow
+	 */
+	public NodeArena(int initialCapacity) {
+		this(initialCapacity, false);
+	}
+
+	/**
+	 * @param initialCapacity    number of nodes that can be added before the arrays grow
+	 * @param withHeuristicState if the state of an incremental heuristic is stored for each node
+	 */
+	public NodeArena(int initialCapacity, boolean withHeuristicState) {
+		state = new long[initialCapacity];
+		parent = new int[initialCapacity];
+		dir = new byte[initialCapacity];
+		g = new short[initialCapacity];
+		h = new short[initialCapacity];
+		flags = new byte[initialCapacity];
+		if (withHeuristicState) {
+			heuristic = new byte[initialCapacity];
+			heuristicState = new int[initialCapacity];
+		}
+	}
+
+	/**
+	 * Removes all nodes, the arrays are kept.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @return number of nodes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of nodes that can be stored without growing
+	 */
+	public int capacity() {
+		return state.length;
+	}
+
+	/**
+	 * @return number of bytes used by the node arrays
+	 */
+	public long memoryUsage() {
+		return (long) capacity() * (heuristic != null ? BYTES_PER_NODE + HEURISTIC_STATE_BYTES : BYTES_PER_NODE);
+	}
+
+	/**
+	 * Adds a node with cleared flags and without heuristic state.
+	 *
+	 * @param nodeState  packed state
+	 * @param nodeParent parent node index or {@link #NO_PARENT}
+	 * @param nodeDir    ordinal of the move leading to the node or {@link #NO_DIR}
+	 * @param nodeG      path cost (0..{@value #MAX_VALUE})
+	 * @param nodeH      heuristic estimate (0..{@value #MAX_VALUE})
+	 * @return index of the new node
+	 * @throws IllegalArgumentException if the path cost or the heuristic estimate is out of range
+	 */
+	public int add(long nodeState, int nodeParent, int nodeDir, int nodeG, int nodeH) {
+		checkRange("Path cost", nodeG);
+		checkRange("Heuristic estimate", nodeH);
+		if (size == state.length) {
+			int capacity = Math.max(MIN_CAPACITY, 2 * size);
+			state = Arrays.copyOf(state, capacity);
+			parent = Arrays.copyOf(parent, capacity);
+			dir = Arrays.copyOf(dir, capacity);
+			g = Arrays.copyOf(g, capacity);
+			h = Arrays.copyOf(h, capacity);
+			flags = Arrays.copyOf(flags, capacity);
+			if (heuristic != null) {
+				heuristic = Arrays.copyOf(heuristic, capacity);
+				heuristicState = Arrays.copyOf(heuristicState, capacity);
+			}
+		}
+		int node = size++;
+		state[node] = nodeState;
+		parent[node] = nodeParent;
+		dir[node] = (byte) nodeDir;
+		g[node] = (short) nodeG;
+		h[node] = (short) nodeH;
+		flags[node] = 0;
+		if (heuristic != null) {
+			heuristic[node] = 0;
+			heuristicState[node] = -1;
+		}
+		return node;
+	}
+
+	private static void checkRange(String what, int value) {
+		if (value < 0 || value > MAX_VALUE) {
+			throw new IllegalArgumentException(String.format("%s %d not in range 0..%d", what, value, MAX_VALUE));
+		}
+	}
+
+	/**
+	 * Replaces the path leading to a node by a cheaper one.
+	 *
+	 * @param node       node index
+	 * @param nodeParent new parent node index
+	 * @param nodeDir    ordinal of the move from the new parent to the node
+	 * @param nodeG      new path cost
+	 */
+	public void setPath(int node, int nodeParent, int nodeDir, int nodeG) {
+		parent[node] = nodeParent;
+		dir[node] = (byte) nodeDir;
+		g[node] = (short) nodeG;
+	}
+
+	public long state(int node) {
+		return state[node];
+	}
+
+	public int parent(int node) {
+		return parent[node];
+	}
+
+	/**
+	 * @return ordinal of the move leading to the node or {@link #NO_DIR}
+	 */
+	public int dir(int node) {
+		return dir[node];
+	}
+
+	public int g(int node) {
+		return g[node];
+	}
+
+	public int h(int node) {
+		return h[node];
+	}
+
+	public int f(int node) {
+		return g[node] + h[node];
+	}
+
+	public int flags(int node) {
+		return flags[node];
+	}
+
+	public boolean hasFlag(int node, int flag) {
+		return (flags[node] & flag) != 0;
+	}
+
+	public void setFlags(int node, int nodeFlags) {
+		flags[node] = (byte) nodeFlags;
+	}
+
+	/**
+	 * @param node node index
+	 * @return key of the incremental heuristic which computed the node's heuristic state or 0
+	 * @throws NullPointerException if the arena has no heuristic state
+	 */
+	public byte heuristic(int node) {
+		return heuristic[node];
+	}
+
+	/**
+	 * @param node node index
+	 * @return heuristic state of the node or -1 if there is none
+	 * @throws NullPointerException if the arena has no heuristic state
+	 */
+	public int heuristicState(int node) {
+		return heuristicState[node];
+	}
+
+	/**
+	 * Stores the state of an incremental heuristic for a node.
+	 *
+	 * @param node               node index
+	 * @param nodeHeuristic      key of the heuristic computing the state, 0 if none
+	 * @param nodeHeuristicState heuristic state or -1
+	 * @throws NullPointerException if the arena has no heuristic state
+	 */
+	public void setHeuristicState(int node, byte nodeHeuristic, int nodeHeuristicState) {
+		heuristic[node] = nodeHeuristic;
+		heuristicState[node] = nodeHeuristicState;
+	}
+
+	/**
+	 * @param node node index
+	 * @return moves leading from the root to the given node
+	 */
+	public List<Dir> movesTo(int node) {
+		List<Dir> moves = new ArrayList<>(g[node]);
+		for (int current = node; parent[current] != NO_PARENT; current = parent[current]) {
+			moves.add(DIRS[dir[current]]);
+		}
+		Collections.reverse(moves);
+		return moves;
+	}
+}
@@ -0,0 +1,111 @@
+package de.amr.games.puzzle15.solver;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.amr.games.puzzle15.model.Puzzle15;
+
+/**
+ * Maps the puzzles of the nodes in a {@link NodeArena} to their node indices and back.
+ *
+ * <p>
+ * Puzzles up to size {@link Puzzle15#MAX_PACKED_SIZE} are stored as packed states in the arena and
+ * found by a {@link LongIntHashMap}. Larger puzzles have no packed state, so the puzzle objects are
+ * kept in an array indexed by node and found by a {@link HashMap}. The arena then stores 0 as state.
+ *
+ * @author Armin Reichert
+ */
+final class NodeStates {
+
+	private final LongIntHashMap packedIndex;
+	private final Map<Puzzle15, Integer> puzzleIndex = new HashMap<>();
+	private Puzzle15[] puzzles = new Puzzle15[0]; // only used for large puzzles
+	private boolean packed;
+	private int size;
+	private long goal;
+
+	/**
+	 * @param expectedSize expected number of packed states
+	 */
+	NodeStates(int expectedSize) {
+		packedIndex = new LongIntHashMap(expectedSize);
+	}
+
+	/**
+	 * Removes all states and prepares for puzzles of the given size.
+	 *
+	 * @param puzzleSize number of rows and columns
+	 */
+	void clear(int puzzleSize) {
+		size = puzzleSize;
+		packed = puzzleSize <= Puzzle15.MAX_PACKED_SIZE;
+		goal = packed ? Puzzle15.ordered(puzzleSize).packed() : 0;
+		packedIndex.clear();
+		puzzleIndex.clear();
+		Arrays.fill(puzzles, null);
+	}
+
+	/**
+	 * @param puzzle puzzle
+	 * @return state stored in the arena for the given puzzle
+	 */
+	long state(Puzzle15 puzzle) {
+		return packed ? puzzle.packed() : 0;
+	}
+
+	/**
+	 * @param puzzle puzzle
+	 * @param node   index of the arena node of the puzzle
+	 */
+	void put(Puzzle15 puzzle, int node) {
+		if (packed) {
+			packedIndex.put(puzzle.packed(), node);
+		} else {
+			if (node >= puzzles.length) {
+				puzzles = Arrays.copyOf(puzzles, Math.max(node + 1, 2 * puzzles.length));
+			}
+			puzzles[node] = puzzle;
+			puzzleIndex.put(puzzle, node);
+		}
+	}
+
+	/**
+	 * @param puzzle puzzle
+	 * @return index of the arena node of the puzzle or {@link LongIntHashMap#NO_VALUE}
+	 */
+	int get(Puzzle15 puzzle) {
+		if (packed) {
+			return packedIndex.get(puzzle.packed());
+		}
+		return puzzleIndex.getOrDefault(puzzle, LongIntHashMap.NO_VALUE);
+	}
+
+	/**
+	 * @param node  node index
+	 * @param state state stored in the arena for the node
+	 * @return puzzle of the node
+	 */
+	Puzzle15 puzzle(int node, long state) {
+		return packed ? Puzzle15.ofPacked(size, state) : puzzles[node];
+	}
+
+	/**
+	 * @param node  node index
+	 * @param state state stored in the arena for the node
+	 * @return if the puzzle of the node is ordered
+	 */
+	boolean isGoal(int node, long state) {
+		return packed ? state == goal : puzzles[node].isOrdered();
+	}
+
+	/**
+	 * @return number of bytes used by the index and the puzzle objects of large puzzles
+	 */
+	long memoryUsage() {
+		// puzzle object and cell array, see Node#estimatedBytes(int)
+		long puzzleBytes = 32 + ((16 + size * size + 7) & ~7);
+		return packedIndex.memoryUsage() + (long) puzzles.length * Integer.BYTES
+				+ puzzleIndex.size() * (puzzleBytes + AbstractSolver.HASH_ENTRY_BYTES);
+	}
+}
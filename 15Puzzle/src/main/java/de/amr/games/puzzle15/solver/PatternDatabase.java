@@ -0,0 +1,303 @@
+package de.amr.games.puzzle15.solver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import de.amr.games.puzzle15.model.PackedPuzzle15;
+import de.amr.games.puzzle15.model.Permutations;
+import de.amr.games.puzzle15.model.Puzzle15;
+
+/**
+ * Disjoint additive pattern database for the 15-puzzle and other puzzle sizes.
+ *
+ * <p>
+ * The tiles are partitioned into disjoint patterns. For each pattern, a table stores for every
+ * placement of the pattern tiles the minimum number of moves of <em>pattern tiles</em> needed to
+ * bring them to their ordered positions. Because moves of other tiles are not counted, the values
+ * of the different patterns can be added and still give an admissible estimate which dominates the
+ * Manhattan distance.
+ *
+ * <p>
+ * The tables are also used a second time for the puzzle mirrored at its main diagonal: the tiles are
+ * moved to the transposed cells and renumbered such that the ordered puzzle is mapped to itself (tile
+ * number t becomes the number of the ordered tile at the transposed cell of t). Moves of the puzzle
+ * correspond to moves of the mirrored puzzle, so both have the same distance from the ordered puzzle,
+ * and the maximum of the two sums is still admissible (and consistent). Because the mirrored pattern
+ * tiles are placed differently, this often gives a higher estimate without additional memory.
+ *
+ * <p>
+ * The puzzle size is given by the partition: the tiles of all patterns must be the numbers
+ * 1..n<sup>2</sup>-1 of an n&times;n puzzle.
+ *
+ * <p>
+ * Tables are created by {@link PatternDatabaseGenerator} and stored in a binary file which is
+ * memory-mapped by {@link #load(Path)}.
+ *
+ * @author Armin Reichert
+ */
+public class PatternDatabase {
+
+	/** 5-5-5 partition: three tables with 524,160 entries each. */
+	public static final int[][] PARTITION_555 = { { 1, 2, 5, 6, 9 }, { 3, 4, 7, 8, 12 }, { 10, 11, 13, 14, 15 } };
+
+	/** 6-6-3 partition: two tables with 5,765,760 entries and one with 3,360 entries. */
+	public static final int[][] PARTITION_663 = { { 1, 5, 6, 9, 10, 13 }, { 7, 8, 11, 12, 14, 15 }, { 2, 3, 4 } };
+
+	/** 5-5-5-5-4 partition of the 24-puzzle: four tables with 6,375,600 entries and one with 303,600. */
+	public static final int[][] PARTITION_24_55554 = { { 1, 2, 3, 6, 7 }, { 4, 5, 8, 9, 10 }, { 11, 12, 16, 17, 21 },
+			{ 13, 14, 18, 19, 23 }, { 15, 20, 22, 24 } };
+
+	static final int MAGIC_V1 = 0x50444231; // "PDB1", 15-puzzle only
+	static final int MAGIC = 0x50444232; // "PDB2", with puzzle size
+
+	/**
+	 * The table of a pattern is indexed by the rank of the k-permutation of cells occupied by the
+	 * pattern tiles, see {@link Permutations#rankPartial(byte[], int, int)}.
+	 * 
+	 * @param k number of tiles in pattern
+	 * @return number of placements of <code>k</code> tiles on 16 cells
+	 */
+	public static int tableSize(int k) {
+		return tableSize(16, k);
+	}
+
+	/**
+	 * @param numCells number of puzzle cells
+	 * @param k        number of tiles in pattern
+	 * @return number of placements of <code>k</code> tiles on <code>numCells</code> cells
+	 */
+	public static int tableSize(int numCells, int k) {
+		long size = Permutations.numPartial(numCells, k);
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Pattern too large: " + k + " tiles on " + numCells + " cells");
+		}
+		return (int) size;
+	}
+
+	/**
+	 * @param partition partition of the tiles 1..n<sup>2</sup>-1 into patterns
+	 * @return number of rows and columns of the puzzle the partition belongs to
+	 */
+	public static int sizeOf(int[][] partition) {
+		int numCells = 1;
+		for (int[] pattern : partition) {
+			numCells += pattern.length;
+		}
+		int size = (int) Math.round(Math.sqrt(numCells));
+		if (size < 2 || size * size != numCells) {
+			throw new IllegalArgumentException("Not a partition of a square puzzle: " + Arrays.deepToString(partition));
+		}
+		return size;
+	}
+
+	/**
+	 * Memory-maps a pattern database file created by {@link PatternDatabaseGenerator}.
+	 *
+	 * @param file database file
+	 * @return pattern database backed by the mapped file
+	 * @throws IOException if the file cannot be read or has the wrong format
+	 */
+	public static PatternDatabase load(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			int magic = buffer.getInt();
+			if (magic != MAGIC && magic != MAGIC_V1) {
+				throw new IOException("Not a pattern database file: " + file);
+			}
+			int numCells = magic == MAGIC ? buffer.getInt() : 16;
+			int[][] partition = new int[buffer.getInt()][];
+			for (int p = 0; p < partition.length; ++p) {
+				partition[p] = new int[buffer.get()];
+				for (int i = 0; i < partition[p].length; ++i) {
+					partition[p][i] = buffer.get();
+				}
+			}
+			ByteBuffer[] tables = new ByteBuffer[partition.length];
+			for (int p = 0; p < partition.length; ++p) {
+				int size = tableSize(numCells, partition[p].length);
+				if (buffer.remaining() < size) {
+					throw new IOException("Pattern database file is truncated: " + file);
+				}
+				tables[p] = buffer.slice(buffer.position(), size);
+				buffer.position(buffer.position() + size);
+			}
+			try {
+				return new PatternDatabase(partition, tables);
+			} catch (IllegalArgumentException x) {
+				throw new IOException("Invalid pattern database file: " + file, x);
+			}
+		}
+	}
+
+	private final int size;
+	private final int numCells;
+	private final int[][] partition;
+	private final ByteBuffer[] tables;
+	private final byte[] patternOfTile;
+	private final byte[] transposedCell; // cell index -> index of the cell mirrored at the main diagonal
+	private final byte[] transposedTile; // tile -> tile number in the mirrored puzzle
+	private final int[][] transposedPartition; // tiles mapped to the patterns of the mirrored puzzle
+
+	/**
+	 * @param partition partition of the tiles 1..n<sup>2</sup>-1 into patterns
+	 * @param tables    distance table for each pattern
+	 */
+	public PatternDatabase(int[][] partition, ByteBuffer[] tables) {
+		if (partition.length != tables.length) {
+			throw new IllegalArgumentException("Need one table per pattern");
+		}
+		size = sizeOf(partition);
+		numCells = size * size;
+		patternOfTile = new byte[numCells];
+		Arrays.fill(patternOfTile, (byte) -1);
+		for (int p = 0; p < partition.length; ++p) {
+			if (tables[p].capacity() != tableSize(numCells, partition[p].length)) {
+				throw new IllegalArgumentException("Wrong table size for pattern " + Arrays.toString(partition[p]));
+			}
+			for (int tile : partition[p]) {
+				if (tile < 1 || tile >= numCells || patternOfTile[tile] != -1) {
+					throw new IllegalArgumentException("Not a partition: " + Arrays.deepToString(partition));
+				}
+				patternOfTile[tile] = (byte) p;
+			}
+		}
+		for (int tile = 1; tile < numCells; ++tile) {
+			if (patternOfTile[tile] == -1) {
+				throw new IllegalArgumentException("Tile " + tile + " is not contained in any pattern");
+			}
+		}
+		this.partition = partition;
+		this.tables = tables;
+		transposedCell = new byte[numCells];
+		transposedTile = new byte[numCells];
+		for (int cell = 0; cell < numCells; ++cell) {
+			transposedCell[cell] = (byte) (cell % size * size + cell / size);
+		}
+		for (int tile = 1; tile < numCells; ++tile) {
+			transposedTile[tile] = (byte) (transposedCell[tile - 1] + 1);
+		}
+		transposedPartition = new int[partition.length][];
+		for (int p = 0; p < partition.length; ++p) {
+			transposedPartition[p] = new int[partition[p].length];
+			for (int i = 0; i < partition[p].length; ++i) {
+				transposedPartition[p][i] = transposedTile[partition[p][i]];
+			}
+		}
+	}
+
+	/**
+	 * Saves this database in the format read by {@link #load(Path)}.
+	 *
+	 * @param file database file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(12 + partition.length * (numCells + 1));
+			header.putInt(MAGIC).putInt(numCells).putInt(partition.length);
+			for (int[] pattern : partition) {
+				header.put((byte) pattern.length);
+				for (int tile : pattern) {
+					header.put((byte) tile);
+				}
+			}
+			header.flip();
+			channel.write(header);
+			for (ByteBuffer table : tables) {
+				ByteBuffer data = table.duplicate();
+				data.clear();
+				while (data.hasRemaining()) {
+					channel.write(data);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return number of rows and columns of the puzzle
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int numPatterns() {
+		return partition.length;
+	}
+
+	/**
+	 * @param tile tile number (1..n<sup>2</sup>-1)
+	 * @return index of the pattern containing the tile
+	 */
+	public int patternOf(int tile) {
+		return patternOfTile[tile];
+	}
+
+	/**
+	 * @param tile tile number (1..n<sup>2</sup>-1)
+	 * @return index of the pattern containing the tile in the mirrored puzzle
+	 */
+	public int transposedPatternOf(int tile) {
+		return patternOfTile[transposedTile[tile]];
+	}
+
+	/**
+	 * @param pattern   pattern index
+	 * @param positions cell index of each tile (indexed by tile number)
+	 * @return number of moves of the pattern tiles needed to reach their ordered positions
+	 */
+	public int distance(int pattern, byte[] positions) {
+		return tables[pattern].get((int) Permutations.rankPartial(positions, partition[pattern], numCells)) & 0xFF;
+	}
+
+	/**
+	 * @param pattern   pattern index
+	 * @param positions cell index of each tile (indexed by tile number)
+	 * @return distance of the given pattern in the puzzle mirrored at the main diagonal
+	 */
+	public int transposedDistance(int pattern, byte[] positions) {
+		int rank = (int) Permutations.rankPartial(positions, transposedPartition[pattern], transposedCell, numCells);
+		return tables[pattern].get(rank) & 0xFF;
+	}
+
+	/**
+	 * @param positions cell index of each tile (indexed by tile number)
+	 * @return maximum of the sums of the pattern distances of the puzzle and of the mirrored puzzle
+	 */
+	public int distFromOrdered(byte[] positions) {
+		int dist = 0, transposedDist = 0;
+		for (int p = 0; p < partition.length; ++p) {
+			dist += distance(p, positions);
+			transposedDist += transposedDistance(p, positions);
+		}
+		return Math.max(dist, transposedDist);
+	}
+
+	/**
+	 * @param state     packed state of the 15-puzzle, see {@link PackedPuzzle15}
+	 * @param positions buffer of length 16 receiving the cell index of each tile
+	 * @return maximum of the sums of the pattern distances of the puzzle and of the mirrored puzzle
+	 */
+	public int distFromOrdered(long state, byte[] positions) {
+		for (byte i = 0; i < 16; ++i) {
+			positions[PackedPuzzle15.get(state, i)] = i;
+		}
+		return distFromOrdered(positions);
+	}
+
+	public int distFromOrdered(Puzzle15 puzzle) {
+		if (puzzle.size() != size) {
+			throw new IllegalArgumentException("Pattern database is for puzzle size " + size);
+		}
+		byte[] positions = new byte[numCells];
+		for (byte i = 0; i < numCells; ++i) {
+			positions[puzzle.get(i)] = i;
+		}
+		return distFromOrdered(positions);
+	}
+}
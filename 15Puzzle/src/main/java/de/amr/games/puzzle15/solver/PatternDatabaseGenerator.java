@@ -0,0 +1,190 @@
+package de.amr.games.puzzle15.solver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import de.amr.games.puzzle15.model.Dir;
+import de.amr.games.puzzle15.model.Permutations;
+import de.amr.games.puzzle15.model.Puzzle15;
+
+/**
+ * Creates the tables of an additive {@link PatternDatabase} by a backward breadth-first search from
+ * the ordered puzzle.
+ *
+ * <p>
+ * The search runs over the abstract states given by the positions of the pattern tiles and the
+ * blank. Moving a pattern tile costs 1, moving any other tile costs 0 (0-1 BFS). For each placement
+ * of the pattern tiles, the minimum over all blank positions is stored.
+ *
+ * <p>
+ * Usage: <code>PatternDatabaseGenerator (555|663|24-55554) file</code>. Generating the 6-6-3
+ * database needs about 1 GB of heap, the 5-5-5-5-4 database of the 24-puzzle about 200 MB.
+ *
+ * @author Armin Reichert
+ */
+public class PatternDatabaseGenerator {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: PatternDatabaseGenerator (555|663|24-55554) file");
+			System.exit(1);
+		}
+		int[][] partition = switch (args[0]) {
+		case "555" -> PatternDatabase.PARTITION_555;
+		case "663" -> PatternDatabase.PARTITION_663;
+		case "24-55554" -> PatternDatabase.PARTITION_24_55554;
+		default -> throw new IllegalArgumentException("Unknown partition: " + args[0]);
+		};
+		long start = System.nanoTime();
+		PatternDatabase pdb = generate(partition);
+		pdb.save(Path.of(args[1]));
+		System.out.println(String.format("Pattern database %s created in %d seconds", args[1],
+				(System.nanoTime() - start) / 1_000_000_000));
+	}
+
+	/**
+	 * @param partition partition of the tiles 1..n<sup>2</sup>-1 into patterns
+	 * @return pattern database with tables in heap memory
+	 */
+	public static PatternDatabase generate(int[][] partition) {
+		int size = PatternDatabase.sizeOf(partition);
+		ByteBuffer[] tables = new ByteBuffer[partition.length];
+		for (int p = 0; p < partition.length; ++p) {
+			tables[p] = ByteBuffer.wrap(generateTable(size, partition[p]));
+		}
+		return new PatternDatabase(partition, tables);
+	}
+
+	/**
+	 * @param pattern tiles of a 15-puzzle pattern
+	 * @return table with the pattern distance for each placement of the pattern tiles
+	 */
+	public static byte[] generateTable(int[] pattern) {
+		return generateTable(4, pattern);
+	}
+
+	/**
+	 * @param puzzleSize number of rows and columns of the puzzle
+	 * @param pattern    tiles of the pattern
+	 * @return table with the pattern distance for each placement of the pattern tiles
+	 */
+	public static byte[] generateTable(int puzzleSize, int[] pattern) {
+		final int k = pattern.length;
+		final int numCells = puzzleSize * puzzleSize;
+		final int size = PatternDatabase.tableSize(numCells, k);
+		final int[][] neighbors = neighbors(puzzleSize);
+
+		// abstract state = numCells * rank(pattern tile positions) + blank position
+		byte[] dist = new byte[Math.multiplyExact(size, numCells)];
+		Arrays.fill(dist, (byte) -1);
+
+		byte[] positions = new byte[k];
+		for (int i = 0; i < k; ++i) {
+			positions[i] = (byte) (pattern[i] - 1);
+		}
+		int start = (int) Permutations.rankPartial(positions, k, numCells) * numCells + numCells - 1;
+		dist[start] = 0;
+
+		IntList current = new IntList(), next = new IntList();
+		current.add(start);
+		int[] occupant = new int[numCells];
+		for (int d = 0; !current.isEmpty(); ++d) {
+			// the current list grows while it is processed (moves of non-pattern tiles cost nothing)
+			for (int n = 0; n < current.size(); ++n) {
+				int state = current.get(n);
+				if ((dist[state] & 0xFF) != d) {
+					continue; // reached with lower cost later
+				}
+				int rank = state / numCells, blank = state % numCells;
+				Permutations.unrankPartial(rank, k, numCells, positions);
+				Arrays.fill(occupant, -1);
+				for (int i = 0; i < k; ++i) {
+					occupant[positions[i]] = i;
+				}
+				for (int cell : neighbors[blank]) {
+					int i = occupant[cell];
+					if (i == -1) {
+						int succ = rank * numCells + cell;
+						if ((dist[succ] & 0xFF) > d) {
+							dist[succ] = (byte) d;
+							current.add(succ);
+						}
+					} else {
+						positions[i] = (byte) blank;
+						int succ = (int) Permutations.rankPartial(positions, k, numCells) * numCells + cell;
+						positions[i] = (byte) cell;
+						if ((dist[succ] & 0xFF) > d + 1) {
+							dist[succ] = (byte) (d + 1);
+							next.add(succ);
+						}
+					}
+				}
+			}
+			IntList tmp = current;
+			current = next;
+			next = tmp;
+			next.clear();
+		}
+
+		byte[] table = new byte[size];
+		for (int rank = 0; rank < size; ++rank) {
+			int min = 0xFF;
+			for (int blank = 0; blank < numCells; ++blank) {
+				min = Math.min(min, dist[rank * numCells + blank] & 0xFF);
+			}
+			table[rank] = (byte) min;
+		}
+		return table;
+	}
+
+	// neighbor cells of each cell
+	private static int[][] neighbors(int puzzleSize) {
+		int[][] neighbors = new int[puzzleSize * puzzleSize][];
+		for (int cell = 0; cell < neighbors.length; ++cell) {
+			IntList list = new IntList();
+			for (Dir dir : Dir.values()) {
+				int neighbor = Puzzle15.target(puzzleSize, cell, dir);
+				if (neighbor != -1) {
+					list.add(neighbor);
+				}
+			}
+			neighbors[cell] = list.toArray();
+		}
+		return neighbors;
+	}
+
+	private static class IntList {
+
+		private int[] data = new int[1024];
+		private int size;
+
+		void add(int value) {
+			if (size == data.length) {
+				data = Arrays.copyOf(data, 2 * size);
+			}
+			data[size++] = value;
+		}
+
+		int get(int i) {
+			return data[i];
+		}
+
+		int size() {
+			return size;
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		void clear() {
+			size = 0;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(data, size);
+		}
+	}
+}
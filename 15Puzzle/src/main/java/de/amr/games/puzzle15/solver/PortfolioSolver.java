@@ -0,0 +1,263 @@
+package de.amr.games.puzzle15.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import de.amr.games.puzzle15.model.Puzzle15;
+
+/**
+ * Solver running several solvers concurrently on the same puzzle, e.g. a greedy best-first search
+ * for a quick answer and IDA* for the optimal one.
+ *
+ * <p>
+ * Each solver runs in its own thread. The first solution meeting the requested quality is returned
+ * and all other solvers are cancelled (see {@link Solver#cancel()}). If only the optimal solution is
+ * requested, solutions of solvers not marked as optimal are kept as fallback: when all optimal
+ * solvers give up, the shortest fallback solution is returned. A solver failing with a runtime
+ * exception (e.g. because it does not support the puzzle size) is ignored, the portfolio only fails
+ * if all solvers fail. A solver finding no solution does not end the run because not all solvers
+ * are complete (e.g. {@link SolverIDDFS} has a depth limit), the other solvers continue. An unsolvable
+ * puzzle is detected before any solver is started. The solvers must be distinct instances because
+ * each one is used by its own thread.
+ *
+ * <p>
+ * As for all solvers, a cancellation only affects the current run (see {@link Solver#cancel()}).
+ *
+ * <p>
+ * The metrics are the totals of the metrics of all solvers, computed each time a value is read, so a
+ * {@link SolverMonitor} sees the progress of the running solvers.
+ *
+ * @author Armin Reichert
+ */
+public class PortfolioSolver implements Solver {
+
+	private static final long POLL_MILLIS = 10;
+
+	private record Member(Solver solver, boolean optimal) {
+	}
+
+	// sums of the counts and frontier sizes and maximum cost bound of all solvers
+	private class TotalMetrics extends SolverMetrics {
+
+		@Override
+		public long getExpandedNodes() {
+			return members.stream().mapToLong(member -> member.solver().getMetrics().getExpandedNodes()).sum();
+		}
+
+		@Override
+		public long getGeneratedNodes() {
+			return members.stream().mapToLong(member -> member.solver().getMetrics().getGeneratedNodes()).sum();
+		}
+
+		@Override
+		public long getDuplicatesPruned() {
+			return members.stream().mapToLong(member -> member.solver().getMetrics().getDuplicatesPruned()).sum();
+		}
+
+		@Override
+		public int getFrontierSize() {
+			return members.stream().mapToInt(member -> member.solver().getMetrics().getFrontierSize()).sum();
+		}
+
+		@Override
+		public int getCostBound() {
+			return members.stream().mapToInt(member -> member.solver().getMetrics().getCostBound()).max().orElse(0);
+		}
+	}
+
+	private record Result(Member member, Optional<List<Node>> solution, SolverGivingUpException givingUp,
+			RuntimeException failure) {
+	}
+
+	private final boolean optimalRequired;
+	private final List<Member> members = new ArrayList<>();
+	private final SolverMetrics metrics = new TotalMetrics();
+	private volatile boolean cancelled;
+	private volatile Solver winner;
+	private long startTime; // nanoseconds
+	private volatile long runId;
+
+	/**
+	 * @param optimalRequired if only a solution of a solver marked as optimal is accepted
+	 */
+	public PortfolioSolver(boolean optimalRequired) {
+		this.optimalRequired = optimalRequired;
+	}
+
+	/**
+	 * Adds a solver to this portfolio.
+	 *
+	 * @param solver  solver
+	 * @param optimal if the solver always finds an optimal solution
+	 * @return this portfolio
+	 */
+	public PortfolioSolver add(Solver solver, boolean optimal) {
+		members.add(new Member(solver, optimal));
+		return this;
+	}
+
+	/**
+	 * @return solver whose solution has been returned by the last run or <code>null</code>
+	 */
+	public Solver getWinner() {
+		return winner;
+	}
+
+	@Override
+	public Optional<List<Node>> solve(Puzzle15 puzzle) throws SolverGivingUpException {
+		if (members.isEmpty()) {
+			throw new IllegalStateException("No solvers in portfolio");
+		}
+		startTime = System.nanoTime();
+		runId = AbstractSolver.nextRunId();
+		winner = null;
+		cancelled = false;
+		if (!puzzle.isSolvable()) {
+			return Optional.empty();
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(members.size(), runnable -> {
+			Thread thread = new Thread(runnable, "PortfolioSolver");
+			thread.setDaemon(true);
+			return thread;
+		});
+		CompletionService<Result> completion = new ExecutorCompletionService<>(executor);
+		List<Future<Result>> futures = new ArrayList<>();
+		try {
+			for (Member member : members) {
+				futures.add(completion.submit(() -> {
+					try {
+						return new Result(member, member.solver().solve(puzzle), null, null);
+					} catch (SolverGivingUpException x) {
+						return new Result(member, Optional.empty(), x, null);
+					} catch (RuntimeException x) {
+						return new Result(member, Optional.empty(), null, x);
+					}
+				}));
+			}
+			return awaitResult(completion);
+		} finally {
+			stopAll(futures);
+			executor.shutdown();
+		}
+	}
+
+	private Optional<List<Node>> awaitResult(CompletionService<Result> completion) throws SolverGivingUpException {
+		Result fallback = null;
+		SolverGivingUpException givingUp = null;
+		RuntimeException failure = null;
+		int numFailed = 0;
+		for (int pending = members.size(); pending > 0;) {
+			Result result = poll(completion);
+			if (result == null) {
+				if (cancelled) {
+					members.forEach(member -> member.solver().cancel());
+				}
+				continue;
+			}
+			--pending;
+			if (result.failure() != null) {
+				// e.g. puzzle size not supported by this solver, the other solvers continue
+				++numFailed;
+				if (failure == null) {
+					failure = result.failure();
+				}
+			} else if (result.solution().isPresent()) {
+				if (result.member().optimal() || !optimalRequired) {
+					winner = result.member().solver();
+					return result.solution();
+				}
+				if (fallback == null || result.solution().get().size() < fallback.solution().get().size()) {
+					fallback = result;
+				}
+			} else if (givingUp == null && result.givingUp() != null) {
+				givingUp = result.givingUp();
+			}
+		}
+		if (cancelled) {
+			throw new SolverCancelledException(String.format("Cancelled after %d millseconds", getRunningTime()));
+		}
+		if (fallback != null) {
+			winner = fallback.member().solver();
+			return fallback.solution();
+		}
+		if (givingUp != null) {
+			throw givingUp;
+		}
+		if (numFailed == members.size()) {
+			throw new IllegalStateException("All solvers failed", failure);
+		}
+		return Optional.empty();
+	}
+
+	private Result poll(CompletionService<Result> completion) {
+		try {
+			Future<Result> future = completion.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+			return future != null ? future.get() : null;
+		} catch (InterruptedException x) {
+			Thread.currentThread().interrupt();
+			cancelled = true;
+			return null;
+		} catch (ExecutionException x) {
+			throw new IllegalStateException("Solver failed", x.getCause());
+		}
+	}
+
+	/*
+	 * Cancels all solvers until they have stopped. Cancellation is repeated because a solver ignores
+	 * a cancellation made before its run has started.
+	 */
+	private void stopAll(List<Future<Result>> futures) {
+		while (futures.stream().anyMatch(future -> !future.isDone())) {
+			for (int i = 0; i < futures.size(); ++i) {
+				if (!futures.get(i).isDone()) {
+					members.get(i).solver().cancel();
+				}
+			}
+			try {
+				Thread.sleep(POLL_MILLIS);
+			} catch (InterruptedException x) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void cancel() {
+		cancelled = true;
+		members.forEach(member -> member.solver().cancel());
+	}
+
+	@Override
+	public int getMaxFrontierSize() {
+		return members.stream().mapToInt(member -> member.solver().getMaxFrontierSize()).sum();
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		return members.stream().mapToLong(member -> member.solver().getMemoryUsage()).sum();
+	}
+
+	@Override
+	public long getRunningTime() {
+		return (System.nanoTime() - startTime) / 1_000_000;
+	}
+
+	@Override
+	public long getRunId() {
+		return runId;
+	}
+
+	@Override
+	public SolverMetrics getMetrics() {
+		return metrics;
+	}
+}
@@ -0,0 +1,252 @@
+package de.amr.games.puzzle15.solver;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import de.amr.games.puzzle15.model.Dir;
+import de.amr.games.puzzle15.model.Puzzle15;
+
+/**
+ * Cache of puzzle solutions with least-recently-used eviction, see {@link CachingSolver}.
+ *
+ * <p>
+ * For each solution, all its suffixes are stored too: every puzzle on the solution path maps to the
+ * remaining moves. The cache is bounded by a memory budget. The memory used by an entry is estimated
+ * from the number of cells and moves. When the budget is exceeded, the least recently used entries
+ * are evicted.
+ *
+ * <p>
+ * Optionally, solutions of the 15-puzzle are also appended to a text file with one line per
+ * solution: the packed start state (see {@link Puzzle15#packed()}) in hex and the moves as a string
+ * of the letters U, D, L, R. The file is read when the cache is created, so solutions survive a
+ * restart. Solutions of other puzzle sizes are only kept in memory.
+ *
+ * <p>
+ * All methods are thread-safe.
+ *
+ * @author Armin Reichert
+ */
+public class SolutionCache {
+
+	private static final Dir[] DIRS = Dir.values();
+
+	// estimated size of map entry, key object with cell array and value array without content
+	private static final int ENTRY_OVERHEAD = 128;
+
+	private final long memoryBudget;
+	private final Path store;
+	private final LinkedHashMap<Puzzle15, byte[]> solutions = new LinkedHashMap<>(1024, 0.75f, true);
+	private BufferedWriter storeWriter;
+	private long usedBytes;
+	private long hits, misses;
+
+	/**
+	 * Creates a memory-only cache.
+	 *
+	 * @param memoryBudget maximum estimated memory in bytes used by the cache entries
+	 */
+	public SolutionCache(long memoryBudget) {
+		this(memoryBudget, null);
+	}
+
+	/**
+	 * Creates a cache backed by the given file. Existing solutions in the file are loaded.
+	 *
+	 * @param memoryBudget maximum estimated memory in bytes used by the cache entries
+	 * @param store        file storing 15-puzzle solutions or <code>null</code>
+	 * @throws UncheckedIOException if the file exists but cannot be read
+	 */
+	public SolutionCache(long memoryBudget, Path store) {
+		if (memoryBudget <= 0) {
+			throw new IllegalArgumentException("Memory budget must be positive");
+		}
+		this.memoryBudget = memoryBudget;
+		this.store = store;
+		if (store != null && Files.exists(store)) {
+			load();
+		}
+	}
+
+	/**
+	 * @param puzzle puzzle
+	 * @return moves of a cached solution of the puzzle or empty if no solution is cached
+	 */
+	public synchronized Optional<List<Dir>> get(Puzzle15 puzzle) {
+		byte[] moves = solutions.get(puzzle);
+		if (moves == null) {
+			++misses;
+			return Optional.empty();
+		}
+		++hits;
+		List<Dir> result = new ArrayList<>(moves.length);
+		for (byte move : moves) {
+			result.add(DIRS[move]);
+		}
+		return Optional.of(result);
+	}
+
+	/**
+	 * Stores the solution and all its suffixes.
+	 *
+	 * @param solution solution path starting with the node for the start puzzle
+	 */
+	public void put(List<Node> solution) {
+		if (solution.isEmpty()) {
+			return;
+		}
+		byte[] moves = new byte[solution.size() - 1];
+		for (int i = 1; i < solution.size(); ++i) {
+			moves[i - 1] = (byte) solution.get(i).getDir().ordinal();
+		}
+		Puzzle15 start = solution.get(0).getPuzzle();
+		synchronized (this) {
+			if (solutions.containsKey(start)) {
+				return;
+			}
+			putSuffixes(solution.stream().map(Node::getPuzzle).toList(), moves);
+			if (store != null && start.size() == 4) {
+				append(start, moves);
+			}
+		}
+	}
+
+	/**
+	 * @return number of cached puzzles
+	 */
+	public synchronized int size() {
+		return solutions.size();
+	}
+
+	/**
+	 * @return estimated memory in bytes used by the cache entries
+	 */
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Removes all solutions from memory. The file store is not changed.
+	 */
+	public synchronized void clear() {
+		solutions.clear();
+		usedBytes = 0;
+	}
+
+	/**
+	 * Closes the file store.
+	 *
+	 * @throws UncheckedIOException if the file cannot be closed
+	 */
+	public synchronized void close() {
+		if (storeWriter != null) {
+			try {
+				storeWriter.close();
+			} catch (IOException x) {
+				throw new UncheckedIOException(x);
+			}
+			storeWriter = null;
+		}
+	}
+
+	private static long entrySize(Puzzle15 puzzle, byte[] moves) {
+		return ENTRY_OVERHEAD + puzzle.numCells() + moves.length;
+	}
+
+	// path.get(i) is solved by moves[i..]
+	private void putSuffixes(List<Puzzle15> path, byte[] moves) {
+		for (int i = 0; i < path.size(); ++i) {
+			byte[] suffix = i == 0 ? moves : Arrays.copyOfRange(moves, i, moves.length);
+			byte[] old = solutions.put(path.get(i), suffix);
+			if (old != null) {
+				usedBytes -= entrySize(path.get(i), old);
+			}
+			usedBytes += entrySize(path.get(i), suffix);
+		}
+		evict();
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<Puzzle15, byte[]>> it = solutions.entrySet().iterator();
+		while (usedBytes > memoryBudget && it.hasNext()) {
+			Map.Entry<Puzzle15, byte[]> eldest = it.next();
+			usedBytes -= entrySize(eldest.getKey(), eldest.getValue());
+			it.remove();
+		}
+	}
+
+	private void load() {
+		try (BufferedReader in = Files.newBufferedReader(store, StandardCharsets.US_ASCII)) {
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				String[] fields = line.trim().split(" ");
+				if (fields.length == 0 || fields[0].isEmpty()) {
+					continue;
+				}
+				Puzzle15 puzzle = Puzzle15.ofPacked(Long.parseUnsignedLong(fields[0], 16));
+				String text = fields.length > 1 ? fields[1] : "";
+				byte[] moves = new byte[text.length()];
+				List<Puzzle15> path = new ArrayList<>(moves.length + 1);
+				path.add(puzzle);
+				for (int i = 0; i < moves.length; ++i) {
+					Dir dir = dirOf(text.charAt(i));
+					moves[i] = (byte) dir.ordinal();
+					puzzle = puzzle.move(dir);
+					path.add(puzzle);
+				}
+				putSuffixes(path, moves);
+			}
+		} catch (IOException x) {
+			throw new UncheckedIOException(x);
+		} catch (RuntimeException x) {
+			throw new IllegalStateException("Invalid solution cache file: " + store, x);
+		}
+	}
+
+	private void append(Puzzle15 start, byte[] moves) {
+		StringBuilder line = new StringBuilder(Long.toHexString(start.packed())).append(' ');
+		for (byte move : moves) {
+			line.append(DIRS[move].name().charAt(0));
+		}
+		try {
+			if (storeWriter == null) {
+				storeWriter = Files.newBufferedWriter(store, StandardCharsets.US_ASCII, StandardOpenOption.CREATE,
+						StandardOpenOption.APPEND);
+			}
+			storeWriter.write(line.toString());
+			storeWriter.newLine();
+			storeWriter.flush();
+		} catch (IOException x) {
+			throw new UncheckedIOException(x);
+		}
+	}
+
+	private static Dir dirOf(char c) {
+		return switch (c) {
+		case 'U' -> Dir.UP;
+		case 'D' -> Dir.DOWN;
+		case 'L' -> Dir.LEFT;
+		case 'R' -> Dir.RIGHT;
+		default -> throw new IllegalArgumentException("Illegal move: " + c);
+		};
+	}
+}
@@ -16,6 +16,19 @@ public interface Solver {
 		return solver -> solver.getRunningTime() > 1000 * seconds;
 	}
 
+	static Predicate<Solver> runtimeMillisMax(long millis) {
+		return solver -> solver.getRunningTime() > millis;
+	}
+
+	/**
+	 * @param bytes memory budget in bytes
+	 * @return condition holding when the estimated memory usage of the solver exceeds the budget or
+	 *         the heap is nearly exhausted (see {@link MemoryBudget})
+	 */
+	static Predicate<Solver> memoryMax(long bytes) {
+		return new MemoryBudget(bytes);
+	}
+
 	/**
 	 * Runs this solver for the given puzzle.
 	 * 
@@ -26,7 +39,35 @@ public interface Solver {
 	 */
 	Optional<List<Node>> solve(Puzzle15 puzzle) throws SolverGivingUpException;
 
+	/**
+	 * Requests the current run to stop. The run ends with a {@link SolverCancelledException} the next
+	 * time the solver checks its giving-up condition. May be called from any thread.
+	 * 
+	 * <p>
+	 * A cancellation only affects the run in progress: each run starts uncancelled, so a request made
+	 * while no run is active is ignored and never cancels a later run. A caller who may cancel before
+	 * the run has actually started must repeat the request until the run has ended.
+	 */
+	void cancel();
+
 	int getMaxFrontierSize();
 
+	/**
+	 * @return estimated number of heap bytes used by the data structures of the current or last run,
+	 *         may be read from other threads while the solver runs
+	 */
+	long getMemoryUsage();
+
 	long getRunningTime();
+
+	/**
+	 * @return identity of the current or last run, different for each run of any solver in this JVM, 0
+	 *         before the first run. May be read from other threads while the solver runs.
+	 */
+	long getRunId();
+
+	/**
+	 * @return metrics of the current or last run, may be read from other threads while the solver runs
+	 */
+	SolverMetrics getMetrics();
 }
@@ -1,14 +1,7 @@
 package de.amr.games.puzzle15.solver;
 
-import static java.util.Comparator.comparingInt;
-
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.PriorityQueue;
-import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -19,21 +12,32 @@ import de.amr.games.puzzle15.model.Puzzle15;
  * A*-based solver for 15-puzzle. Finds the optimal solution but needs much memory and runs rather
  * slowly.
  * 
+ * <p>
+ * Unlike {@link SolverAStarPacked}, takes any heuristic working on {@link Node} objects (with values
+ * up to {@link NodeArena#MAX_VALUE}) and solves puzzles of all sizes. The open and closed nodes are
+ * stored in a {@link NodeArena} and found by their state (see {@link NodeStates}), the frontier is a {@link BucketQueue} indexed by the f-value.
+ * {@link Node} objects are only created for the node being expanded and its successors. The arena
+ * keeps the state of incremental heuristics, so the successors of an expanded node are scored by
+ * the change caused by the moved tile. Closed nodes are never reopened.
+ * 
  * @author Armin Reichert
  */
 public class SolverAStar extends AbstractSolver {
 
+	private static final int MAX_COST = 255;
+	private static final int CLOSED = 1;
+
 	private final Function<Node, Integer> fnHeuristicNodeCost;
-	private final PriorityQueue<Node> frontier;
-	private final Map<Puzzle15, Node> openList;
-	private final Set<Puzzle15> closedList;
+	private final NodeStates nodeIndex;
+	private final BucketQueue frontier;
+	private final NodeArena nodes;
 
 	public SolverAStar(Function<Node, Integer> fnHeuristicNodeCost, Predicate<Solver> givingUpCondition) {
 		super(givingUpCondition);
 		this.fnHeuristicNodeCost = fnHeuristicNodeCost;
-		frontier = new PriorityQueue<>(1000, comparingInt(Node::getScore));
-		openList = new HashMap<>();
-		closedList = new HashSet<>();
+		nodeIndex = new NodeStates(1 << 12);
+		frontier = new BucketQueue(MAX_COST, 1 << 12);
+		nodes = new NodeArena(1 << 12, true);
 	}
 
 	@Override
@@ -41,9 +45,18 @@ public class SolverAStar extends AbstractSolver {
 		return frontier.size();
 	}
 
-	protected void expandFrontier(Node node) {
-		frontier.add(node);
-		openList.put(node.getPuzzle(), node);
+	@Override
+	public long getMemoryUsage() {
+		return nodes.memoryUsage() + nodeIndex.memoryUsage() + frontier.memoryUsage();
+	}
+
+	private void addNode(Node node, int parent) {
+		long state = nodeIndex.state(node.getPuzzle());
+		int dir = node.getDir() != null ? node.getDir().ordinal() : NodeArena.NO_DIR;
+		int index = nodes.add(state, parent, dir, node.getMovesSoFar(), fnHeuristicNodeCost.apply(node));
+		nodes.setHeuristicState(index, node.getHeuristic(), node.getHeuristicState(node.getHeuristic()));
+		nodeIndex.put(node.getPuzzle(), index);
+		frontier.add(index, nodes.f(index));
 		updateMaxFrontierSize();
 	}
 
@@ -52,45 +65,47 @@ public class SolverAStar extends AbstractSolver {
 		startClock();
 		resetMaxFrontierSize();
 
+		nodeIndex.clear(puzzle.size());
 		frontier.clear();
-		openList.clear();
-		closedList.clear();
+		nodes.clear();
 
-		expandFrontier(new Node(puzzle));
+		addNode(new Node(puzzle), NodeArena.NO_PARENT);
 
 		while (!frontier.isEmpty()) {
 			maybeGiveUp();
-			Node current = frontier.poll();
-			if (current.getPuzzle().isOrdered()) {
-				return Optional.of(solution(current));
+			int current = frontier.poll();
+			nodes.setFlags(current, CLOSED);
+			if (nodeIndex.isGoal(current, nodes.state(current))) {
+				return Optional.of(solution(puzzle, nodes.movesTo(current)));
 			}
-			openList.remove(current.getPuzzle());
-			closedList.add(current.getPuzzle());
-			Iterable<Dir> possibleDirs = current.getPuzzle().possibleMoveDirs()::iterator;
+			countExpandedNode();
+			updateCostBound(nodes.f(current));
+			Node currentNode = new Node(nodeIndex.puzzle(current, nodes.state(current)));
+			currentNode.setMovesSoFar(nodes.g(current));
+			// lets incremental heuristics update the successors
+			currentNode.setHeuristicState(nodes.heuristic(current), nodes.heuristicState(current));
+			int numMoves = nodes.g(current) + 1;
+			Iterable<Dir> possibleDirs = currentNode.getPuzzle().possibleMoveDirs()::iterator;
 			for (Dir dir : possibleDirs) {
-				Puzzle15 nextPuzzle = current.getPuzzle().move(dir);
-				if (closedList.contains(nextPuzzle)) {
-					continue;
-				}
-				int numMoves = current.getMovesSoFar() + 1;
-				boolean revisited = openList.containsKey(nextPuzzle);
-				if (revisited && numMoves >= openList.get(nextPuzzle).getMovesSoFar()) {
-					continue;
-				}
-				Node next = new Node(nextPuzzle);
-				next.setParent(current);
-				next.setDir(dir);
-				next.setMovesSoFar(numMoves);
-				next.setScore(numMoves + fnHeuristicNodeCost.apply(next));
-				if (revisited) {
-					// "decrease-key"
-					frontier.remove(next); // removes the existing node from the queue!
-					frontier.add(next);
+				Puzzle15 nextPuzzle = currentNode.getPuzzle().move(dir);
+				countGeneratedNode();
+				int next = nodeIndex.get(nextPuzzle);
+				if (next == LongIntHashMap.NO_VALUE) {
+					Node nextNode = new Node(nextPuzzle);
+					nextNode.setParent(currentNode);
+					nextNode.setDir(dir);
+					nextNode.setMovesSoFar(numMoves);
+					addNode(nextNode, current);
+				} else if (nodes.hasFlag(next, CLOSED) || numMoves >= nodes.g(next)) {
+					countDuplicate();
 				} else {
-					expandFrontier(next);
+					// decrease-key
+					int oldCost = nodes.f(next);
+					nodes.setPath(next, current, dir.ordinal(), numMoves);
+					frontier.changePriority(next, oldCost, nodes.f(next));
 				}
 			}
 		}
 		return Optional.empty();
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,136 @@
+package de.amr.games.puzzle15.solver;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import de.amr.games.puzzle15.model.Dir;
+import de.amr.games.puzzle15.model.PackedPuzzle15;
+import de.amr.games.puzzle15.model.Puzzle15;
+
+/**
+ * A*-based solver for 15-puzzle working on packed states (see {@link PackedPuzzle15}) instead of
+ * {@link Node} objects.
+ *
+ * <p>
+ * Nodes are stored in a {@link NodeArena} and identified by their index. Open and closed nodes
+ * are found by a {@link LongIntHashMap} from packed state to node index, the frontier is a
+ * {@link BucketQueue} indexed by the f-value with O(1) decrease-key. Because the heuristics used
+ * (Manhattan distance, additive pattern database) are consistent, closed nodes are never reopened.
+ *
+ * @author Armin Reichert
+ */
+public class SolverAStarPacked extends AbstractSolver {
+
+	private static final Dir[] DIRS = Dir.values();
+	private static final int MAX_COST = 255;
+	private static final int CLOSED = 1;
+
+	private final PatternDatabase pdb;
+	private final LongIntHashMap nodeIndex;
+	private final BucketQueue frontier;
+	private final NodeArena nodes;
+	private final byte[] positions = new byte[16];
+
+	/**
+	 * Creates an A* solver using the Manhattan distance as heuristic.
+	 *
+	 * @param givingUpCondition condition for giving up
+	 */
+	public SolverAStarPacked(Predicate<Solver> givingUpCondition) {
+		this(null, givingUpCondition);
+	}
+
+	/**
+	 * Creates an A* solver using the given pattern database as heuristic.
+	 *
+	 * @param pdb               additive pattern database or <code>null</code> for Manhattan distance
+	 * @param givingUpCondition condition for giving up
+	 */
+	public SolverAStarPacked(PatternDatabase pdb, Predicate<Solver> givingUpCondition) {
+		super(givingUpCondition);
+		this.pdb = pdb;
+		nodeIndex = new LongIntHashMap(1 << 16);
+		frontier = new BucketQueue(MAX_COST, 1 << 16);
+		nodes = new NodeArena(1 << 16);
+	}
+
+	private int addNode(long nodeState, int nodeParent, int nodeDir, int g, int h) {
+		int node = nodes.add(nodeState, nodeParent, nodeDir, g, h);
+		nodeIndex.put(nodeState, node);
+		frontier.add(node, g + h);
+		updateMaxFrontierSize();
+		return node;
+	}
+
+	@Override
+	protected int getFrontierSize() {
+		return frontier.size();
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		return nodes.memoryUsage() + nodeIndex.memoryUsage() + frontier.memoryUsage();
+	}
+
+	@Override
+	public Optional<List<Node>> solve(Puzzle15 puzzle) throws SolverGivingUpException {
+		requireSize4(puzzle);
+		startClock();
+		resetMaxFrontierSize();
+		nodeIndex.clear();
+		frontier.clear();
+		nodes.clear();
+
+		long start = puzzle.packed();
+		int h = pdb != null ? pdb.distFromOrdered(start, positions) : Heuristics.manhattanDistFromOrdered(puzzle);
+		addNode(start, NodeArena.NO_PARENT, NodeArena.NO_DIR, 0, h);
+
+		while (!frontier.isEmpty()) {
+			int current = frontier.poll();
+			nodes.setFlags(current, CLOSED);
+			long currentState = nodes.state(current);
+			if (PackedPuzzle15.isOrdered(currentState)) {
+				return Optional.of(solution(puzzle, nodes.movesTo(current)));
+			}
+			if ((countExpandedNode() & 0x3FF) == 0) {
+				maybeGiveUp();
+			}
+			updateCostBound(nodes.f(current));
+			int blank = PackedPuzzle15.blank(currentState);
+			int g = nodes.g(current) + 1;
+			int lastDir = nodes.dir(current);
+			for (Dir d : DIRS) {
+				if (lastDir != NodeArena.NO_DIR && d == DIRS[lastDir].opposite()) {
+					continue;
+				}
+				int target = PackedPuzzle15.target(blank, d);
+				if (target == -1) {
+					continue;
+				}
+				long nextState = PackedPuzzle15.move(currentState, blank, target);
+				countGeneratedNode();
+				int next = nodeIndex.get(nextState);
+				if (next == LongIntHashMap.NO_VALUE) {
+					int hNext;
+					if (pdb != null) {
+						hNext = pdb.distFromOrdered(nextState, positions);
+					} else {
+						int number = PackedPuzzle15.get(currentState, target);
+						hNext = nodes.h(current) - Heuristics.manhattanDist(number, target)
+								+ Heuristics.manhattanDist(number, blank);
+					}
+					addNode(nextState, current, d.ordinal(), g, hNext);
+				} else if (nodes.hasFlag(next, CLOSED) || g >= nodes.g(next)) {
+					countDuplicate();
+				} else {
+					// decrease-key
+					int oldCost = nodes.f(next);
+					nodes.setPath(next, current, d.ordinal(), g);
+					frontier.changePriority(next, oldCost, nodes.f(next));
+				}
+			}
+		}
+		return Optional.empty();
+	}
+}
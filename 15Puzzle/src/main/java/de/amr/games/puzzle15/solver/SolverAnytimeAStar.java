@@ -0,0 +1,285 @@
+package de.amr.games.puzzle15.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import de.amr.games.puzzle15.model.Dir;
+import de.amr.games.puzzle15.model.PackedPuzzle15;
+import de.amr.games.puzzle15.model.Puzzle15;
+
+/**
+ * Anytime repairing A* (ARA*) solver for 15-puzzle working on packed states (see
+ * {@link PackedPuzzle15}).
+ *
+ * <p>
+ * Runs weighted A* with priority g + w&middot;h, starting with a high weight w which quickly finds a
+ * (suboptimal) solution. Then the weight is lowered step by step down to 1 and the search is
+ * continued with the nodes found so far: the open nodes are re-sorted for the new weight, and closed
+ * nodes whose path cost has been improved in the last iteration are reopened. Each iteration stops
+ * as soon as no open node can lead to a cheaper solution with the current weight. Nodes which cannot
+ * lead to a solution cheaper than the best one found so far are pruned.
+ *
+ * <p>
+ * Each improved solution is reported to the listeners together with the weight and a bound on its
+ * suboptimality (solution cost divided by a lower bound of the optimal cost). When the giving-up
+ * condition holds or the solver is cancelled, the best solution found so far is returned. So with a
+ * giving-up condition like {@link Solver#runtimeMillisMax(long)} the solver returns a usable solution
+ * within the time budget and a better one if time allows.
+ *
+ * <p>
+ * The weights are rounded to multiples of 1/4 to keep the priorities integer.
+ *
+ * @author Armin Reichert
+ */
+public class SolverAnytimeAStar extends AbstractSolver {
+
+	/**
+	 * Listener for improved solutions.
+	 */
+	@FunctionalInterface
+	public interface ImprovementListener {
+
+		/**
+		 * Called when a better solution has been found.
+		 *
+		 * @param solution           solution path starting with the node for the start puzzle
+		 * @param weight             heuristic weight used in the iteration that found the solution
+		 * @param suboptimalityBound the solution is at most this factor longer than the optimal one
+		 */
+		void improved(List<Node> solution, double weight, double suboptimalityBound);
+	}
+
+	private static final Dir[] DIRS = Dir.values();
+	private static final int WEIGHT_SCALE = 4;
+	private static final int MAX_MOVES = Short.MAX_VALUE;
+
+	// node flags
+	private static final byte OPEN = 1, CLOSED = 2, INCONSISTENT = 4;
+
+	private final PatternDatabase pdb;
+	private final int initialWeight; // in units of 1/WEIGHT_SCALE
+	private final int weightDecrement; // in units of 1/WEIGHT_SCALE
+	private final List<ImprovementListener> listeners = new ArrayList<>();
+	private final LongIntHashMap nodeIndex;
+	private final BucketQueue frontier;
+	private final NodeArena nodes;
+	private final byte[] positions = new byte[16];
+
+	private int weight; // in units of 1/WEIGHT_SCALE
+	private int goal; // node index of ordered state or -1
+
+	/**
+	 * Creates an anytime A* solver using the Manhattan distance, starting with weight 3 and lowering it
+	 * by 0.5 in each iteration.
+	 *
+	 * @param givingUpCondition condition for giving up
+	 */
+	public SolverAnytimeAStar(Predicate<Solver> givingUpCondition) {
+		this(null, 3, 0.5, givingUpCondition);
+	}
+
+	/**
+	 * @param pdb               additive pattern database or <code>null</code> for Manhattan distance
+	 * @param initialWeight     heuristic weight of the first iteration (at least 1)
+	 * @param weightDecrement   amount by which the weight is lowered after each iteration (at least
+	 *                          0.25)
+	 * @param givingUpCondition condition for giving up
+	 */
+	public SolverAnytimeAStar(PatternDatabase pdb, double initialWeight, double weightDecrement,
+			Predicate<Solver> givingUpCondition) {
+		super(givingUpCondition);
+		this.pdb = pdb;
+		this.initialWeight = (int) Math.round(initialWeight * WEIGHT_SCALE);
+		this.weightDecrement = (int) Math.round(weightDecrement * WEIGHT_SCALE);
+		if (this.initialWeight < WEIGHT_SCALE) {
+			throw new IllegalArgumentException("Initial weight must be at least 1");
+		}
+		if (this.weightDecrement < 1) {
+			throw new IllegalArgumentException("Weight decrement must be at least " + 1.0 / WEIGHT_SCALE);
+		}
+		nodeIndex = new LongIntHashMap(1 << 16);
+		frontier = new BucketQueue(WEIGHT_SCALE * 256, 1 << 16);
+		nodes = new NodeArena(1 << 16);
+	}
+
+	public void addListener(ImprovementListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(ImprovementListener listener) {
+		listeners.remove(listener);
+	}
+
+	private int addNode(long nodeState, int nodeParent, int nodeDir, int g, int h) {
+		int node = nodes.add(nodeState, nodeParent, nodeDir, g, h);
+		nodes.setFlags(node, OPEN);
+		nodeIndex.put(nodeState, node);
+		frontier.add(node, key(node));
+		updateMaxFrontierSize();
+		return node;
+	}
+
+	// priority of node for current weight
+	private int key(int node) {
+		return WEIGHT_SCALE * nodes.g(node) + weight * nodes.h(node);
+	}
+
+	private int solutionCost() {
+		return goal != -1 ? nodes.g(goal) : Integer.MAX_VALUE;
+	}
+
+	@Override
+	protected int getFrontierSize() {
+		return frontier.size();
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		return nodes.memoryUsage() + nodeIndex.memoryUsage() + frontier.memoryUsage();
+	}
+
+	@Override
+	public Optional<List<Node>> solve(Puzzle15 puzzle) throws SolverGivingUpException {
+		requireSize4(puzzle);
+		startClock();
+		resetMaxFrontierSize();
+		nodeIndex.clear();
+		frontier.clear();
+		nodes.clear();
+		goal = -1;
+		weight = initialWeight;
+
+		long start = puzzle.packed();
+		int h = pdb != null ? pdb.distFromOrdered(start, positions) : Heuristics.manhattanDistFromOrdered(puzzle);
+		addNode(start, NodeArena.NO_PARENT, NodeArena.NO_DIR, 0, h);
+		if (PackedPuzzle15.isOrdered(start)) {
+			goal = 0;
+		}
+
+		try {
+			int reportedCost = Integer.MAX_VALUE;
+			while (true) {
+				improvePath();
+				double bound = suboptimalityBound();
+				if (solutionCost() < reportedCost) {
+					reportedCost = solutionCost();
+					updateCostBound(reportedCost);
+					List<Node> solution = solution(puzzle, nodes.movesTo(goal));
+					for (ImprovementListener listener : listeners) {
+						listener.improved(solution, (double) weight / WEIGHT_SCALE, bound);
+					}
+				}
+				if (weight == WEIGHT_SCALE || bound <= 1) {
+					break;
+				}
+				weight = Math.max(WEIGHT_SCALE, weight - weightDecrement);
+				reopen();
+			}
+		} catch (SolverGivingUpException x) {
+			if (goal == -1) {
+				throw x;
+			}
+		}
+		return goal != -1 ? Optional.of(solution(puzzle, nodes.movesTo(goal))) : Optional.empty();
+	}
+
+	/*
+	 * Expands nodes until the open node with minimum priority cannot improve the solution.
+	 */
+	private void improvePath() throws SolverGivingUpException {
+		while (!frontier.isEmpty() && frontier.minPriority() < WEIGHT_SCALE * (long) solutionCost()) {
+			int current = frontier.poll();
+			nodes.setFlags(current, nodes.flags(current) & ~OPEN | CLOSED);
+			if ((countExpandedNode() & 0x3FF) == 0) {
+				maybeGiveUp();
+			}
+			long currentState = nodes.state(current);
+			int blank = PackedPuzzle15.blank(currentState);
+			int g = nodes.g(current) + 1;
+			if (g > MAX_MOVES) {
+				continue;
+			}
+			int lastDir = nodes.dir(current);
+			for (Dir d : DIRS) {
+				if (lastDir != NodeArena.NO_DIR && d == DIRS[lastDir].opposite()) {
+					continue;
+				}
+				int target = PackedPuzzle15.target(blank, d);
+				if (target == -1) {
+					continue;
+				}
+				long nextState = PackedPuzzle15.move(currentState, blank, target);
+				countGeneratedNode();
+				int next = nodeIndex.get(nextState);
+				if (next == LongIntHashMap.NO_VALUE) {
+					int hNext;
+					if (pdb != null) {
+						hNext = pdb.distFromOrdered(nextState, positions);
+					} else {
+						int number = PackedPuzzle15.get(currentState, target);
+						hNext = nodes.h(current) - Heuristics.manhattanDist(number, target)
+								+ Heuristics.manhattanDist(number, blank);
+					}
+					if (g + hNext < solutionCost()) {
+						next = addNode(nextState, current, d.ordinal(), g, hNext);
+						if (hNext == 0 && PackedPuzzle15.isOrdered(nextState)) {
+							goal = next;
+						}
+					}
+				} else if (g >= nodes.g(next) || g + nodes.h(next) >= solutionCost()) {
+					countDuplicate();
+				} else {
+					int oldKey = key(next);
+					nodes.setPath(next, current, d.ordinal(), g);
+					if (nodes.hasFlag(next, OPEN)) {
+						frontier.changePriority(next, oldKey, key(next));
+					} else if (nodes.hasFlag(next, CLOSED)) {
+						// reopened in next iteration
+						nodes.setFlags(next, nodes.flags(next) | INCONSISTENT);
+					} else {
+						// closed in an earlier iteration
+						nodes.setFlags(next, OPEN);
+						frontier.add(next, key(next));
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * Bound of the factor by which the current solution may be longer than the optimal one: the
+	 * solution cost divided by the minimum f-value of all open and inconsistent nodes.
+	 */
+	private double suboptimalityBound() {
+		if (goal == -1) {
+			return Double.POSITIVE_INFINITY;
+		}
+		int cost = solutionCost();
+		int minF = cost;
+		for (int node = 0; node < nodes.size(); ++node) {
+			if (nodes.hasFlag(node, OPEN | INCONSISTENT)) {
+				minF = Math.min(minF, nodes.f(node));
+			}
+		}
+		return minF == 0 ? 1 : (double) cost / minF;
+	}
+
+	/*
+	 * Prepares the next iteration: inconsistent nodes become open, the frontier is rebuilt for the
+	 * current weight and all nodes are unclosed.
+	 */
+	private void reopen() {
+		frontier.clear();
+		for (int node = 0; node < nodes.size(); ++node) {
+			if (nodes.hasFlag(node, OPEN | INCONSISTENT)) {
+				nodes.setFlags(node, OPEN);
+				frontier.add(node, key(node));
+			} else {
+				nodes.setFlags(node, 0);
+			}
+		}
+		updateMaxFrontierSize();
+	}
+}
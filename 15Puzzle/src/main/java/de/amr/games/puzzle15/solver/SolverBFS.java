@@ -1,59 +1,137 @@
 package de.amr.games.puzzle15.solver;
 
-import java.util.ArrayDeque;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.Queue;
-import java.util.Set;
 import java.util.function.Predicate;
 
+import de.amr.games.puzzle15.model.Dir;
 import de.amr.games.puzzle15.model.Puzzle15;
 
 /**
  * Breadth-First Search solver for 15-puzzle. Rather useless because of memory consumption.
  * 
+ * <p>
+ * The visited nodes are stored in a {@link NodeArena} and found by their state (see
+ * {@link NodeStates}), puzzles of all sizes can be solved.
+ * {@link Node} objects are only created for the node being expanded and its successors. If the nodes
+ * are scored, the arena keeps the state of incremental heuristics, so the successors are scored by
+ * the change caused by the moved tile. Because the nodes are added to the arena in the order they are
+ * visited, the frontier is the range of nodes not expanded yet.
+ * 
  * @author Armin Reichert
  */
 public class SolverBFS extends AbstractSolver {
 
-	protected Queue<Node> frontier;
-	protected final Set<Puzzle15> visited = new HashSet<>();
+	private static final Dir[] DIRS = Dir.values();
+
+	protected final NodeArena nodes;
+	private final NodeStates visited = new NodeStates(1 << 12);
+	private final boolean scored;
+	private int nextToExpand;
 
 	public SolverBFS(Predicate<Solver> givingUpCondition) {
+		this(givingUpCondition, false);
+	}
+
+	/**
+	 * @param givingUpCondition condition for giving up
+	 * @param scored            if the nodes are scored, then the arena stores the heuristic state
+	 */
+	protected SolverBFS(Predicate<Solver> givingUpCondition, boolean scored) {
 		super(givingUpCondition);
+		this.scored = scored;
+		nodes = new NodeArena(1 << 12, scored);
 	}
 
 	@Override
 	protected int getFrontierSize() {
-		return frontier.size();
+		return nodes.size() - nextToExpand;
 	}
 
-	protected void createFrontier(int initialCapacity) {
-		frontier = new ArrayDeque<>(initialCapacity);
-		resetMaxFrontierSize();
+	@Override
+	public long getMemoryUsage() {
+		return nodes.memoryUsage() + visited.memoryUsage();
+	}
+
+	protected void createFrontier() {
+		nextToExpand = 0;
+	}
+
+	protected boolean isFrontierEmpty() {
+		return nextToExpand == nodes.size();
+	}
+
+	protected int pollFrontier() {
+		return nextToExpand++;
 	}
 
-	protected void expandFrontier(Node node) {
-		frontier.add(node);
-		visited.add(node.getPuzzle());
+	/**
+	 * Adds the given node to the frontier after it has been added to the arena.
+	 * 
+	 * @param node node index
+	 */
+	protected void expandFrontier(int node) {
 		updateMaxFrontierSize();
 	}
 
+	/**
+	 * @param node node to be added to the frontier
+	 * @return score of the node, stored as its h-value (0..{@link NodeArena#MAX_VALUE})
+	 */
+	protected int score(Node node) {
+		return 0;
+	}
+
+	private void addNode(Node node, int parent) {
+		long state = visited.state(node.getPuzzle());
+		int dir = node.getDir() != null ? node.getDir().ordinal() : NodeArena.NO_DIR;
+		int index = nodes.add(state, parent, dir, node.getMovesSoFar(), score(node));
+		if (scored) {
+			nodes.setHeuristicState(index, node.getHeuristic(), node.getHeuristicState(node.getHeuristic()));
+		}
+		visited.put(node.getPuzzle(), index);
+		expandFrontier(index);
+	}
+
+	/**
+	 * Creates a node object for an arena node whose successors can compute their scores incrementally.
+	 */
+	private Node node(int index) {
+		Node node = new Node(visited.puzzle(index, nodes.state(index)));
+		if (nodes.dir(index) != NodeArena.NO_DIR) {
+			node.setDir(DIRS[nodes.dir(index)]);
+		}
+		node.setMovesSoFar(nodes.g(index));
+		if (scored) {
+			node.setHeuristicState(nodes.heuristic(index), nodes.heuristicState(index));
+		}
+		return node;
+	}
+
 	@Override
 	public Optional<List<Node>> solve(Puzzle15 puzzle) throws SolverGivingUpException {
 		startClock();
-		createFrontier(1000);
-		visited.clear();
-		expandFrontier(new Node(puzzle));
-		while (!frontier.isEmpty()) {
+		resetMaxFrontierSize();
+		nodes.clear();
+		visited.clear(puzzle.size());
+		createFrontier();
+		addNode(new Node(puzzle), NodeArena.NO_PARENT);
+		while (!isFrontierEmpty()) {
 			maybeGiveUp();
-			Node current = frontier.poll();
-			if (current.getPuzzle().isOrdered()) {
-				return Optional.of(solution(current));
+			int current = pollFrontier();
+			if (visited.isGoal(current, nodes.state(current))) {
+				return Optional.of(solution(puzzle, nodes.movesTo(current)));
 			}
-			current.successors().filter(node -> !visited.contains(node.getPuzzle())).forEach(this::expandFrontier);
+			countExpandedNode();
+			node(current).successors().forEach(node -> {
+				countGeneratedNode();
+				if (visited.get(node.getPuzzle()) != LongIntHashMap.NO_VALUE) {
+					countDuplicate();
+				} else {
+					addNode(node, current);
+				}
+			});
 		}
 		return Optional.empty();
 	}
-}
\ No newline at end of file
+}
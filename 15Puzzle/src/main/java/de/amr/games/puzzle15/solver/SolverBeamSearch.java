@@ -0,0 +1,256 @@
+package de.amr.games.puzzle15.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import de.amr.games.puzzle15.model.Dir;
+import de.amr.games.puzzle15.model.PackedPuzzle15;
+import de.amr.games.puzzle15.model.Puzzle15;
+
+/**
+ * Beam search solver for 15-puzzle working on packed states (see {@link PackedPuzzle15}).
+ *
+ * <p>
+ * Searches breadth-first layer by layer but keeps only the best K nodes (the beam width) of each
+ * layer, ranked by the heuristic estimate. As all nodes of a layer have the same path cost, this is
+ * the same as ranking by g + h. States found in earlier layers are not generated again.
+ *
+ * <p>
+ * Unlike {@link SolverBestFirstSearch} whose frontier and visited set grow without bound, all data
+ * structures are allocated when the solver is created: the beams of all layers up to the maximum
+ * depth (needed to reconstruct the solution), the candidates of one layer and the set of visited
+ * states. So memory usage is fixed and the running time is bounded by the number of nodes in the
+ * beams, which makes the solver suitable for interactive hints. The solutions are not optimal but
+ * usually much shorter than the ones of best-first search or hill climbing; a wider beam gives
+ * shorter solutions. The search fails if the beam runs empty or the maximum depth is reached.
+ *
+ * @author Armin Reichert
+ */
+public class SolverBeamSearch extends AbstractSolver {
+
+	/** Maximum solution length used if not specified. */
+	public static final int DEFAULT_MAX_DEPTH = 400;
+
+	private static final Dir[] DIRS = Dir.values();
+	private static final int MAX_H = 128;
+	private static final int NO_DIR = -1;
+	private static final int SELECTED = -2; // visited value of a candidate selected for the next beam
+	private static final int BYTES_PER_NODE = Long.BYTES + Integer.BYTES + 2;
+
+	private final PatternDatabase pdb;
+	private final int beamWidth;
+	private final int maxDepth;
+
+	// beams of all layers, the nodes of a layer are stored consecutively
+	private final long[] states;
+	private final int[] parents;
+	private final byte[] dirs;
+	private final byte[] hs;
+
+	// successors of the current layer
+	private final long[] candidateStates;
+	private final int[] candidateParents;
+	private final byte[] candidateDirs;
+	private final byte[] candidateHs;
+	private final int[] candidateOrder; // candidate indices sorted by h
+
+	private final int[] countByH = new int[MAX_H];
+	private final LongIntHashMap visited;
+	private final byte[] positions = new byte[16];
+	private int beamSize;
+
+	/**
+	 * Creates a beam search solver using the Manhattan distance and the default maximum depth.
+	 *
+	 * @param beamWidth         number of nodes kept per layer
+	 * @param givingUpCondition condition for giving up
+	 */
+	public SolverBeamSearch(int beamWidth, Predicate<Solver> givingUpCondition) {
+		this(null, beamWidth, DEFAULT_MAX_DEPTH, givingUpCondition);
+	}
+
+	/**
+	 * @param pdb               pattern database or <code>null</code> for Manhattan distance
+	 * @param beamWidth         number of nodes kept per layer
+	 * @param maxDepth          maximum solution length
+	 * @param givingUpCondition condition for giving up
+	 */
+	public SolverBeamSearch(PatternDatabase pdb, int beamWidth, int maxDepth, Predicate<Solver> givingUpCondition) {
+		super(givingUpCondition);
+		if (beamWidth < 1) {
+			throw new IllegalArgumentException("Beam width must be at least 1");
+		}
+		if (maxDepth < 1) {
+			throw new IllegalArgumentException("Maximum depth must be at least 1");
+		}
+		if ((long) beamWidth * maxDepth >= 1 << 28) {
+			throw new IllegalArgumentException("Beam width times maximum depth is too large");
+		}
+		this.pdb = pdb;
+		this.beamWidth = beamWidth;
+		this.maxDepth = maxDepth;
+		int capacity = 1 + beamWidth * maxDepth;
+		states = new long[capacity];
+		parents = new int[capacity];
+		dirs = new byte[capacity];
+		hs = new byte[capacity];
+		int maxCandidates = DIRS.length * beamWidth;
+		candidateStates = new long[maxCandidates];
+		candidateParents = new int[maxCandidates];
+		candidateDirs = new byte[maxCandidates];
+		candidateHs = new byte[maxCandidates];
+		candidateOrder = new int[maxCandidates];
+		visited = new LongIntHashMap(capacity);
+	}
+
+	public int getBeamWidth() {
+		return beamWidth;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	@Override
+	protected int getFrontierSize() {
+		return beamSize;
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		return (long) (states.length + candidateStates.length) * BYTES_PER_NODE
+				+ (long) candidateOrder.length * Integer.BYTES + visited.memoryUsage();
+	}
+
+	@Override
+	public Optional<List<Node>> solve(Puzzle15 puzzle) throws SolverGivingUpException {
+		requireSize4(puzzle);
+		startClock();
+		resetMaxFrontierSize();
+		visited.clear();
+
+		long start = puzzle.packed();
+		if (PackedPuzzle15.isOrdered(start)) {
+			return Optional.of(solution(puzzle, List.of()));
+		}
+		states[0] = start;
+		parents[0] = -1;
+		dirs[0] = NO_DIR;
+		hs[0] = (byte) (pdb != null ? pdb.distFromOrdered(start, positions) : Heuristics.manhattanDistFromOrdered(puzzle));
+		visited.put(start, 0);
+		beamSize = 1;
+		updateMaxFrontierSize();
+
+		int beamStart = 0;
+		for (int depth = 1; depth <= maxDepth; ++depth) {
+			int numCandidates = 0;
+			for (int node = beamStart; node < beamStart + beamSize; ++node) {
+				if ((countExpandedNode() & 0x3FF) == 0) {
+					maybeGiveUp();
+				}
+				long state = states[node];
+				int blank = PackedPuzzle15.blank(state);
+				int lastDir = dirs[node];
+				for (Dir d : DIRS) {
+					if (lastDir != NO_DIR && d == DIRS[lastDir].opposite()) {
+						continue;
+					}
+					int target = PackedPuzzle15.target(blank, d);
+					if (target == -1) {
+						continue;
+					}
+					long nextState = PackedPuzzle15.move(state, blank, target);
+					countGeneratedNode();
+					if (visited.containsKey(nextState)) {
+						countDuplicate();
+						continue;
+					}
+					int h;
+					if (pdb != null) {
+						h = pdb.distFromOrdered(nextState, positions);
+					} else {
+						int number = PackedPuzzle15.get(state, target);
+						h = hs[node] - Heuristics.manhattanDist(number, target) + Heuristics.manhattanDist(number, blank);
+					}
+					if (h == 0 && PackedPuzzle15.isOrdered(nextState)) {
+						List<Dir> moves = movesTo(node);
+						moves.add(d);
+						return Optional.of(solution(puzzle, moves));
+					}
+					candidateStates[numCandidates] = nextState;
+					candidateParents[numCandidates] = node;
+					candidateDirs[numCandidates] = (byte) d.ordinal();
+					candidateHs[numCandidates] = (byte) h;
+					++numCandidates;
+				}
+			}
+			int nextBeamStart = beamStart + beamSize;
+			beamSize = selectBeam(numCandidates, nextBeamStart);
+			beamStart = nextBeamStart;
+			updateMaxFrontierSize();
+			if (beamSize == 0) {
+				break;
+			}
+		}
+		return Optional.empty();
+	}
+
+	/*
+	 * Copies the best candidates (at most beam width many) to the given position of the beam arrays.
+	 * The heuristic values are small, so the candidates are sorted by counting. They are selected in
+	 * that order, skipping visited states, which includes states generated by two nodes of the current
+	 * beam, so duplicates do not take the place of worse candidates. The selected candidates are copied
+	 * in the order they were generated. Returns the size of the new beam.
+	 */
+	private int selectBeam(int numCandidates, int beamStart) {
+		Arrays.fill(countByH, 0);
+		for (int i = 0; i < numCandidates; ++i) {
+			++countByH[candidateHs[i]];
+		}
+		for (int h = 0, first = 0; h < MAX_H; ++h) {
+			int count = countByH[h];
+			countByH[h] = first;
+			first += count;
+		}
+		for (int i = 0; i < numCandidates; ++i) {
+			candidateOrder[countByH[candidateHs[i]]++] = i;
+		}
+		int selected = 0;
+		for (int k = 0; k < numCandidates && selected < beamWidth; ++k) {
+			long state = candidateStates[candidateOrder[k]];
+			if (visited.containsKey(state)) {
+				countDuplicate();
+				continue;
+			}
+			visited.put(state, SELECTED);
+			++selected;
+		}
+		int node = beamStart;
+		for (int i = 0; i < numCandidates && node < beamStart + selected; ++i) {
+			// a later duplicate of a selected candidate finds the node index and is skipped
+			if (visited.get(candidateStates[i]) != SELECTED) {
+				continue;
+			}
+			states[node] = candidateStates[i];
+			parents[node] = candidateParents[i];
+			dirs[node] = candidateDirs[i];
+			hs[node] = candidateHs[i];
+			visited.put(states[node], node);
+			++node;
+		}
+		return node - beamStart;
+	}
+
+	private List<Dir> movesTo(int node) {
+		List<Dir> moves = new ArrayList<>();
+		for (int current = node; parents[current] != -1; current = parents[current]) {
+			moves.add(DIRS[dirs[current]]);
+		}
+		Collections.reverse(moves);
+		return moves;
+	}
+}
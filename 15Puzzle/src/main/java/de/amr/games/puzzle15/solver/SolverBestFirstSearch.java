@@ -1,8 +1,5 @@
 package de.amr.games.puzzle15.solver;
 
-import static java.util.Comparator.comparingInt;
-
-import java.util.PriorityQueue;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -12,28 +9,56 @@ import java.util.function.Predicate;
  * <p>
  * Always expands the node with the smallest cost (e.g. the estimated number of moves leading to the
  * target). Does not take the length of the path to the current node into account. Runs fast but
- * doesn't find the optimal solution in general.
+ * doesn't find the optimal solution in general. The frontier is a {@link BucketQueue} indexed by the
+ * cost.
  * 
  * @author Armin Reichert
  */
 public class SolverBestFirstSearch extends SolverBFS {
 
+	private static final int MAX_COST = 127;
+
 	private final Function<Node, Integer> fnNodeCost;
+	private final BucketQueue frontier = new BucketQueue(MAX_COST, 1 << 12);
 
 	public SolverBestFirstSearch(Function<Node, Integer> fnNodeCost, Predicate<Solver> givingUpCondition) {
-		super(givingUpCondition);
+		super(givingUpCondition, true);
 		this.fnNodeCost = fnNodeCost;
 	}
 
 	@Override
-	protected void createFrontier(int initialCapacity) {
-		frontier = new PriorityQueue<>(initialCapacity, comparingInt(Node::getScore));
-		resetMaxFrontierSize();
+	protected int getFrontierSize() {
+		return frontier.size();
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		return super.getMemoryUsage() + frontier.memoryUsage();
 	}
 
 	@Override
-	protected void expandFrontier(Node node) {
-		node.setScore(fnNodeCost.apply(node));
+	protected void createFrontier() {
+		frontier.clear();
+	}
+
+	@Override
+	protected boolean isFrontierEmpty() {
+		return frontier.isEmpty();
+	}
+
+	@Override
+	protected int pollFrontier() {
+		return frontier.poll();
+	}
+
+	@Override
+	protected void expandFrontier(int node) {
+		frontier.add(node, nodes.h(node));
 		super.expandFrontier(node);
 	}
-}
\ No newline at end of file
+
+	@Override
+	protected int score(Node node) {
+		return fnNodeCost.apply(node);
+	}
+}
@@ -0,0 +1,207 @@
+package de.amr.games.puzzle15.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import de.amr.games.puzzle15.model.Dir;
+import de.amr.games.puzzle15.model.PackedPuzzle15;
+import de.amr.games.puzzle15.model.Puzzle15;
+
+/**
+ * Bidirectional breadth-first search solver for 15-puzzle working on packed states (see
+ * {@link PackedPuzzle15}). Finds the optimal solution.
+ *
+ * <p>
+ * One search starts at the given puzzle, the other one at the ordered puzzle. Always the smaller
+ * frontier is expanded by a complete layer. Each search stores its visited states in a
+ * {@link LongIntHashMap} together with their depth and the move leading to them, so the parent of a
+ * state is found by undoing this move. When a generated state has already been visited by the other
+ * search, both searches meet. For a solution of length d, each search only has to reach depth about
+ * d/2 which reduces the number of visited states from b<sup>d</sup> to about 2&middot;b<sup>d/2</sup>.
+ *
+ * @author Armin Reichert
+ */
+public class SolverBidirectionalBFS extends AbstractSolver {
+
+	private static final Dir[] DIRS = Dir.values();
+	private static final int NO_DIR = 4;
+
+	// growable array of packed states
+	private static class LongList {
+
+		private long[] data = new long[1024];
+		private int size;
+
+		void add(long value) {
+			if (size == data.length) {
+				data = Arrays.copyOf(data, 2 * size);
+			}
+			data[size++] = value;
+		}
+
+		long get(int i) {
+			return data[i];
+		}
+
+		int size() {
+			return size;
+		}
+
+		long memoryUsage() {
+			return (long) data.length * Long.BYTES;
+		}
+
+		void clear() {
+			size = 0;
+		}
+	}
+
+	// one direction of the search
+	private static class Side {
+
+		// visited state -> depth << 3 | ordinal of move leading to state (NO_DIR for the root)
+		final LongIntHashMap visited = new LongIntHashMap(1 << 16);
+		LongList layer = new LongList();
+		LongList nextLayer = new LongList();
+		int depth;
+
+		void start(long root) {
+			visited.clear();
+			layer.clear();
+			nextLayer.clear();
+			depth = 0;
+			visited.put(root, NO_DIR);
+			layer.add(root);
+		}
+
+		long memoryUsage() {
+			return visited.memoryUsage() + layer.memoryUsage() + nextLayer.memoryUsage();
+		}
+
+		void swapLayers() {
+			LongList tmp = layer;
+			layer = nextLayer;
+			nextLayer = tmp;
+			nextLayer.clear();
+			++depth;
+		}
+	}
+
+	private final Side forward = new Side();
+	private final Side backward = new Side();
+
+	public SolverBidirectionalBFS(Predicate<Solver> givingUpCondition) {
+		super(givingUpCondition);
+	}
+
+	@Override
+	protected int getFrontierSize() {
+		return forward.layer.size() + forward.nextLayer.size() + backward.layer.size() + backward.nextLayer.size();
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		return forward.memoryUsage() + backward.memoryUsage();
+	}
+
+	@Override
+	public Optional<List<Node>> solve(Puzzle15 puzzle) throws SolverGivingUpException {
+		requireSize4(puzzle);
+		startClock();
+		resetMaxFrontierSize();
+		long start = puzzle.packed();
+		forward.start(start);
+		backward.start(PackedPuzzle15.ORDERED);
+		if (start == PackedPuzzle15.ORDERED) {
+			return Optional.of(solution(puzzle, List.of()));
+		}
+		while (forward.layer.size() > 0 && backward.layer.size() > 0) {
+			updateCostBound(forward.depth + backward.depth + 1);
+			boolean expandForward = forward.layer.size() <= backward.layer.size();
+			long meeting = expandLayer(expandForward ? forward : backward, expandForward ? backward : forward);
+			if (meeting != -1) {
+				return Optional.of(solution(puzzle, path(meeting)));
+			}
+		}
+		return Optional.empty();
+	}
+
+	/*
+	 * Expands the complete current layer of the given side. Returns the meeting state with the shortest
+	 * path or -1 if the sides did not meet.
+	 */
+	private long expandLayer(Side side, Side other) throws SolverGivingUpException {
+		long meeting = -1;
+		int meetingLength = Integer.MAX_VALUE;
+		for (int i = 0; i < side.layer.size(); ++i) {
+			if ((countExpandedNode() & 0x3FF) == 0) {
+				maybeGiveUp();
+			}
+			long state = side.layer.get(i);
+			int lastDir = side.visited.get(state) & 7;
+			int blank = PackedPuzzle15.blank(state);
+			for (Dir dir : DIRS) {
+				if (lastDir != NO_DIR && dir == DIRS[lastDir].opposite()) {
+					continue;
+				}
+				int target = PackedPuzzle15.target(blank, dir);
+				if (target == -1) {
+					continue;
+				}
+				long next = PackedPuzzle15.move(state, blank, target);
+				countGeneratedNode();
+				if (side.visited.containsKey(next)) {
+					countDuplicate();
+					continue;
+				}
+				side.visited.put(next, (side.depth + 1) << 3 | dir.ordinal());
+				side.nextLayer.add(next);
+				int otherValue = other.visited.get(next);
+				if (otherValue != LongIntHashMap.NO_VALUE) {
+					int length = side.depth + 1 + (otherValue >>> 3);
+					if (length < meetingLength) {
+						meeting = next;
+						meetingLength = length;
+					}
+				}
+			}
+			updateMaxFrontierSize();
+		}
+		side.swapLayers();
+		return meeting;
+	}
+
+	// moves from the start state via the meeting state to the ordered state
+	private List<Dir> path(long meeting) {
+		List<Dir> moves = new ArrayList<>();
+		for (long state = meeting;;) {
+			int dir = forward.visited.get(state) & 7;
+			if (dir == NO_DIR) {
+				break;
+			}
+			moves.add(DIRS[dir]);
+			state = undo(state, DIRS[dir]);
+		}
+		Collections.reverse(moves);
+		for (long state = meeting;;) {
+			int dir = backward.visited.get(state) & 7;
+			if (dir == NO_DIR) {
+				break;
+			}
+			// the backward search moved in direction dir away from the ordered state
+			moves.add(DIRS[dir].opposite());
+			state = undo(state, DIRS[dir]);
+		}
+		return moves;
+	}
+
+	// state before the given move was made
+	private static long undo(long state, Dir dir) {
+		int blank = PackedPuzzle15.blank(state);
+		return PackedPuzzle15.move(state, blank, PackedPuzzle15.target(blank, dir.opposite()));
+	}
+}
@@ -0,0 +1,15 @@
+package de.amr.games.puzzle15.solver;
+
+/**
+ * Thrown by a solver whose run has been cancelled from outside, see {@link Solver#cancel()}.
+ * 
+ * @author Armin Reichert
+ */
+public class SolverCancelledException extends SolverGivingUpException {
+
+	private static final long serialVersionUID = 1L;
+
+	public SolverCancelledException(String message) {
+		super(message);
+	}
+}
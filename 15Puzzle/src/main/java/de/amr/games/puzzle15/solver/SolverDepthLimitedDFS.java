@@ -2,31 +2,57 @@ package de.amr.games.puzzle15.solver;
 
 import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
+import java.util.function.Predicate;
 
 import de.amr.games.puzzle15.model.Puzzle15;
 
+/**
+ * Depth-first search up to a maximum depth.
+ * 
+ * <p>
+ * No visited states are stored, duplicates are avoided by the move pruning of a
+ * {@link MoveGenerator}. So the memory usage is linear in the maximum depth, and when the maximum
+ * depth is increased step by step (see {@link SolverIDDFS}), a shortest solution is found.
+ * 
+ * @author Armin Reichert
+ */
 public class SolverDepthLimitedDFS extends AbstractSolver {
 
 	protected final Deque<Node> frontier;
-	protected final Set<Puzzle15> visited;
+	private MoveGenerator moveGenerator;
 	private int maxDepth;
+	private int numCells;
+
+	public SolverDepthLimitedDFS(int maxDepth, Predicate<Solver> givingUpCondition) {
+		super(givingUpCondition);
+		frontier = new ArrayDeque<>();
+		this.maxDepth = maxDepth;
+	}
 
 	public SolverDepthLimitedDFS(int maxDepth) {
-		super(solver -> false);
+		this(maxDepth, solver -> false);
+	}
+
+	// used by iterative deepening, counts into the metrics of the enclosing solver
+	SolverDepthLimitedDFS(int maxDepth, Predicate<Solver> givingUpCondition, SolverMetrics metrics) {
+		super(givingUpCondition, metrics);
 		frontier = new ArrayDeque<>();
-		visited = new HashSet<>();
+		this.maxDepth = maxDepth;
+	}
+
+	void setMaxDepth(int maxDepth) {
 		this.maxDepth = maxDepth;
 	}
 
 	@Override
 	public Optional<List<Node>> solve(Puzzle15 puzzle) throws SolverGivingUpException {
 		startClock();
+		resetMaxFrontierSize();
+		numCells = puzzle.numCells();
+		moveGenerator = MoveGenerator.of(puzzle.size(), true);
 		frontier.clear();
-		visited.clear();
 		addToFrontier(new Node(puzzle));
 		while (!frontier.isEmpty()) {
 			maybeGiveUp();
@@ -35,6 +61,7 @@ public class SolverDepthLimitedDFS extends AbstractSolver {
 				return Optional.of(solution(current));
 			}
 			if (current.getMovesSoFar() < maxDepth) {
+				countExpandedNode();
 				expand(current);
 			}
 		}
@@ -42,12 +69,14 @@ public class SolverDepthLimitedDFS extends AbstractSolver {
 	}
 
 	protected void expand(Node node) {
-		node.successors().filter(succ -> !visited.contains(succ.getPuzzle())).forEach(this::addToFrontier);
+		node.successors(moveGenerator).forEach(successor -> {
+			countGeneratedNode();
+			addToFrontier(successor);
+		});
 	}
 
 	protected void addToFrontier(Node node) {
 		frontier.push(node);
-		visited.add(node.getPuzzle());
 		updateMaxFrontierSize();
 	}
 
@@ -55,4 +84,9 @@ public class SolverDepthLimitedDFS extends AbstractSolver {
 	protected int getFrontierSize() {
 		return frontier.size();
 	}
+
+	@Override
+	public long getMemoryUsage() {
+		return frontier.size() * (Node.estimatedBytes(numCells) + QUEUE_ENTRY_BYTES);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,416 @@
+package de.amr.games.puzzle15.solver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import de.amr.games.puzzle15.model.Dir;
+import de.amr.games.puzzle15.model.PackedPuzzle15;
+import de.amr.games.puzzle15.model.Puzzle15;
+
+/**
+ * Breadth-first search solver for 15-puzzle which keeps its layers on disk instead of in the heap.
+ *
+ * <p>
+ * Each BFS layer is a file of packed states (see {@link PackedPuzzle15}) in ascending order without
+ * duplicates. To create the next layer, the states of the current layer are read sequentially and
+ * their successors are collected in a fixed-size buffer. Each full buffer is sorted and written as a
+ * run file. Then the runs are merged, removing duplicates and all states contained in the current or
+ * previous layer (successors of a layer can only be in these layers or in the next one). Only the
+ * run buffer and the merge buffers are held in memory.
+ *
+ * <p>
+ * When the ordered puzzle is reached, the solution is traced back from the last layer to the start
+ * by finding for each state a predecessor in the previous layer with a binary search on the
+ * memory-mapped layer file. All files are deleted when the search ends.
+ *
+ * @author Armin Reichert
+ */
+public class SolverExternalBFS extends AbstractSolver {
+
+	private static final Dir[] DIRS = Dir.values();
+	private static final int IO_BUFFER_SIZE = 1 << 16;
+
+	private final Path workDir;
+	private final long[] run;
+	private Path searchDir;
+	private long layerSize;
+
+	/**
+	 * Creates a solver using the default temporary-file directory and runs of 4M states (32 MB).
+	 *
+	 * @param givingUpCondition condition for giving up
+	 */
+	public SolverExternalBFS(Predicate<Solver> givingUpCondition) {
+		this(null, 1 << 22, givingUpCondition);
+	}
+
+	/**
+	 * @param workDir           directory where the layer and run files are created or <code>null</code>
+	 *                          for the default temporary-file directory
+	 * @param runSize           number of states sorted in memory before they are written to a run file
+	 * @param givingUpCondition condition for giving up
+	 */
+	public SolverExternalBFS(Path workDir, int runSize, Predicate<Solver> givingUpCondition) {
+		super(givingUpCondition);
+		this.workDir = workDir;
+		this.run = new long[runSize];
+	}
+
+	/**
+	 * @return number of states in the layer currently expanded (states on disk, not in memory)
+	 */
+	@Override
+	protected int getFrontierSize() {
+		return (int) Math.min(Integer.MAX_VALUE, layerSize);
+	}
+
+	/**
+	 * @return size of the run buffer, the I/O buffers are allocated outside of the heap
+	 */
+	@Override
+	public long getMemoryUsage() {
+		return (long) run.length * Long.BYTES;
+	}
+
+	@Override
+	public Optional<List<Node>> solve(Puzzle15 puzzle) throws SolverGivingUpException {
+		requireSize4(puzzle);
+		startClock();
+		resetMaxFrontierSize();
+		try {
+			searchDir = workDir != null ? Files.createTempDirectory(workDir, "bfs") : Files.createTempDirectory("bfs");
+			try {
+				return search(puzzle);
+			} finally {
+				deleteSearchDir();
+			}
+		} catch (IOException x) {
+			throw new UncheckedIOException(x);
+		}
+	}
+
+	private Optional<List<Node>> search(Puzzle15 puzzle) throws IOException, SolverGivingUpException {
+		long start = puzzle.packed();
+		if (start == PackedPuzzle15.ORDERED) {
+			return Optional.of(solution(puzzle, List.of()));
+		}
+		try (LongWriter out = new LongWriter(layerFile(0))) {
+			out.write(start);
+		}
+		layerSize = 1;
+		for (int depth = 0; layerSize > 0; ++depth) {
+			updateCostBound(depth + 1);
+			updateMaxFrontierSize();
+			List<Path> runs = new ArrayList<>();
+			boolean found = expandLayer(depth, runs);
+			if (found) {
+				return Optional.of(solution(puzzle, traceBack(depth)));
+			}
+			layerSize = mergeRuns(runs, depth);
+		}
+		return Optional.empty();
+	}
+
+	/*
+	 * Writes the successors of the given layer as sorted runs. Returns if the ordered state is a
+	 * successor.
+	 */
+	private boolean expandLayer(int depth, List<Path> runs) throws IOException, SolverGivingUpException {
+		int runLength = 0;
+		try (LongReader in = new LongReader(layerFile(depth))) {
+			while (in.hasNext()) {
+				if ((countExpandedNode() & 0x3FF) == 0) {
+					maybeGiveUp();
+				}
+				long state = in.next();
+				int blank = PackedPuzzle15.blank(state);
+				for (Dir dir : DIRS) {
+					int target = PackedPuzzle15.target(blank, dir);
+					if (target == -1) {
+						continue;
+					}
+					long next = PackedPuzzle15.move(state, blank, target);
+					countGeneratedNode();
+					if (next == PackedPuzzle15.ORDERED) {
+						return true;
+					}
+					if (runLength == run.length) {
+						runs.add(writeRun(runLength, depth, runs.size()));
+						runLength = 0;
+					}
+					run[runLength++] = next;
+				}
+			}
+		}
+		if (runLength > 0) {
+			runs.add(writeRun(runLength, depth, runs.size()));
+		}
+		return false;
+	}
+
+	private Path writeRun(int runLength, int depth, int index) throws IOException {
+		Arrays.sort(run, 0, runLength);
+		Path file = searchDir.resolve("run-" + depth + "-" + index);
+		try (LongWriter out = new LongWriter(file)) {
+			for (int i = 0; i < runLength; ++i) {
+				if (i > 0 && run[i] == run[i - 1]) {
+					countDuplicate();
+				} else {
+					out.write(run[i]);
+				}
+			}
+		}
+		return file;
+	}
+
+	/*
+	 * Merges the runs into the next layer file, removing duplicates and states of the current and
+	 * previous layer. Deletes the runs and returns the size of the new layer.
+	 */
+	private long mergeRuns(List<Path> runs, int depth) throws IOException, SolverGivingUpException {
+		PriorityQueue<LongReader> heap = new PriorityQueue<>(Math.max(1, runs.size()),
+				Comparator.comparingLong(LongReader::peek));
+		LongReader current = new LongReader(layerFile(depth));
+		LongReader previous = depth > 0 ? new LongReader(layerFile(depth - 1)) : null;
+		long count = 0;
+		try (LongWriter out = new LongWriter(layerFile(depth + 1))) {
+			for (Path file : runs) {
+				LongReader reader = new LongReader(file);
+				if (reader.hasNext()) {
+					heap.add(reader);
+				} else {
+					reader.close();
+				}
+			}
+			boolean first = true;
+			long last = 0;
+			while (!heap.isEmpty()) {
+				LongReader reader = heap.poll();
+				long state = reader.next();
+				if (reader.hasNext()) {
+					heap.add(reader);
+				} else {
+					reader.close();
+				}
+				if (!first && state == last || current.skipTo(state) || previous != null && previous.skipTo(state)) {
+					countDuplicate();
+					continue;
+				}
+				first = false;
+				last = state;
+				out.write(state);
+				if ((++count & 0xFFFFF) == 0) {
+					maybeGiveUp();
+				}
+			}
+		} finally {
+			for (LongReader reader : heap) {
+				reader.close();
+			}
+			current.close();
+			if (previous != null) {
+				previous.close();
+			}
+			for (Path file : runs) {
+				Files.deleteIfExists(file);
+			}
+		}
+		return count;
+	}
+
+	// moves leading from the start to the ordered state which is a successor of the given layer
+	private List<Dir> traceBack(int lastDepth) throws IOException {
+		List<Dir> moves = new ArrayList<>();
+		long state = PackedPuzzle15.ORDERED;
+		for (int depth = lastDepth; depth >= 0; --depth) {
+			try (LayerIndex layer = new LayerIndex(layerFile(depth))) {
+				int blank = PackedPuzzle15.blank(state);
+				for (Dir dir : DIRS) {
+					int target = PackedPuzzle15.target(blank, dir);
+					if (target == -1) {
+						continue;
+					}
+					long predecessor = PackedPuzzle15.move(state, blank, target);
+					if (layer.contains(predecessor)) {
+						// moving the tile back leads from the predecessor to the state
+						moves.add(dir.opposite());
+						state = predecessor;
+						break;
+					}
+				}
+			}
+		}
+		Collections.reverse(moves);
+		return moves;
+	}
+
+	private Path layerFile(int depth) {
+		return searchDir.resolve("layer-" + depth);
+	}
+
+	private void deleteSearchDir() throws IOException {
+		try (Stream<Path> files = Files.list(searchDir)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.deleteIfExists(file);
+			}
+		}
+		Files.deleteIfExists(searchDir);
+	}
+
+	// sequential reader for a file of longs
+	private static class LongReader implements Closeable {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+		private boolean hasNext;
+		private long next;
+
+		LongReader(Path file) throws IOException {
+			channel = FileChannel.open(file, StandardOpenOption.READ);
+			buffer.flip();
+			advance();
+		}
+
+		private void advance() throws IOException {
+			if (buffer.remaining() < Long.BYTES) {
+				buffer.compact();
+				while (buffer.position() < Long.BYTES && channel.read(buffer) != -1) {
+					// read until a complete value is available or end of file
+				}
+				buffer.flip();
+			}
+			hasNext = buffer.remaining() >= Long.BYTES;
+			if (hasNext) {
+				next = buffer.getLong();
+			}
+		}
+
+		boolean hasNext() {
+			return hasNext;
+		}
+
+		long peek() {
+			return next;
+		}
+
+		long next() throws IOException {
+			long value = next;
+			advance();
+			return value;
+		}
+
+		/**
+		 * Skips all values less than the given value (this file must be sorted).
+		 *
+		 * @return if the file contains the given value
+		 */
+		boolean skipTo(long value) throws IOException {
+			while (hasNext && next < value) {
+				advance();
+			}
+			return hasNext && next == value;
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	// sequential writer for a file of longs
+	private static class LongWriter implements Closeable {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+
+		LongWriter(Path file) throws IOException {
+			channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		void write(long value) throws IOException {
+			if (!buffer.hasRemaining()) {
+				flush();
+			}
+			buffer.putLong(value);
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+			channel.close();
+		}
+	}
+
+	// binary search in a sorted file of longs mapped into memory in segments of 1 GB
+	private static class LayerIndex implements Closeable {
+
+		private static final int SEGMENT_SHIFT = 27; // 2^27 longs
+		private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+		private final FileChannel channel;
+		private final LongBuffer[] segments;
+		private final long size;
+
+		LayerIndex(Path file) throws IOException {
+			channel = FileChannel.open(file, StandardOpenOption.READ);
+			size = channel.size() / Long.BYTES;
+			segments = new LongBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+			for (int i = 0; i < segments.length; ++i) {
+				long position = ((long) i << SEGMENT_SHIFT) * Long.BYTES;
+				long length = Math.min(channel.size() - position, (SEGMENT_MASK + 1) * Long.BYTES);
+				segments[i] = channel.map(MapMode.READ_ONLY, position, length).asLongBuffer();
+			}
+		}
+
+		private long get(long index) {
+			return segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+		}
+
+		boolean contains(long value) {
+			long low = 0, high = size - 1;
+			while (low <= high) {
+				long mid = (low + high) >>> 1;
+				long midValue = get(mid);
+				if (midValue < value) {
+					low = mid + 1;
+				} else if (midValue > value) {
+					high = mid - 1;
+				} else {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+}
@@ -2,24 +2,66 @@ package de.amr.games.puzzle15.solver;
 
 import static java.util.Comparator.comparingInt;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.function.ToIntFunction;
 
+import de.amr.games.puzzle15.model.Puzzle15;
+
 public class SolverHillClimbing extends SolverDepthLimitedDFS {
 
+	// without depth limit, the search needs the visited states to terminate
+	private final Set<Puzzle15> visited = new HashSet<>();
 	private ToIntFunction<Node> h;
+	private int numCells;
 
-	public SolverHillClimbing() {
-		super(Integer.MAX_VALUE);
+	public SolverHillClimbing(Predicate<Solver> givingUpCondition) {
+		super(Integer.MAX_VALUE, givingUpCondition);
 		h = Heuristics::manhattan;
 	}
 
+	public SolverHillClimbing() {
+		this(solver -> false);
+	}
+
+	@Override
+	public Optional<List<Node>> solve(Puzzle15 puzzle) throws SolverGivingUpException {
+		visited.clear();
+		numCells = puzzle.numCells();
+		return super.solve(puzzle);
+	}
+
 	@Override
 	protected void expand(Node node) {
 		/*@formatter:off*/
 		node.successors()
-			.filter(succ -> !visited.contains(succ.getPuzzle()))
+			.filter(this::isNew)
 			.sorted(comparingInt(h).reversed())
 			.forEach(this::addToFrontier);
 		/*@formatter:on*/
 	}
-}
\ No newline at end of file
+
+	private boolean isNew(Node node) {
+		countGeneratedNode();
+		if (visited.contains(node.getPuzzle())) {
+			countDuplicate();
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	protected void addToFrontier(Node node) {
+		super.addToFrontier(node);
+		visited.add(node.getPuzzle());
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		return visited.size() * (Node.estimatedBytes(numCells) + HASH_ENTRY_BYTES)
+				+ (long) frontier.size() * QUEUE_ENTRY_BYTES;
+	}
+}
@@ -0,0 +1,98 @@
+package de.amr.games.puzzle15.solver;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import de.amr.games.puzzle15.model.Puzzle15;
+
+/**
+ * Iterative-deepening A* (IDA*) solver for 15-puzzle and other puzzle sizes. Finds the optimal
+ * solution using memory linear in the solution length.
+ *
+ * <p>
+ * The depth-first core ({@link IDAStarSearch}) works on a single mutable board and makes/unmakes
+ * moves in place. The heuristic (Manhattan distance or additive pattern database) is updated
+ * incrementally for the moved tile. No objects are created during the search, the solution path is
+ * only converted into nodes at the end.
+ *
+ * @author Armin Reichert
+ */
+public class SolverIDAStar extends AbstractSolver {
+
+	private final PatternDatabase pdb;
+	private IDAStarSearch search;
+
+	/**
+	 * Creates an IDA* solver using the Manhattan distance as heuristic.
+	 * 
+	 * @param givingUpCondition condition for giving up
+	 */
+	public SolverIDAStar(Predicate<Solver> givingUpCondition) {
+		this(null, givingUpCondition);
+	}
+
+	/**
+	 * Creates an IDA* solver using the given pattern database as heuristic.
+	 * 
+	 * @param pdb               additive pattern database or <code>null</code> for Manhattan distance.
+	 *                          Only puzzles of the database's size can be solved.
+	 * @param givingUpCondition condition for giving up
+	 */
+	public SolverIDAStar(PatternDatabase pdb, Predicate<Solver> givingUpCondition) {
+		super(givingUpCondition);
+		this.pdb = pdb;
+		search = createSearch(pdb != null ? pdb.size() : 4);
+	}
+
+	private IDAStarSearch createSearch(int size) {
+		return new IDAStarSearch(size, pdb) {
+
+			@Override
+			void expanded(int g) throws SolverGivingUpException {
+				if ((countExpandedNode() & 0x3FF) == 0) {
+					maybeGiveUp();
+				}
+				updateMaxFrontierSize();
+			}
+
+			@Override
+			void generated() {
+				countGeneratedNode();
+			}
+		};
+	}
+
+	@Override
+	protected int getFrontierSize() {
+		return search.depth;
+	}
+
+	@Override
+	public Optional<List<Node>> solve(Puzzle15 puzzle) throws SolverGivingUpException {
+		startClock();
+		resetMaxFrontierSize();
+		if (puzzle.size() != search.size) {
+			search = createSearch(puzzle.size());
+		}
+		if (!puzzle.isSolvable()) {
+			return Optional.empty();
+		}
+		int h = search.load(puzzle);
+		search.depth = 0;
+		search.costBound = h;
+		while (true) {
+			search.checkCostBound(search.costBound);
+			search.nextCostBound = Integer.MAX_VALUE;
+			updateCostBound(search.costBound);
+			if (search.search(0, h, MoveGenerator.START)) {
+				return Optional.of(solution(puzzle, Arrays.asList(search.path).subList(0, search.depth)));
+			}
+			if (search.nextCostBound == Integer.MAX_VALUE) {
+				return Optional.empty();
+			}
+			search.costBound = search.nextCostBound;
+		}
+	}
+}
@@ -2,6 +2,7 @@ package de.amr.games.puzzle15.solver;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 import de.amr.games.puzzle15.model.Puzzle15;
 
@@ -9,37 +10,84 @@ public class SolverIDDFS implements Solver {
 
 	static final int MAX_DEPTH = 50;
 
-	private SolverDepthLimitedDFS dls;
+	private final SolverMetrics metrics = new SolverMetrics();
+	private final Predicate<Solver> givingUpCondition;
+	private volatile SolverDepthLimitedDFS dls; // created by the first run
 	private int maxFrontierSize;
-	private long totalRuntime;
+	private long startTime, endTime; // nanoseconds, end time is 0 while running
+	private volatile long runId;
+
+	/**
+	 * @param givingUpCondition condition for giving up, tested with this solver during each iteration
+	 */
+	public SolverIDDFS(Predicate<Solver> givingUpCondition) {
+		this.givingUpCondition = givingUpCondition;
+	}
+
+	public SolverIDDFS() {
+		this(solver -> false);
+	}
 
 	@Override
 	public Optional<List<Node>> solve(Puzzle15 puzzle) throws SolverGivingUpException {
 		maxFrontierSize = 0;
-		totalRuntime = 0;
-		System.out.print("Running DLS of depth: ");
-		for (int depth = 0; depth <= MAX_DEPTH; ++depth) {
-			System.out.print(" " + depth);
-			dls = new SolverDepthLimitedDFS(depth);
-			Optional<List<Node>> solution = dls.solve(puzzle);
-			maxFrontierSize = Math.max(maxFrontierSize, dls.getMaxFrontierSize());
-			totalRuntime += dls.getRunningTime();
-			if (solution.isPresent()) {
-				System.out.println();
-				return solution;
+		startTime = System.nanoTime();
+		endTime = 0;
+		runId = AbstractSolver.nextRunId();
+		if (dls == null) {
+			// the giving-up condition is tested with this solver, not with the current iteration
+			dls = new SolverDepthLimitedDFS(0, solver -> givingUpCondition.test(this), metrics);
+		}
+		dls.clearCancellation();
+		metrics.reset();
+		try {
+			for (int depth = 0; depth <= MAX_DEPTH; ++depth) {
+				metrics.setCostBound(depth);
+				dls.setMaxDepth(depth);
+				Optional<List<Node>> solution = dls.solve(puzzle);
+				maxFrontierSize = Math.max(maxFrontierSize, dls.getMaxFrontierSize());
+				if (solution.isPresent()) {
+					return solution;
+				}
 			}
+			return Optional.empty();
+		} finally {
+			endTime = System.nanoTime();
+		}
+	}
+
+	@Override
+	public void cancel() {
+		SolverDepthLimitedDFS search = dls;
+		if (search != null) {
+			search.cancel();
 		}
-		System.out.println();
-		return Optional.empty();
 	}
 
 	@Override
 	public int getMaxFrontierSize() {
-		return maxFrontierSize;
+		SolverDepthLimitedDFS search = dls;
+		return search != null ? Math.max(maxFrontierSize, search.getMaxFrontierSize()) : maxFrontierSize;
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		SolverDepthLimitedDFS search = dls;
+		return search != null ? search.getMemoryUsage() : 0;
 	}
 
 	@Override
 	public long getRunningTime() {
-		return totalRuntime;
+		return ((endTime != 0 ? endTime : System.nanoTime()) - startTime) / 1_000_000;
+	}
+
+	@Override
+	public long getRunId() {
+		return runId;
+	}
+
+	@Override
+	public SolverMetrics getMetrics() {
+		return metrics;
 	}
 }
\ No newline at end of file
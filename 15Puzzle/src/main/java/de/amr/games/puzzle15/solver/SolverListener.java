@@ -0,0 +1,28 @@
+package de.amr.games.puzzle15.solver;
+
+/**
+ * Receives progress reports of a solver run from a {@link SolverMonitor}. Reports are delivered on
+ * the monitor thread, not on the solver thread.
+ *
+ * @author Armin Reichert
+ */
+@FunctionalInterface
+public interface SolverListener {
+
+	/**
+	 * Called periodically while the solver runs.
+	 *
+	 * @param progress current progress
+	 */
+	void progress(SolverProgress progress);
+
+	/**
+	 * Called once after the solver has stopped. By default, reports the final progress like a periodic
+	 * report.
+	 *
+	 * @param progress final progress
+	 */
+	default void finished(SolverProgress progress) {
+		progress(progress);
+	}
+}
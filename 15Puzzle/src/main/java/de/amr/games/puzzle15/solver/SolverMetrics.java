@@ -0,0 +1,130 @@
+package de.amr.games.puzzle15.solver;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Counters updated by a solver during its search and read by other threads, e.g. a
+ * {@link SolverMonitor}.
+ *
+ * <p>
+ * Normally, only the solver thread writes the counters. Writes are "opaque" stores (no fences, no
+ * atomic read-modify-write), so counting a node costs about as much as incrementing a plain field.
+ * Readers see the values with a small delay which is fine for progress reports. Solvers running
+ * several threads use the atomic <code>add</code> methods.
+ *
+ * @author Armin Reichert
+ */
+public class SolverMetrics {
+
+	private static final VarHandle EXPANDED, GENERATED, DUPLICATES, FRONTIER, COST_BOUND;
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			EXPANDED = lookup.findVarHandle(SolverMetrics.class, "expandedNodes", long.class);
+			GENERATED = lookup.findVarHandle(SolverMetrics.class, "generatedNodes", long.class);
+			DUPLICATES = lookup.findVarHandle(SolverMetrics.class, "duplicatesPruned", long.class);
+			FRONTIER = lookup.findVarHandle(SolverMetrics.class, "frontierSize", int.class);
+			COST_BOUND = lookup.findVarHandle(SolverMetrics.class, "costBound", int.class);
+		} catch (ReflectiveOperationException x) {
+			throw new ExceptionInInitializerError(x);
+		}
+	}
+
+	private long expandedNodes;
+	private long generatedNodes;
+	private long duplicatesPruned;
+	private int frontierSize;
+	private int costBound;
+
+	/**
+	 * Resets all counters. Called by the solver thread at the start of a run.
+	 */
+	void reset() {
+		EXPANDED.setOpaque(this, 0L);
+		GENERATED.setOpaque(this, 0L);
+		DUPLICATES.setOpaque(this, 0L);
+		FRONTIER.setOpaque(this, 0);
+		COST_BOUND.setOpaque(this, 0);
+	}
+
+	/**
+	 * @return number of nodes expanded so far including this one
+	 */
+	long countExpanded() {
+		long count = expandedNodes + 1;
+		EXPANDED.setOpaque(this, count);
+		return count;
+	}
+
+	void countGenerated() {
+		GENERATED.setOpaque(this, generatedNodes + 1);
+	}
+
+	void countDuplicate() {
+		DUPLICATES.setOpaque(this, duplicatesPruned + 1);
+	}
+
+	/**
+	 * Adds expanded nodes counted by one of several threads searching in parallel.
+	 * 
+	 * @param count number of nodes
+	 */
+	void addExpanded(long count) {
+		EXPANDED.getAndAdd(this, count);
+	}
+
+	/**
+	 * Adds generated nodes counted by one of several threads searching in parallel.
+	 * 
+	 * @param count number of nodes
+	 */
+	void addGenerated(long count) {
+		GENERATED.getAndAdd(this, count);
+	}
+
+	void setFrontierSize(int size) {
+		FRONTIER.setOpaque(this, size);
+	}
+
+	void setCostBound(int bound) {
+		COST_BOUND.setOpaque(this, bound);
+	}
+
+	/**
+	 * @return number of nodes expanded (successors generated) so far
+	 */
+	public long getExpandedNodes() {
+		return (long) EXPANDED.getOpaque(this);
+	}
+
+	/**
+	 * @return number of successor nodes generated so far
+	 */
+	public long getGeneratedNodes() {
+		return (long) GENERATED.getOpaque(this);
+	}
+
+	/**
+	 * @return number of generated nodes discarded because their state was already known
+	 */
+	public long getDuplicatesPruned() {
+		return (long) DUPLICATES.getOpaque(this);
+	}
+
+	/**
+	 * @return current frontier size (search depth for depth-first solvers)
+	 */
+	public int getFrontierSize() {
+		return (int) FRONTIER.getOpaque(this);
+	}
+
+	/**
+	 * @return current f-cost bound (IDA* iteration bound, f-value of the node expanded last by A*) or 0
+	 *         if the solver has no such bound
+	 */
+	public int getCostBound() {
+		return (int) COST_BOUND.getOpaque(this);
+	}
+}
@@ -0,0 +1,101 @@
+package de.amr.games.puzzle15.solver;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the metrics of a solver on a separate thread and reports the progress to listeners. The
+ * solver itself only updates its counters, so monitoring does not slow down the search.
+ *
+ * <pre>
+ * SolverMonitor monitor = new SolverMonitor(solver, 500);
+ * monitor.addListener(progress -&gt; ...);
+ * monitor.start();
+ * try {
+ * 	solver.solve(puzzle);
+ * } finally {
+ * 	monitor.stop();
+ * }
+ * </pre>
+ *
+ * @author Armin Reichert
+ */
+public class SolverMonitor {
+
+	private final SolverMetrics metrics;
+	private final long periodMillis;
+	private final List<SolverListener> listeners = new CopyOnWriteArrayList<>();
+	private ScheduledExecutorService scheduler;
+	private long startTime; // nanoseconds
+	private long lastSampleTime; // nanoseconds
+	private long lastExpandedNodes;
+
+	/**
+	 * @param solver       monitored solver
+	 * @param periodMillis sampling period in milliseconds
+	 */
+	public SolverMonitor(Solver solver, long periodMillis) {
+		this.metrics = solver.getMetrics();
+		this.periodMillis = periodMillis;
+	}
+
+	public void addListener(SolverListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(SolverListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Starts sampling. Should be called immediately before the solver is started.
+	 */
+	public synchronized void start() {
+		if (scheduler != null) {
+			throw new IllegalStateException("Monitor already started");
+		}
+		startTime = lastSampleTime = System.nanoTime();
+		lastExpandedNodes = 0;
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "SolverMonitor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleAtFixedRate(() -> {
+			SolverProgress progress = sample();
+			listeners.forEach(listener -> listener.progress(progress));
+		}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops sampling and sends the final progress to the listeners.
+	 */
+	public synchronized void stop() {
+		if (scheduler == null) {
+			return;
+		}
+		scheduler.shutdown();
+		try {
+			scheduler.awaitTermination(periodMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException x) {
+			Thread.currentThread().interrupt();
+		}
+		scheduler = null;
+		SolverProgress progress = sample();
+		listeners.forEach(listener -> listener.finished(progress));
+	}
+
+	private SolverProgress sample() {
+		long now = System.nanoTime();
+		long expanded = metrics.getExpandedNodes();
+		double seconds = (now - lastSampleTime) / 1e9;
+		double rate = seconds > 0 ? Math.max(0, expanded - lastExpandedNodes) / seconds : 0;
+		lastSampleTime = now;
+		lastExpandedNodes = expanded;
+		return new SolverProgress((now - startTime) / 1_000_000, expanded, metrics.getGeneratedNodes(),
+				metrics.getDuplicatesPruned(), metrics.getFrontierSize(), metrics.getCostBound(), rate);
+	}
+}
@@ -0,0 +1,281 @@
+package de.amr.games.puzzle15.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+import de.amr.games.puzzle15.model.Dir;
+import de.amr.games.puzzle15.model.Puzzle15;
+
+/**
+ * Parallel IDA* solver for 15-puzzle and other puzzle sizes.
+ *
+ * <p>
+ * In each iteration, the search tree is expanded breadth-first up to a shallow depth until there are
+ * enough subtrees to keep all threads busy. The subtrees are then searched depth-first by the
+ * threads of a {@link ForkJoinPool} (with work stealing), all using the cost bound of the iteration.
+ * The minimum f-value of the cut-off nodes of all subtrees gives the cost bound of the next
+ * iteration. All solvers with the same parallelism share one pool, so creating a solver per puzzle
+ * does not create new threads.
+ *
+ * <p>
+ * Because there is no solution cheaper than the current cost bound, every solution found in an
+ * iteration is optimal. So the first worker finding a solution stops all other workers.
+ *
+ * @author Armin Reichert
+ */
+public class SolverParallelIDAStar extends AbstractSolver {
+
+	// minimum number of subtrees per thread
+	private static final int SUBTREES_PER_THREAD = 8;
+
+	private static final int MAX_SPLIT_DEPTH = 16;
+
+	// thrown inside workers to unwind the search when another worker has finished
+	private static class Cancellation extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		Cancellation() {
+			super(null, null, false, false);
+		}
+	}
+
+	private static final Cancellation CANCELLATION = new Cancellation();
+
+	// pools by parallelism, never shut down (the worker threads are daemons and end when idle)
+	private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+	// root of a subtree: puzzle, moves leading to it from the start puzzle and their move state
+	private record Subtree(Puzzle15 puzzle, int h, Dir[] moves, int moveState) {
+	}
+
+	private final PatternDatabase pdb;
+	private final ForkJoinPool pool;
+	private IDAStarSearch splitSearch;
+	private final AtomicInteger nextCostBound = new AtomicInteger();
+	private final AtomicReference<Dir[]> solution = new AtomicReference<>();
+	private final AtomicReference<SolverGivingUpException> givingUp = new AtomicReference<>();
+	private volatile boolean stopped;
+	private int costBound;
+	private int numSubtrees;
+
+	/**
+	 * Creates a parallel IDA* solver using the Manhattan distance as heuristic and all available
+	 * processors.
+	 *
+	 * @param givingUpCondition condition for giving up
+	 */
+	public SolverParallelIDAStar(Predicate<Solver> givingUpCondition) {
+		this(null, Runtime.getRuntime().availableProcessors(), givingUpCondition);
+	}
+
+	/**
+	 * Creates a parallel IDA* solver.
+	 *
+	 * @param pdb               additive pattern database or <code>null</code> for Manhattan distance.
+	 *                          Only puzzles of the database's size can be solved.
+	 * @param parallelism       number of threads
+	 * @param givingUpCondition condition for giving up
+	 */
+	public SolverParallelIDAStar(PatternDatabase pdb, int parallelism, Predicate<Solver> givingUpCondition) {
+		super(givingUpCondition);
+		this.pdb = pdb;
+		pool = POOLS.computeIfAbsent(parallelism, ForkJoinPool::new);
+		splitSearch = createSplitSearch(pdb != null ? pdb.size() : 4);
+	}
+
+	/**
+	 * @return the pool running the search threads, shared by all solvers with the same parallelism
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	// only used for computing the heuristic of the nodes above the subtrees
+	private IDAStarSearch createSplitSearch(int size) {
+		return new IDAStarSearch(size, pdb) {
+
+			@Override
+			void expanded(int g) {
+			}
+
+			@Override
+			void generated() {
+			}
+		};
+	}
+
+	/**
+	 * @return number of subtrees searched in parallel in the current iteration
+	 */
+	@Override
+	protected int getFrontierSize() {
+		return numSubtrees;
+	}
+
+	@Override
+	public Optional<List<Node>> solve(Puzzle15 puzzle) throws SolverGivingUpException {
+		startClock();
+		resetMaxFrontierSize();
+		solution.set(null);
+		givingUp.set(null);
+		stopped = false;
+		if (puzzle.size() != splitSearch.size) {
+			splitSearch = createSplitSearch(puzzle.size());
+		}
+		if (!puzzle.isSolvable()) {
+			return Optional.empty();
+		}
+		Subtree root = new Subtree(puzzle, splitSearch.load(puzzle), new Dir[0], MoveGenerator.START);
+		costBound = root.h();
+		while (true) {
+			splitSearch.checkCostBound(costBound);
+			updateCostBound(costBound);
+			nextCostBound.set(Integer.MAX_VALUE);
+			List<Subtree> subtrees = split(root);
+			if (solution.get() == null && !subtrees.isEmpty()) {
+				numSubtrees = subtrees.size();
+				updateMaxFrontierSize();
+				maybeGiveUp();
+				pool.invoke(new SearchTask(subtrees, 0, subtrees.size()));
+			}
+			if (givingUp.get() != null) {
+				throw givingUp.get();
+			}
+			if (solution.get() != null) {
+				return Optional.of(solution(puzzle, Arrays.asList(solution.get())));
+			}
+			if (nextCostBound.get() == Integer.MAX_VALUE) {
+				return Optional.empty();
+			}
+			costBound = nextCostBound.get();
+		}
+	}
+
+	/*
+	 * Expands the tree breadth-first up to the cost bound until there are enough subtrees for all
+	 * threads. Stores the solution if it is found while splitting.
+	 */
+	private List<Subtree> split(Subtree root) {
+		MoveGenerator moveGenerator = MoveGenerator.of(root.puzzle().size(), true);
+		List<Subtree> level = new ArrayList<>(List.of(root));
+		int minSubtrees = SUBTREES_PER_THREAD * pool.getParallelism();
+		for (int depth = 0; depth < MAX_SPLIT_DEPTH && level.size() < minSubtrees; ++depth) {
+			List<Subtree> nextLevel = new ArrayList<>();
+			for (Subtree node : level) {
+				if (node.h() == 0) {
+					solution.set(node.moves());
+					return List.of();
+				}
+				countExpandedNode();
+				for (Dir dir : moveGenerator.moves(node.puzzle().blank())) {
+					int moveState = moveGenerator.next(node.moveState(), dir);
+					if (moveState == MoveGenerator.PRUNED) {
+						continue;
+					}
+					countGeneratedNode();
+					Puzzle15 successor = node.puzzle().move(dir);
+					int h = splitSearch.load(successor);
+					int f = node.moves().length + 1 + h;
+					if (f > costBound) {
+						nextCostBound.accumulateAndGet(f, Math::min);
+					} else {
+						Dir[] moves = Arrays.copyOf(node.moves(), node.moves().length + 1);
+						moves[moves.length - 1] = dir;
+						nextLevel.add(new Subtree(successor, h, moves, moveState));
+					}
+				}
+			}
+			level = nextLevel;
+		}
+		return level;
+	}
+
+	private class SearchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient List<Subtree> subtrees; // tasks are never serialized
+		private final int from, to;
+
+		SearchTask(List<Subtree> subtrees, int from, int to) {
+			this.subtrees = subtrees;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (stopped) {
+				return;
+			}
+			if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new SearchTask(subtrees, from, mid), new SearchTask(subtrees, mid, to));
+				return;
+			}
+			Subtree subtree = subtrees.get(from);
+			Worker worker = new Worker(subtree.puzzle().size());
+			int g = subtree.moves().length;
+			System.arraycopy(subtree.moves(), 0, worker.path, 0, g);
+			worker.depth = g;
+			worker.costBound = costBound;
+			worker.nextCostBound = Integer.MAX_VALUE;
+			worker.load(subtree.puzzle());
+			try {
+				if (worker.search(g, subtree.h(), subtree.moveState())
+						&& solution.compareAndSet(null, Arrays.copyOf(worker.path, worker.depth))) {
+					stopped = true;
+				}
+			} catch (SolverGivingUpException x) {
+				givingUp.compareAndSet(null, x);
+				stopped = true;
+			} catch (Cancellation x) {
+				// another worker has finished
+			}
+			worker.flush();
+			nextCostBound.accumulateAndGet(worker.nextCostBound, Math::min);
+		}
+	}
+
+	// counts locally and publishes the counts every 1024 expansions
+	private class Worker extends IDAStarSearch {
+
+		private int expanded, generated;
+
+		Worker(int size) {
+			super(size, pdb);
+		}
+
+		@Override
+		void expanded(int g) throws SolverGivingUpException {
+			if (++expanded == 1024) {
+				flush();
+				if (stopped) {
+					throw CANCELLATION;
+				}
+				maybeGiveUp();
+			}
+		}
+
+		@Override
+		void generated() {
+			++generated;
+		}
+
+		void flush() {
+			getMetrics().addExpanded(expanded);
+			getMetrics().addGenerated(generated);
+			expanded = generated = 0;
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package de.amr.games.puzzle15.solver;
+
+/**
+ * Snapshot of the {@link SolverMetrics} of a running solver taken by a {@link SolverMonitor}.
+ *
+ * @param elapsedMillis       milliseconds since monitoring started
+ * @param expandedNodes       number of nodes expanded
+ * @param generatedNodes      number of successor nodes generated
+ * @param duplicatesPruned    number of generated nodes discarded as duplicates
+ * @param frontierSize        current frontier size
+ * @param costBound           current f-cost bound or 0
+ * @param expansionsPerSecond node expansions per second since the previous snapshot
+ *
+ * @author Armin Reichert
+ */
+public record SolverProgress(long elapsedMillis, long expandedNodes, long generatedNodes, long duplicatesPruned,
+		int frontierSize, int costBound, double expansionsPerSecond) {
+}
@@ -1,6 +1,6 @@
 package de.amr.games.puzzle15.ui;
 
-import static de.amr.games.puzzle15.solver.Solver.frontierSizeMax;
+import static de.amr.games.puzzle15.solver.Solver.memoryMax;
 import static de.amr.games.puzzle15.solver.Solver.runtimeSecMax;
 import static java.util.stream.Collectors.joining;
 
@@ -9,16 +9,22 @@ import java.awt.Color;
 import java.awt.EventQueue;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.ButtonGroup;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JOptionPane;
@@ -32,12 +38,25 @@ import javax.swing.UnsupportedLookAndFeelException;
 import javax.swing.plaf.nimbus.NimbusLookAndFeel;
 
 import de.amr.games.puzzle15.model.Puzzle15;
+import de.amr.games.puzzle15.solver.CachingSolver;
 import de.amr.games.puzzle15.solver.Heuristics;
 import de.amr.games.puzzle15.solver.Node;
+import de.amr.games.puzzle15.solver.PatternDatabase;
+import de.amr.games.puzzle15.solver.PortfolioSolver;
+import de.amr.games.puzzle15.solver.SolutionCache;
 import de.amr.games.puzzle15.solver.Solver;
 import de.amr.games.puzzle15.solver.SolverAStar;
+import de.amr.games.puzzle15.solver.SolverAStarPacked;
+import de.amr.games.puzzle15.solver.SolverAnytimeAStar;
 import de.amr.games.puzzle15.solver.SolverBFS;
+import de.amr.games.puzzle15.solver.SolverBeamSearch;
 import de.amr.games.puzzle15.solver.SolverBestFirstSearch;
+import de.amr.games.puzzle15.solver.SolverBidirectionalBFS;
+import de.amr.games.puzzle15.solver.SolverCancelledException;
+import de.amr.games.puzzle15.solver.SolverIDAStar;
+import de.amr.games.puzzle15.solver.SolverMonitor;
+import de.amr.games.puzzle15.solver.SolverParallelIDAStar;
+import de.amr.games.puzzle15.solver.SolverProgress;
 
 /**
  * 15-puzzle application.
@@ -56,17 +75,33 @@ public class PuzzleApp extends JFrame {
 		EventQueue.invokeLater(PuzzleApp::new);
 	}
 
+	// memory budget of the solvers storing nodes, leaves room for the rest of the application
+	private static final long SOLVER_MEMORY = Runtime.getRuntime().maxMemory() / 2;
+
 	private Puzzle15 puzzle, savedPuzzle;
 	private PuzzleView view;
 	private JTextArea console;
+	private JLabel statusBar;
 	private Solver selectedSolver;
+	private Solver runningSolver;
+	private SolverTask runningTask;
 	private List<Node> solution;
+	private PatternDatabase pdb;
+	private SolutionCache optimalSolutions;
 
 	private Action actionSolveBFS = new AbstractAction("Breadth-First Search") {
 
 		@Override
 		public void actionPerformed(ActionEvent e) {
-			selectedSolver = new SolverBFS(frontierSizeMax(1_000_000));
+			selectedSolver = new SolverBFS(memoryMax(SOLVER_MEMORY));
+		}
+	};
+
+	private Action actionSolveBidirectionalBFS = new AbstractAction("Bidirectional Breadth-First Search") {
+
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			selectedSolver = new SolverBidirectionalBFS(runtimeSecMax(30).or(memoryMax(SOLVER_MEMORY)));
 		}
 	};
 
@@ -74,7 +109,15 @@ public class PuzzleApp extends JFrame {
 
 		@Override
 		public void actionPerformed(ActionEvent e) {
-			selectedSolver = new SolverBestFirstSearch(Heuristics::manhattan, frontierSizeMax(1_000_000));
+			selectedSolver = new SolverBestFirstSearch(Heuristics::manhattan, memoryMax(SOLVER_MEMORY));
+		}
+	};
+
+	private Action actionSolveBeam = new AbstractAction("Beam Search (K = 1000)") {
+
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			selectedSolver = new SolverBeamSearch(pdb, 1000, SolverBeamSearch.DEFAULT_MAX_DEPTH, runtimeSecMax(30));
 		}
 	};
 
@@ -82,8 +125,57 @@ public class PuzzleApp extends JFrame {
 
 		@Override
 		public void actionPerformed(ActionEvent e) {
-			selectedSolver = new SolverAStar(Heuristics::manhattan,
-					frontierSizeMax(1_000_000).or(runtimeSecMax(30)));
+			selectedSolver = new SolverAStar(heuristic(), memoryMax(SOLVER_MEMORY).or(runtimeSecMax(30)));
+		}
+	};
+
+	private Action actionSolveAStarPacked = new AbstractAction("A* Search (Packed States)") {
+
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			selectedSolver = new SolverAStarPacked(pdb, runtimeSecMax(30).or(memoryMax(SOLVER_MEMORY)));
+		}
+	};
+
+	private Action actionSolveAnytimeAStar = new AbstractAction("Anytime A* Search (ARA*)") {
+
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			SolverAnytimeAStar solver = new SolverAnytimeAStar(pdb, 3, 0.5,
+					runtimeSecMax(30).or(memoryMax(SOLVER_MEMORY)));
+			solver.addListener((solution, weight, bound) -> EventQueue.invokeLater(() -> writeConsole(String
+					.format("Weight %.2f: solution of length %d, at most %.2f times optimal", weight, solution.size() - 1, bound))));
+			selectedSolver = solver;
+		}
+	};
+
+	private Action actionSolveIDAStar = new AbstractAction("IDA* Search") {
+
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			selectedSolver = new SolverIDAStar(pdb, runtimeSecMax(30));
+		}
+	};
+
+	private Action actionSolveParallelIDAStar = new AbstractAction("IDA* Search (Parallel)") {
+
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			selectedSolver = new SolverParallelIDAStar(pdb, Runtime.getRuntime().availableProcessors(),
+					runtimeSecMax(30));
+		}
+	};
+
+	private Action actionSolvePortfolio = new AbstractAction("Portfolio (IDA*, A*, Best-First)") {
+
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			/*@formatter:off*/
+			selectedSolver = new PortfolioSolver(true)
+				.add(new SolverIDAStar(pdb, runtimeSecMax(30)), true)
+				.add(new SolverAStarPacked(pdb, runtimeSecMax(30).or(memoryMax(SOLVER_MEMORY))), true)
+				.add(new SolverBestFirstSearch(Heuristics::manhattan, memoryMax(SOLVER_MEMORY)), false);
+			/*@formatter:on*/
 		}
 	};
 
@@ -91,9 +183,24 @@ public class PuzzleApp extends JFrame {
 
 		@Override
 		public void actionPerformed(ActionEvent e) {
-			if (selectedSolver != null) {
+			if (selectedSolver != null && runningSolver == null) {
 				writeConsole(String.format("\nSolving puzzle using %s...", selectedSolverName()));
-				new SolverTask().execute();
+				// optimal solvers share their solutions
+				runningSolver = isOptimal(selectedSolver) ? new CachingSolver(selectedSolver, optimalSolutions)
+						: selectedSolver;
+				runningTask = new SolverTask();
+				runningTask.execute();
+				updateActionState();
+			}
+		}
+	};
+
+	private Action actionCancelSolver = new AbstractAction("Cancel") {
+
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			if (runningTask != null) {
+				runningTask.requestCancel();
 			}
 		}
 	};
@@ -165,13 +272,41 @@ public class PuzzleApp extends JFrame {
 
 	private class SolverTask extends SwingWorker<Optional<List<Node>>, Void> {
 
+		private volatile boolean cancelRequested;
+
+		/*
+		 * A solver ignores a cancellation made before its run has started, so the request is repeated with
+		 * each progress report until the run has ended.
+		 */
+		void requestCancel() {
+			cancelRequested = true;
+			runningSolver.cancel();
+		}
+
 		@Override
 		protected Optional<List<Node>> doInBackground() throws Exception {
-			return selectedSolver.solve(puzzle);
+			Solver solver = runningSolver;
+			SolverMonitor monitor = new SolverMonitor(solver, 250);
+			monitor.addListener(progress -> {
+				if (cancelRequested) {
+					solver.cancel();
+				}
+				EventQueue.invokeLater(() -> showProgress(progress));
+			});
+			monitor.start();
+			try {
+				return runningSolver.solve(puzzle);
+			} finally {
+				monitor.stop();
+			}
 		}
 
 		@Override
 		protected void done() {
+			Solver solver = runningSolver;
+			runningSolver = null;
+			runningTask = null;
+			updateActionState();
 			try {
 				Optional<List<Node>> solution = get();
 				if (!solution.isPresent()) {
@@ -180,11 +315,21 @@ public class PuzzleApp extends JFrame {
 					return;
 				}
 				setSolution(solution.get());
-				writeConsole("Max queue size " + selectedSolver.getMaxFrontierSize());
+				if (solver instanceof CachingSolver caching && caching.isCacheHit()) {
+					writeConsole("Solution taken from cache");
+				}
+				if (solver instanceof PortfolioSolver portfolio) {
+					writeConsole("Solution found by " + portfolio.getWinner().getClass().getSimpleName());
+				}
+				writeConsole("Max queue size " + solver.getMaxFrontierSize());
 				writeConsole("Found solution of length " + (solution.get().size() - 1));
 				writeConsole(solution.get().stream().map(Node::getDir).filter(Objects::nonNull).map(Object::toString)
 						.collect(joining(" ")));
 			} catch (ExecutionException x) {
+				if (x.getCause() instanceof SolverCancelledException) {
+					writeConsole("Solver cancelled");
+					return;
+				}
 				writeConsole("Solver aborted: " + x.getMessage());
 				x.printStackTrace();
 			} catch (InterruptedException x) {
@@ -195,21 +340,85 @@ public class PuzzleApp extends JFrame {
 		}
 	}
 
+	private Function<Node, Integer> heuristic() {
+		return pdb != null ? Heuristics.patternDatabase(pdb) : Heuristics::linearConflict;
+	}
+
+	private void loadPatternDatabase() {
+		Path file = Path.of(System.getProperty("puzzle15.pdb", "pdb555.dat"));
+		if (Files.exists(file)) {
+			try {
+				pdb = PatternDatabase.load(file);
+				writeConsole("Pattern database loaded from " + file);
+			} catch (IOException x) {
+				writeConsole("Could not load pattern database: " + x.getMessage());
+			}
+		}
+	}
+
+	private void createSolutionCache() {
+		String file = System.getProperty("puzzle15.cache");
+		try {
+			optimalSolutions = new SolutionCache(16 * 1024 * 1024, file != null ? Path.of(file) : null);
+			if (file != null) {
+				writeConsole(String.format("Solution cache %s loaded, %d puzzles", file, optimalSolutions.size()));
+			}
+		} catch (UncheckedIOException | IllegalStateException x) {
+			writeConsole("Could not load solution cache: " + x.getMessage());
+			optimalSolutions = new SolutionCache(16 * 1024 * 1024);
+		}
+	}
+
 	private void writeConsole(String text) {
 		console.append(text + "\n");
 		System.out.println(text);
 	}
 
+	private void showProgress(SolverProgress p) {
+		statusBar.setText(String.format(
+				"%.1f s | expanded: %,d | generated: %,d | duplicates: %,d | frontier: %,d | f-bound: %d | %,.0f nodes/s",
+				p.elapsedMillis() / 1000f, p.expandedNodes(), p.generatedNodes(), p.duplicatesPruned(), p.frontierSize(),
+				p.costBound(), p.expansionsPerSecond()));
+	}
+
+	// best-first search, beam search, anytime A* (when giving up) and the portfolio (which may fall back
+	// to best-first search) do not always return optimal solutions
+	private boolean isOptimal(Solver solver) {
+		return solver.getClass() != SolverBestFirstSearch.class && solver.getClass() != SolverBeamSearch.class
+				&& solver.getClass() != SolverAnytimeAStar.class && solver.getClass() != PortfolioSolver.class;
+	}
+
 	private String selectedSolverName() {
 		if (selectedSolver.getClass() == SolverBFS.class) {
 			return "Breadth-First Search";
 		}
+		if (selectedSolver.getClass() == SolverBidirectionalBFS.class) {
+			return "Bidirectional Breadth-First Search";
+		}
 		if (selectedSolver.getClass() == SolverBestFirstSearch.class) {
 			return "Best-First Search";
 		}
+		if (selectedSolver.getClass() == SolverBeamSearch.class) {
+			return "Beam Search (K = 1000)";
+		}
 		if (selectedSolver.getClass() == SolverAStar.class) {
 			return "A* Search";
 		}
+		if (selectedSolver.getClass() == SolverAStarPacked.class) {
+			return "A* Search (Packed States)";
+		}
+		if (selectedSolver.getClass() == SolverAnytimeAStar.class) {
+			return "Anytime A* Search (ARA*)";
+		}
+		if (selectedSolver.getClass() == SolverIDAStar.class) {
+			return "IDA* Search";
+		}
+		if (selectedSolver.getClass() == SolverParallelIDAStar.class) {
+			return "IDA* Search (Parallel)";
+		}
+		if (selectedSolver.getClass() == PortfolioSolver.class) {
+			return "Portfolio (IDA*, A*, Best-First)";
+		}
 		return "";
 	}
 
@@ -220,10 +429,18 @@ public class PuzzleApp extends JFrame {
 
 	private void updateActionState() {
 		boolean solvable = puzzle.isSolvable();
-		actionRunSolver.setEnabled(solvable);
+		actionRunSolver.setEnabled(solvable && runningSolver == null);
+		actionCancelSolver.setEnabled(runningSolver != null);
+		actionSolvePortfolio.setEnabled(solvable);
 		actionSolveAStar.setEnabled(solvable);
+		actionSolveAStarPacked.setEnabled(solvable);
+		actionSolveAnytimeAStar.setEnabled(solvable);
+		actionSolveIDAStar.setEnabled(solvable);
+		actionSolveParallelIDAStar.setEnabled(solvable);
 		actionSolveBestFirst.setEnabled(solvable);
+		actionSolveBeam.setEnabled(solvable);
 		actionSolveBFS.setEnabled(solvable);
+		actionSolveBidirectionalBFS.setEnabled(solvable);
 		actionPlaySolution.setEnabled(solution != null && solution.size() > 0);
 	}
 
@@ -255,6 +472,13 @@ public class PuzzleApp extends JFrame {
 		console.setLineWrap(true);
 		add(new JScrollPane(console), BorderLayout.EAST);
 
+		statusBar = new JLabel(" ");
+		statusBar.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+		add(statusBar, BorderLayout.SOUTH);
+
+		loadPatternDatabase();
+		createSolutionCache();
+
 		setJMenuBar(new JMenuBar());
 
 		JMenu puzzleMenu = new JMenu("Puzzle");
@@ -265,15 +489,24 @@ public class PuzzleApp extends JFrame {
 
 		JMenu solverMenu = new JMenu("Solver");
 		solverMenu.add(actionRunSolver);
+		solverMenu.add(actionCancelSolver);
 		solverMenu.add(actionPlaySolution);
 		solverMenu.addSeparator();
 		ButtonGroup bg = new ButtonGroup();
 		bg.add(solverMenu.add(new JRadioButtonMenuItem(actionSolveBestFirst)));
+		bg.add(solverMenu.add(new JRadioButtonMenuItem(actionSolveBeam)));
 		bg.add(solverMenu.add(new JRadioButtonMenuItem(actionSolveAStar)));
+		bg.add(solverMenu.add(new JRadioButtonMenuItem(actionSolveAStarPacked)));
+		bg.add(solverMenu.add(new JRadioButtonMenuItem(actionSolveAnytimeAStar)));
+		bg.add(solverMenu.add(new JRadioButtonMenuItem(actionSolveIDAStar)));
+		bg.add(solverMenu.add(new JRadioButtonMenuItem(actionSolveParallelIDAStar)));
 		bg.add(solverMenu.add(new JRadioButtonMenuItem(actionSolveBFS)));
+		bg.add(solverMenu.add(new JRadioButtonMenuItem(actionSolveBidirectionalBFS)));
+		bg.add(solverMenu.add(new JRadioButtonMenuItem(actionSolvePortfolio)));
 		getJMenuBar().add(solverMenu);
 		bg.getElements().nextElement().setSelected(true);
-		selectedSolver = new SolverBestFirstSearch(Heuristics::manhattan, frontierSizeMax(1_000_000));
+		selectedSolver = new SolverBestFirstSearch(Heuristics::manhattan, memoryMax(SOLVER_MEMORY));
+		updateActionState();
 
 		pack();
 		setLocationRelativeTo(null);
@@ -0,0 +1,127 @@
+package de.amr.games.puzzle15.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.amr.games.puzzle15.model.Dir;
+import de.amr.games.puzzle15.solver.NodeArena;
+
+public class NodeArenaTest {
+
+	private NodeArena arena;
+
+	@Before
+	public void setUp() {
+		arena = new NodeArena(2);
+	}
+
+	@Test
+	public void testGrowth() {
+		for (int i = 0; i < 100; ++i) {
+			assertEquals(i, arena.add(1000 + i, i - 1, i % 4, i, i % 50));
+		}
+		assertEquals(100, arena.size());
+		assertTrue(arena.capacity() >= 100);
+		assertEquals((long) arena.capacity() * NodeArena.BYTES_PER_NODE, arena.memoryUsage());
+		for (int i = 0; i < 100; ++i) {
+			assertEquals(1000 + i, arena.state(i));
+			assertEquals(i - 1, arena.parent(i));
+			assertEquals(i % 4, arena.dir(i));
+			assertEquals(i, arena.g(i));
+			assertEquals(i % 50, arena.h(i));
+			assertEquals(i + i % 50, arena.f(i));
+		}
+	}
+
+	@Test
+	public void testGrowthFromZeroCapacity() {
+		NodeArena empty = new NodeArena(0);
+		assertEquals(0, empty.add(42, NodeArena.NO_PARENT, NodeArena.NO_DIR, 0, 0));
+		assertEquals(42, empty.state(0));
+	}
+
+	@Test
+	public void testValueRange() {
+		int node = arena.add(0, NodeArena.NO_PARENT, NodeArena.NO_DIR, NodeArena.MAX_VALUE, NodeArena.MAX_VALUE);
+		assertEquals(NodeArena.MAX_VALUE, arena.g(node));
+		assertEquals(NodeArena.MAX_VALUE, arena.h(node));
+		assertEquals(2 * NodeArena.MAX_VALUE, arena.f(node));
+		assertRejected(-1, 0);
+		assertRejected(0, -1);
+		assertRejected(NodeArena.MAX_VALUE + 1, 0);
+		assertRejected(0, NodeArena.MAX_VALUE + 1);
+		assertEquals(1, arena.size());
+	}
+
+	private void assertRejected(int g, int h) {
+		try {
+			arena.add(0, NodeArena.NO_PARENT, NodeArena.NO_DIR, g, h);
+			fail("Accepted g=" + g + ", h=" + h);
+		} catch (IllegalArgumentException x) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testParentLinks() {
+		int root = arena.add(0, NodeArena.NO_PARENT, NodeArena.NO_DIR, 0, 10);
+		int a = arena.add(1, root, Dir.UP.ordinal(), 1, 9);
+		int b = arena.add(2, a, Dir.LEFT.ordinal(), 2, 8);
+		int c = arena.add(3, root, Dir.RIGHT.ordinal(), 1, 9);
+		assertEquals(List.of(), arena.movesTo(root));
+		assertEquals(List.of(Dir.UP, Dir.LEFT), arena.movesTo(b));
+		assertEquals(List.of(Dir.RIGHT), arena.movesTo(c));
+
+		// cheaper path to b via c
+		arena.setPath(b, c, Dir.DOWN.ordinal(), 2);
+		assertEquals(c, arena.parent(b));
+		assertEquals(List.of(Dir.RIGHT, Dir.DOWN), arena.movesTo(b));
+	}
+
+	@Test
+	public void testReuse() {
+		for (int i = 0; i < 10; ++i) {
+			int node = arena.add(i, NodeArena.NO_PARENT, NodeArena.NO_DIR, 0, 0);
+			arena.setFlags(node, 1);
+			assertTrue(arena.hasFlag(node, 1));
+		}
+		int capacity = arena.capacity();
+		arena.clear();
+		assertEquals(0, arena.size());
+		assertEquals(capacity, arena.capacity());
+		int node = arena.add(42, NodeArena.NO_PARENT, NodeArena.NO_DIR, 0, 5);
+		assertEquals(0, node);
+		assertEquals(42, arena.state(node));
+		assertEquals(0, arena.flags(node));
+		assertFalse(arena.hasFlag(node, 1));
+		assertEquals(1, arena.size());
+	}
+
+	@Test
+	public void testHeuristicState() {
+		NodeArena scored = new NodeArena(2, true);
+		for (int i = 0; i < 100; ++i) {
+			int node = scored.add(i, NodeArena.NO_PARENT, NodeArena.NO_DIR, 0, 0);
+			assertEquals(0, scored.heuristic(node));
+			assertEquals(-1, scored.heuristicState(node));
+			scored.setHeuristicState(node, (byte) 3, i << 16 | i);
+		}
+		assertEquals((long) scored.capacity() * (NodeArena.BYTES_PER_NODE + NodeArena.HEURISTIC_STATE_BYTES),
+				scored.memoryUsage());
+		for (int i = 0; i < 100; ++i) {
+			assertEquals(3, scored.heuristic(i));
+			assertEquals(i << 16 | i, scored.heuristicState(i));
+		}
+		scored.clear();
+		int node = scored.add(42, NodeArena.NO_PARENT, NodeArena.NO_DIR, 0, 0);
+		assertEquals(0, scored.heuristic(node));
+		assertEquals(-1, scored.heuristicState(node));
+	}
+}
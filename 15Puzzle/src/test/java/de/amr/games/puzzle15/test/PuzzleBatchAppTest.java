@@ -0,0 +1,105 @@
+package de.amr.games.puzzle15.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import de.amr.games.puzzle15.batch.PuzzleBatchApp;
+import de.amr.games.puzzle15.solver.CsvSolverListener;
+
+public class PuzzleBatchAppTest {
+
+	private void assertIllegal(String... args) {
+		try {
+			new PuzzleBatchApp(System.out).parseArgs(args);
+			fail("Accepted illegal arguments: " + Arrays.toString(args));
+		} catch (IllegalArgumentException x) {
+			System.out.println(x.getMessage());
+		}
+	}
+
+	@Test
+	public void testParseArgs() {
+		new PuzzleBatchApp(System.out).parseArgs(new String[] { "--solver", "AStarPacked", "--threads", "2",
+				"--in-flight", "3", "--timeout", "10", "--memory", "100", "--progress", "progress.csv", "--virtual",
+				"input.txt" });
+		assertIllegal("--solver", "NoSuchSolver");
+		assertIllegal("--threads");
+		assertIllegal("--threads", "0");
+		assertIllegal("--beam", "wide");
+		assertIllegal("--progress");
+		assertIllegal("--unknown");
+		assertIllegal("first.txt", "second.txt");
+	}
+
+	private List<String> runBatch(Path input, String... options) throws IOException, InterruptedException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PuzzleBatchApp app = new PuzzleBatchApp(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+		String[] args = Arrays.copyOf(options, options.length + 1);
+		args[options.length] = input.toString();
+		app.parseArgs(args);
+		app.run();
+		return bytes.toString(StandardCharsets.UTF_8).lines().collect(Collectors.toList());
+	}
+
+	@Test
+	public void testBatchRun() throws IOException, InterruptedException {
+		Path input = Files.createTempFile("puzzles", ".txt");
+		try {
+			Files.write(input, List.of( //
+					"# three puzzles", //
+					"5 1 7 3 9 2 11 4 13 6 15 8 0 10 14 12", //
+					"", //
+					"2,1,3,4,5,6,7,8,9,10,11,12,13,14,15,0", //
+					"1 2 3 4 5"));
+			for (String[] options : List.of(new String[] { "--threads", "2" }, new String[] { "--virtual" })) {
+				List<String> lines = runBatch(input, options);
+				assertEquals(4, lines.size());
+				assertEquals(PuzzleBatchApp.HEADER, lines.get(0));
+				List<String> results = lines.subList(1, 4).stream().sorted().collect(Collectors.toList());
+				assertTrue(results.get(0).startsWith("2,solved,15,"));
+				assertTrue(results.get(0).endsWith(",DOWN DOWN DOWN LEFT UP UP UP LEFT DOWN DOWN DOWN LEFT UP UP UP"));
+				assertEquals("4,unsolvable,-1,0,0,", results.get(1));
+				assertEquals("5,invalid,-1,0,0,", results.get(2));
+			}
+		} finally {
+			Files.delete(input);
+		}
+	}
+
+	@Test
+	public void testProgress() throws IOException, InterruptedException {
+		Path input = Files.createTempFile("puzzles", ".txt");
+		Path progress = Files.createTempFile("progress", ".csv");
+		try {
+			Files.write(input, List.of( //
+					"5 1 7 3 9 2 11 4 13 6 15 8 0 10 14 12", //
+					"2,1,3,4,5,6,7,8,9,10,11,12,13,14,15,0", //
+					"5 2 4 8 10 0 3 14 13 6 11 12 1 15 9 7"));
+			runBatch(input, "--threads", "2", "--progress", progress.toString());
+			List<String> lines = Files.readAllLines(progress);
+			assertEquals("line," + CsvSolverListener.HEADER, lines.get(0));
+			// at least the final progress of each solved puzzle, nothing for the unsolvable one
+			assertTrue(lines.stream().anyMatch(line -> line.startsWith("1,")));
+			assertTrue(lines.stream().anyMatch(line -> line.startsWith("3,")));
+			assertTrue(lines.stream().noneMatch(line -> line.startsWith("2,")));
+			int columns = lines.get(0).split(",").length;
+			assertTrue(lines.stream().allMatch(line -> line.split(",").length == columns));
+		} finally {
+			Files.delete(input);
+			Files.delete(progress);
+		}
+	}
+}
@@ -4,10 +4,17 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.Random;
+
 import org.junit.Before;
 import org.junit.Test;
 
+import de.amr.games.puzzle15.model.Dir;
+import de.amr.games.puzzle15.model.PackedPuzzle15;
+import de.amr.games.puzzle15.model.Permutations;
 import de.amr.games.puzzle15.model.Puzzle15;
+import de.amr.games.puzzle15.model.PuzzleIndex;
 
 public class PuzzleModelTest {
 
@@ -104,4 +111,174 @@ public class PuzzleModelTest {
 		assertEquals(1, p.numInversions());
 	}
 
+	@Test
+	public void testPacked() {
+		assertEquals(PackedPuzzle15.ORDERED, puzzle.packed());
+		assertTrue(PackedPuzzle15.isOrdered(puzzle.packed()));
+		Puzzle15 p = Puzzle15.of(5, 1, 7, 3, 9, 2, 11, 4, 13, 6, 15, 8, 0, 10, 14, 12);
+		assertEquals(p, Puzzle15.ofPacked(p.packed()));
+		assertEquals(p.blank(), PackedPuzzle15.blank(p.packed()));
+		assertEquals(15, PackedPuzzle15.get(p.packed(), 10));
+	}
+
+	@Test
+	public void testPackedMoves() {
+		Puzzle15 p = Puzzle15.randomMoves(30);
+		for (Dir dir : Dir.values()) {
+			int blank = PackedPuzzle15.blank(p.packed());
+			int target = PackedPuzzle15.target(blank, dir);
+			assertEquals(p.canMove(dir), target != -1);
+			if (target != -1) {
+				long state = PackedPuzzle15.move(p.packed(), blank, target);
+				assertEquals(p.move(dir).packed(), state);
+				assertEquals(target, PackedPuzzle15.blank(state));
+			}
+		}
+	}
+
+	@Test
+	public void testPackedEquality() {
+		Puzzle15 p = puzzle.move(Dir.DOWN).move(Dir.RIGHT).move(Dir.UP).move(Dir.LEFT);
+		int[] cells = new int[p.numCells()];
+		for (int i = 0; i < cells.length; ++i) {
+			cells[i] = p.get(i);
+		}
+		Puzzle15 q = Puzzle15.of(cells);
+		assertEquals(q.packed(), p.packed());
+		assertEquals(q, p);
+		assertEquals(q.hashCode(), p.hashCode());
+		assertFalse(puzzle.equals(p));
+		assertEquals(puzzle, puzzle.move(Dir.DOWN).move(Dir.UP));
+		assertEquals(puzzle.hashCode(), puzzle.move(Dir.DOWN).move(Dir.UP).hashCode());
+	}
+
+	@Test
+	public void testPackedSmallPuzzle() {
+		Puzzle15 p = Puzzle15.of(1, 2, 3, 4, 5, 6, 7, 8, 0).move(Dir.DOWN).move(Dir.RIGHT);
+		assertEquals(p, Puzzle15.ofPacked(3, p.packed()));
+		assertEquals(Puzzle15.of(1, 2, 3, 4, 0, 5, 7, 8, 6), p);
+		assertEquals(0, PackedPuzzle15.get(p.packed(), 4));
+		assertEquals(5, PackedPuzzle15.get(p.packed(), 5));
+		assertFalse(Puzzle15.ordered(2).equals(Puzzle15.of(1, 2, 3, 0, 0, 0, 0, 0, 0)));
+	}
+
+	@Test
+	public void testPermutationRank() {
+		byte[] perm = new byte[6];
+		for (long rank = 0; rank < Permutations.factorial(6); ++rank) {
+			Permutations.unrank(rank, 6, perm);
+			assertEquals(rank, Permutations.rank(perm, 6));
+		}
+		Permutations.unrank(0, 6, perm);
+		assertTrue(Arrays.equals(new byte[] { 0, 1, 2, 3, 4, 5 }, perm));
+		byte[] positions = new byte[5];
+		for (long rank = 0; rank < Permutations.numPartial(16, 5); rank += 997) {
+			Permutations.unrankPartial(rank, 5, 16, positions);
+			assertEquals(rank, Permutations.rankPartial(positions, 5, 16));
+		}
+		// ranking mapped values equals ranking the mapped copy
+		byte[] reversed = new byte[16], values = new byte[16], mapped = new byte[3];
+		for (byte i = 0; i < 16; ++i) {
+			reversed[i] = (byte) (15 - i);
+			values[i] = (byte) (3 * i % 16);
+		}
+		int[] elements = { 7, 2, 11 };
+		for (int i = 0; i < elements.length; ++i) {
+			mapped[i] = reversed[values[elements[i]]];
+		}
+		assertEquals(Permutations.rankPartial(mapped, 3, 16), Permutations.rankPartial(values, elements, reversed, 16));
+	}
+
+	@Test
+	public void testPuzzleIndex() {
+		assertEquals(181_440, PuzzleIndex.PUZZLE8.size());
+		assertEquals(10_461_394_944_000L, PuzzleIndex.PUZZLE15.size());
+		Random rnd = new Random(15);
+		for (int i = 0; i < 1000; ++i) {
+			Puzzle15 p = Puzzle15.randomMoves(100, rnd);
+			long index = PuzzleIndex.PUZZLE15.index(p.packed());
+			assertTrue(index >= 0 && index < PuzzleIndex.PUZZLE15.size());
+			assertEquals(p.packed(), PuzzleIndex.PUZZLE15.state(index));
+		}
+	}
+
+	@Test
+	public void testPuzzle8() {
+		Puzzle15 p = Puzzle15.ordered(3);
+		assertEquals(3, p.size());
+		assertEquals(9, p.numCells());
+		assertTrue(p.isOrdered());
+		assertEquals(8, p.blank());
+		assertFalse(p.canMoveUp());
+		assertFalse(p.canMoveLeft());
+		Puzzle15 result = p.down().right();
+		assertTrue(result.hasNumbers(1, 2, 3, 4, 0, 5, 7, 8, 6));
+		assertEquals(p, result.left().up());
+		assertTrue(Puzzle15.of(8, 6, 7, 2, 5, 4, 3, 0, 1).isSolvable());
+		assertFalse(Puzzle15.of(2, 1, 3, 4, 5, 6, 7, 8, 0).isSolvable());
+		for (int i = 0; i < 100; ++i) {
+			assertTrue(Puzzle15.randomMoves(3, 50, new Random(i)).isSolvable());
+		}
+	}
+
+	@Test
+	public void testPuzzle24() {
+		Puzzle15 p = Puzzle15.ordered(5);
+		assertEquals(5, p.size());
+		assertEquals(24, p.blank());
+		assertEquals(4, p.rowOf(p.blank()));
+		assertEquals(4, p.colOf(p.blank()));
+		Puzzle15 result = p.down().down().right();
+		assertEquals(13, result.blank());
+		assertEquals(p, result.left().up().up());
+		assertFalse(Puzzle15.of(2, 1, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 0)
+				.isSolvable());
+		for (int i = 0; i < 100; ++i) {
+			assertTrue(Puzzle15.randomMoves(5, 100, new Random(i)).isSolvable());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNotSquare() {
+		Puzzle15.of(1, 2, 3, 4, 5, 6, 7, 0);
+	}
+
+	@Test
+	public void testPuzzle8DistanceTable() {
+		// breadth-first search over all solvable 8-puzzle states using a flat distance table
+		PuzzleIndex index = PuzzleIndex.PUZZLE8;
+		byte[] dist = new byte[(int) index.size()];
+		Arrays.fill(dist, (byte) -1);
+		int[] queue = new int[dist.length];
+		int head = 0, tail = 0, maxDist = 0;
+		byte[] cells = { 1, 2, 3, 4, 5, 6, 7, 8, 0 };
+		queue[tail++] = (int) index.index(cells);
+		dist[queue[0]] = 0;
+		while (head < tail) {
+			int current = queue[head++];
+			index.cells(current, cells);
+			int blank = 0;
+			while (cells[blank] != 0) {
+				++blank;
+			}
+			for (int target : new int[] { blank - 3, blank + 3, blank % 3 > 0 ? blank - 1 : -1,
+					blank % 3 < 2 ? blank + 1 : -1 }) {
+				if (target < 0 || target > 8) {
+					continue;
+				}
+				cells[blank] = cells[target];
+				cells[target] = 0;
+				int next = (int) index.index(cells);
+				if (dist[next] == -1) {
+					dist[next] = (byte) (dist[current] + 1);
+					maxDist = Math.max(maxDist, dist[next]);
+					queue[tail++] = next;
+				}
+				cells[target] = cells[blank];
+				cells[blank] = 0;
+			}
+		}
+		assertEquals(181_440, tail);
+		assertEquals(31, maxDist);
+	}
 }
@@ -1,20 +1,63 @@
 package de.amr.games.puzzle15.test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.junit.Test;
 
+import de.amr.games.puzzle15.batch.DistanceStatistics;
+import de.amr.games.puzzle15.model.Dir;
 import de.amr.games.puzzle15.model.Puzzle15;
+import de.amr.games.puzzle15.solver.AbstractSolver;
+import de.amr.games.puzzle15.solver.CachingSolver;
 import de.amr.games.puzzle15.solver.Heuristics;
+import de.amr.games.puzzle15.solver.MoveGenerator;
 import de.amr.games.puzzle15.solver.Node;
+import de.amr.games.puzzle15.solver.NodeArena;
+import de.amr.games.puzzle15.solver.PatternDatabase;
+import de.amr.games.puzzle15.solver.PatternDatabaseGenerator;
+import de.amr.games.puzzle15.solver.PortfolioSolver;
 import de.amr.games.puzzle15.solver.Solver;
 import de.amr.games.puzzle15.solver.SolverAStar;
+import de.amr.games.puzzle15.solver.SolverAStarPacked;
+import de.amr.games.puzzle15.solver.SolverAnytimeAStar;
+import de.amr.games.puzzle15.solver.SolverBFS;
+import de.amr.games.puzzle15.solver.SolverBeamSearch;
+import de.amr.games.puzzle15.solver.SolverBestFirstSearch;
+import de.amr.games.puzzle15.solver.SolverBidirectionalBFS;
+import de.amr.games.puzzle15.solver.SolverCancelledException;
+import de.amr.games.puzzle15.solver.SolverExternalBFS;
 import de.amr.games.puzzle15.solver.SolverGivingUpException;
 import de.amr.games.puzzle15.solver.SolverHillClimbing;
+import de.amr.games.puzzle15.solver.SolverIDAStar;
 import de.amr.games.puzzle15.solver.SolverIDDFS;
+import de.amr.games.puzzle15.solver.SolverListener;
+import de.amr.games.puzzle15.solver.SolverMonitor;
+import de.amr.games.puzzle15.solver.SolverParallelIDAStar;
+import de.amr.games.puzzle15.solver.SolverProgress;
 
 /**
  * https://codegolf.stackexchange.com/questions/6884/solve-the-15-puzzle-the-tile-sliding-puzzle
@@ -24,10 +67,12 @@ public class PuzzleSolverTest {
 
 	public static final int MAX_Q_SIZE = 100_000;
 
-	private void test(Solver solver, int... cells) {
-		if (cells.length != 16) {
-			throw new IllegalArgumentException("Illegal number of cells" + cells.length);
-		}
+	private Optional<List<Node>> test(Solver solver, int... cells) {
+		return test(solver, false, cells);
+	}
+
+	// if the solver may give up, giving up returns an empty result instead of failing the test
+	private Optional<List<Node>> test(Solver solver, boolean mayGiveUp, int... cells) {
 		Puzzle15 puzzle = Puzzle15.of(cells);
 		System.out.println(puzzle);
 		try {
@@ -35,21 +80,65 @@ public class PuzzleSolverTest {
 			if (!solution.isPresent()) {
 				System.out.println("No solution found");
 			} else {
-				System.out.println(String.format("Solution length=%d, max queue size=%,d", solution.get().size(),
-						solver.getMaxFrontierSize()));
+				System.out.println(String.format("Solution length=%d, max queue size=%,d, expanded nodes=%,d",
+						solution.get().size(), solver.getMaxFrontierSize(), solver.getMetrics().getExpandedNodes()));
 				System.out.println(solution.get().stream().map(Node::getDir).filter(Objects::nonNull).map(String::valueOf)
 						.collect(Collectors.joining(" ")));
 				System.out.println();
 			}
+			return solution;
 		} catch (SolverGivingUpException e) {
-			e.printStackTrace();
+			if (mayGiveUp) {
+				System.out.println(solver.getClass().getSimpleName() + " gave up: " + e.getMessage());
+				return Optional.empty();
+			}
+			fail(solver.getClass().getSimpleName() + " gave up: " + e.getMessage());
+			return Optional.empty();
 		}
 	}
 
-	private void testAStar(int... cells) {
+	// gives up when the queue size exceeds MAX_Q_SIZE
+	private Optional<List<Node>> testAStar(int... cells) {
 		System.out.println("A* solver:");
-		test(new SolverAStar(node -> Heuristics.manhattanDistFromOrdered(node.getPuzzle()),
-				s -> s.getMaxFrontierSize() > MAX_Q_SIZE), cells);
+		return test(new SolverAStar(node -> Heuristics.manhattanDistFromOrdered(node.getPuzzle()),
+				s -> s.getMaxFrontierSize() > MAX_Q_SIZE), true, cells);
+	}
+
+	private Optional<List<Node>> testAStarPacked(int maxFrontierSize, int... cells) {
+		System.out.println("A* solver (packed states):");
+		return test(new SolverAStarPacked(s -> s.getMaxFrontierSize() > maxFrontierSize), cells);
+	}
+
+	// returns the solution lengths reported for each improvement, in order
+	private List<Integer> testAnytimeAStar(int... cells) {
+		System.out.println("Anytime A* solver:");
+		SolverAnytimeAStar solver = new SolverAnytimeAStar(s -> false);
+		List<Integer> lengths = new ArrayList<>();
+		solver.addListener((solution, weight, bound) -> {
+			System.out.println(String.format("Weight %.2f: solution length=%d, bound=%.2f", weight, solution.size(), bound));
+			lengths.add(solution.size());
+		});
+		Optional<List<Node>> solution = test(solver, cells);
+		for (int i = 1; i < lengths.size(); ++i) {
+			assertTrue(lengths.get(i) <= lengths.get(i - 1));
+		}
+		assertEquals(lengths.get(lengths.size() - 1).intValue(), solution.get().size());
+		return lengths;
+	}
+
+	private Optional<List<Node>> testBeamSearch(int beamWidth, int... cells) {
+		System.out.println("Beam search solver (K = " + beamWidth + "):");
+		return test(new SolverBeamSearch(beamWidth, s -> false), cells);
+	}
+
+	private Optional<List<Node>> testBidirectionalBFS(int... cells) {
+		System.out.println("Bidirectional BFS solver:");
+		return test(new SolverBidirectionalBFS(s -> false), cells);
+	}
+
+	private Optional<List<Node>> testExternalBFS(int... cells) {
+		System.out.println("External-memory BFS solver:");
+		return test(new SolverExternalBFS(s -> false), cells);
 	}
 
 	private void testHillClimbing(int... cells) {
@@ -62,16 +151,29 @@ public class PuzzleSolverTest {
 		test(new SolverIDDFS(), cells);
 	}
 
+	private Optional<List<Node>> testIDAStar(int... cells) {
+		System.out.println("IDA* solver:");
+		return test(new SolverIDAStar(s -> false), cells);
+	}
+
+	private Optional<List<Node>> testParallelIDAStar(int... cells) {
+		System.out.println("Parallel IDA* solver:");
+		return test(new SolverParallelIDAStar(s -> false), cells);
+	}
+
 	@Test
 	public void test1() {
 		// DOWN DOWN DOWN LEFT UP UP UP LEFT DOWN DOWN DOWN LEFT UP UP UP
 
 		// A*: fast, Solution length=16, max queue size=18
-		testAStar(5, 1, 7, 3, 9, 2, 11, 4, 13, 6, 15, 8, 0, 10, 14, 12);
+		assertEquals(16, testAStar(5, 1, 7, 3, 9, 2, 11, 4, 13, 6, 15, 8, 0, 10, 14, 12).get().size());
 
-		// IDDFS: medium, Solution length=26, max queue size=34
+		// IDDFS: medium, Solution length=16 (no visited set, so the shortest solution is found)
 		testIDDFS(5, 1, 7, 3, 9, 2, 11, 4, 13, 6, 15, 8, 0, 10, 14, 12);
 
+		// External-memory BFS: medium, Solution length=16
+		assertEquals(16, testExternalBFS(5, 1, 7, 3, 9, 2, 11, 4, 13, 6, 15, 8, 0, 10, 14, 12).get().size());
+
 		// Hill-climbing: fast, Solution length=16, max queue size=18
 		testHillClimbing(5, 1, 7, 3, 9, 2, 11, 4, 13, 6, 15, 8, 0, 10, 14, 12);
 	}
@@ -90,15 +192,41 @@ public class PuzzleSolverTest {
 		// A*: slow, Solution length=39, max queue size=161.383
 		testAStar(5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1, 15, 9, 7);
 
-		// IDDFS: very slow, out of memory
+		// Bidirectional BFS: medium, Solution length=39
+		assertEquals(39, testBidirectionalBFS(5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1, 15, 9, 7).get().size());
+
+		// IDA*: fast, Solution length=39, constant memory
+		assertEquals(39, testIDAStar(5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1, 15, 9, 7).get().size());
+
+		// Parallel IDA*: Solution length=39, uses all processors
+		assertEquals(39, testParallelIDAStar(5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1, 15, 9, 7).get().size());
+
+		// IDDFS: very slow
 //		testIDDFS(5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1, 15, 9, 7);
 
 		testHillClimbing(5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1, 15, 9, 7);
+
+		// Beam search: fast, bounded memory, Solution length=43 (optimal: 39)
+		assertEquals(43, testBeamSearch(1000, 5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1, 15, 9, 7).get().size());
 	}
 
 	@Test
 	public void test4() {
 		testAStar(11, 4, 12, 2, 5, 10, 3, 15, 14, 1, 6, 7, 0, 9, 8, 13);
+
+		// A* (packed states): Solution length=50, max queue size=3,633,119
+		Optional<List<Node>> solution = testAStarPacked(50 * MAX_Q_SIZE,
+				11, 4, 12, 2, 5, 10, 3, 15, 14, 1, 6, 7, 0, 9, 8, 13);
+		assertTrue(solution.isPresent());
+		assertEquals(50, solution.get().size());
+
+		// Anytime A*: fast first solution, then improved until optimal
+		// Weight 3: solution length=66, weight 1.5: solution length=50
+		assertEquals(List.of(66, 50), testAnytimeAStar(11, 4, 12, 2, 5, 10, 3, 15, 14, 1, 6, 7, 0, 9, 8, 13));
+
+		// Beam search: Solution length=58 with K=100, 50 with K=1000
+		assertEquals(58, testBeamSearch(100, 11, 4, 12, 2, 5, 10, 3, 15, 14, 1, 6, 7, 0, 9, 8, 13).get().size());
+		assertEquals(50, testBeamSearch(1000, 11, 4, 12, 2, 5, 10, 3, 15, 14, 1, 6, 7, 0, 9, 8, 13).get().size());
 	}
 
 	@Test
@@ -107,4 +235,524 @@ public class PuzzleSolverTest {
 		// A*:
 		testAStar(5, 8, 7, 11, 1, 6, 12, 2, 9, 0, 13, 10, 14, 3, 4, 15);
 	}
+
+	private static List<Puzzle15> puzzles(List<Node> path) {
+		return path.stream().map(Node::getPuzzle).collect(Collectors.toList());
+	}
+
+	@Test
+	public void testCachingSolver() throws SolverGivingUpException {
+		System.out.println("Caching IDA* solver:");
+		CachingSolver solver = new CachingSolver(new SolverIDAStar(s -> false), 1_000_000);
+		// IDA*: Solution length=39
+		List<Node> first = test(solver, 5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1, 15, 9, 7).get();
+		assertEquals(39, first.size());
+		assertFalse(solver.isCacheHit());
+		assertTrue(solver.getMetrics().getExpandedNodes() > 0);
+		// same puzzle again: cache hit, same solution
+		List<Node> again = solver.solve(first.get(0).getPuzzle()).get();
+		assertTrue(solver.isCacheHit());
+		assertEquals(0, solver.getMetrics().getExpandedNodes());
+		assertEquals(puzzles(first), puzzles(again));
+		// mid-path state is solved from the cache, Solution length=20, expanded nodes=0
+		Puzzle15 mid = first.get(19).getPuzzle();
+		int[] cells = new int[16];
+		for (int i = 0; i < 16; ++i) {
+			cells[i] = mid.get(i);
+		}
+		List<Node> rest = test(solver, cells).get();
+		assertTrue(solver.isCacheHit());
+		assertEquals(0, solver.getMetrics().getExpandedNodes());
+		assertEquals(puzzles(first.subList(19, 39)), puzzles(rest));
+		System.out.println(String.format("Cache: %d puzzles, %d hits, %d misses", solver.getCache().size(),
+				solver.getCache().getHits(), solver.getCache().getMisses()));
+		assertEquals(2, solver.getCache().getHits());
+		assertEquals(1, solver.getCache().getMisses());
+	}
+
+	@Test
+	public void testPortfolio() throws Exception {
+		System.out.println("Portfolio solver (optimal):");
+		// IDA* wins, Solution length=39
+		SolverBestFirstSearch bestFirst = new SolverBestFirstSearch(Heuristics::manhattan, s -> false);
+		PortfolioSolver portfolio = new PortfolioSolver(true).add(new SolverIDAStar(s -> false), true)
+				.add(new SolverAStarPacked(s -> false), true).add(bestFirst, false);
+		assertEquals(39, test(portfolio, 5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1, 15, 9, 7).get().size());
+		assertTrue(portfolio.getWinner() != bestFirst);
+
+		System.out.println("Portfolio solver (first solution):");
+		// Best-first search wins
+		portfolio = new PortfolioSolver(false).add(new SolverIDAStar(s -> false), true)
+				.add(new SolverBestFirstSearch(Heuristics::manhattan, s -> false), false);
+		assertTrue(test(portfolio, 5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1, 15, 9, 7).get().size() >= 39);
+		assertNotNull(portfolio.getWinner());
+
+		// packed A* fails on the 8-puzzle, IDA* still solves it
+		portfolio = new PortfolioSolver(true).add(new SolverAStarPacked(s -> false), true)
+				.add(new SolverIDAStar(s -> false), true);
+		assertEquals(32, test(portfolio, 8, 6, 7, 2, 5, 4, 3, 0, 1).get().size());
+		try {
+			new PortfolioSolver(true).add(new SolverAStarPacked(s -> false), true).solve(Puzzle15.ordered(3));
+			fail("Portfolio with only failing solvers did not fail");
+		} catch (IllegalStateException x) {
+			assertTrue(x.getCause() instanceof IllegalArgumentException);
+		}
+	}
+
+	@Test
+	public void testPortfolioIncompleteMember() throws SolverGivingUpException {
+		// an optimal solver finding no solution, e.g. IDDFS reaching its depth limit
+		Solver incomplete = new AbstractSolver(s -> false) {
+
+			@Override
+			protected int getFrontierSize() {
+				return 0;
+			}
+
+			@Override
+			public Optional<List<Node>> solve(Puzzle15 puzzle) {
+				return Optional.empty();
+			}
+		};
+		PortfolioSolver portfolio = new PortfolioSolver(true).add(incomplete, true).add(new SolverIDAStar(s -> false),
+				true);
+		assertEquals(39, portfolio.solve(Puzzle15.of(5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1, 15, 9, 7)).get().size());
+		// unsolvable puzzle: no solution without starting the solvers
+		assertFalse(portfolio.solve(Puzzle15.of(2, 1, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 0)).isPresent());
+		assertNull(portfolio.getWinner());
+	}
+
+	@Test
+	public void testPortfolioCancellation() throws Exception {
+		// takes IDA* with Manhattan distance far longer than the test runs
+		Puzzle15 hard = Puzzle15.randomMoves(5, 300, new Random(1));
+		PortfolioSolver portfolio = new PortfolioSolver(true).add(new SolverIDAStar(s -> false), true);
+		// cancellation while no run is active is ignored, as by the other solvers
+		portfolio.cancel();
+		assertEquals(16, portfolio.solve(Puzzle15.of(5, 1, 7, 3, 9, 2, 11, 4, 13, 6, 15, 8, 0, 10, 14, 12)).get().size());
+		Solver single = new SolverIDAStar(s -> false);
+		single.cancel();
+		assertEquals(16, single.solve(Puzzle15.of(5, 1, 7, 3, 9, 2, 11, 4, 13, 6, 15, 8, 0, 10, 14, 12)).get().size());
+		// cancellation during the run
+		CompletableFuture<Void> canceller = CompletableFuture.runAsync(() -> {
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException x) {
+				Thread.currentThread().interrupt();
+			}
+			portfolio.cancel();
+		});
+		try {
+			portfolio.solve(hard);
+			fail("Portfolio was not cancelled");
+		} catch (SolverCancelledException x) {
+			System.out.println("Portfolio cancelled: " + x.getMessage());
+		}
+		canceller.join();
+		// no cancellation left for the next run
+		assertEquals(16, portfolio.solve(Puzzle15.of(5, 1, 7, 3, 9, 2, 11, 4, 13, 6, 15, 8, 0, 10, 14, 12)).get().size());
+	}
+
+	@Test
+	public void testMonitor() throws SolverGivingUpException {
+		assertMonitored(new SolverIDAStar(s -> false));
+	}
+
+	@Test
+	public void testMonitorPortfolio() throws SolverGivingUpException {
+		SolverIDAStar idaStar = new SolverIDAStar(s -> false);
+		SolverProgress progress = assertMonitored(new PortfolioSolver(true).add(idaStar, true));
+		// the portfolio's metrics are the live totals of its solvers
+		assertTrue(progress.expandedNodes() > 0);
+		assertEquals(idaStar.getMetrics().getExpandedNodes(), progress.expandedNodes());
+	}
+
+	// solves a puzzle under a monitor, checks the samples and returns the final progress
+	private SolverProgress assertMonitored(Solver solver) throws SolverGivingUpException {
+		List<SolverProgress> samples = new ArrayList<>();
+		List<SolverProgress> finished = new ArrayList<>();
+		SolverMonitor monitor = new SolverMonitor(solver, 1);
+		monitor.addListener(new SolverListener() {
+
+			@Override
+			public void progress(SolverProgress p) {
+				samples.add(p);
+			}
+
+			@Override
+			public void finished(SolverProgress p) {
+				finished.add(p);
+			}
+		});
+		monitor.start();
+		try {
+			assertEquals(39, solver.solve(Puzzle15.of(5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1, 15, 9, 7)).get().size());
+		} finally {
+			monitor.stop();
+		}
+		monitor.stop(); // no second report
+		assertEquals(1, finished.size());
+		System.out.println(String.format("Monitor: %d samples, final %s", samples.size(), finished.get(0)));
+		samples.addAll(finished);
+		for (int i = 1; i < samples.size(); ++i) {
+			SolverProgress previous = samples.get(i - 1), current = samples.get(i);
+			assertTrue(current.elapsedMillis() >= previous.elapsedMillis());
+			assertTrue(current.expandedNodes() >= previous.expandedNodes());
+			assertTrue(current.generatedNodes() >= previous.generatedNodes());
+		}
+		assertEquals(solver.getMetrics().getExpandedNodes(), finished.get(0).expandedNodes());
+		assertEquals(solver.getMetrics().getGeneratedNodes(), finished.get(0).generatedNodes());
+		return finished.get(0);
+	}
+
+	@Test
+	public void testMemoryMax() {
+		System.out.println("BFS solver with 16 MB memory budget:");
+		Predicate<Solver> budget = Solver.memoryMax(16 << 20);
+		Solver bfs = new SolverBFS(budget);
+		assertGivesUp(bfs, 15, 14, 8, 12, 10, 11, 9, 13, 2, 6, 5, 1, 3, 7, 4, 0);
+		assertTrue(bfs.getMemoryUsage() > 16 << 20);
+		// same budget for another solver: the heap samples of the first run must not make it give up
+		Optional<List<Node>> solution = test(new SolverAStarPacked(budget), 5, 1, 7, 3, 9, 2, 11, 4, 13, 6, 15, 8, 0,
+				10, 14, 12);
+		assertEquals(16, solution.get().size());
+
+		System.out.println("A* solver (packed states) with 64 MB memory budget:");
+		solution = test(new SolverAStarPacked(Solver.memoryMax(64 << 20)), 5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1,
+				15, 9, 7);
+		assertEquals(39, solution.get().size());
+	}
+
+	@Test
+	public void testRunId() throws SolverGivingUpException {
+		// the memory budget tells runs apart by their identity, also for quick consecutive runs
+		Puzzle15 puzzle = Puzzle15.of(5, 1, 7, 3, 9, 2, 11, 4, 13, 6, 15, 8, 0, 10, 14, 12);
+		Solver idaStar = new SolverIDAStar(s -> false);
+		assertEquals(0, idaStar.getRunId());
+		idaStar.solve(puzzle);
+		long firstRun = idaStar.getRunId();
+		idaStar.solve(puzzle);
+		assertTrue(idaStar.getRunId() > firstRun);
+		Solver[] solvers = { new SolverIDDFS(), new PortfolioSolver(true).add(new SolverIDAStar(s -> false), true),
+				new CachingSolver(new SolverIDAStar(s -> false), 1 << 20) };
+		for (Solver solver : solvers) {
+			long lastRun = idaStar.getRunId();
+			for (int i = 0; i < 2; ++i) {
+				solver.solve(puzzle);
+				assertTrue(solver.getRunId() > lastRun);
+				lastRun = solver.getRunId();
+			}
+		}
+	}
+
+	/*
+	 * Estimated memory usage after giving up must cover the frontier nodes, each stored with at least
+	 * the data of a node arena entry, and must not exceed a few hundred bytes for each generated node
+	 * (arrays and hash tables grow by doubling). The heap growth is not compared because it depends on
+	 * the garbage collector.
+	 */
+	private void checkMemoryEstimate(Function<Predicate<Solver>, Solver> fnSolver) {
+		Solver solver = fnSolver.apply(Solver.frontierSizeMax(MAX_Q_SIZE));
+		assertGivesUp(solver, 15, 14, 8, 12, 10, 11, 9, 13, 2, 6, 5, 1, 3, 7, 4, 0);
+		long estimate = solver.getMemoryUsage();
+		long generated = solver.getMetrics().getGeneratedNodes();
+		System.out.println(String.format("%s: estimated %,d bytes, %,d nodes generated",
+				solver.getClass().getSimpleName(), estimate, generated));
+		assertTrue(estimate >= (long) solver.getMaxFrontierSize() * NodeArena.BYTES_PER_NODE);
+		assertTrue(estimate <= (generated + 1) * 256);
+	}
+
+	@Test
+	public void testMemoryEstimate() {
+		checkMemoryEstimate(SolverBFS::new);
+		checkMemoryEstimate(givingUp -> new SolverAStar(Heuristics::manhattan, givingUp));
+		checkMemoryEstimate(SolverAStarPacked::new);
+		checkMemoryEstimate(SolverAnytimeAStar::new);
+		checkMemoryEstimate(SolverBidirectionalBFS::new);
+	}
+
+	private void assertGivesUp(Solver solver, int... cells) {
+		try {
+			solver.solve(Puzzle15.of(cells));
+			fail(solver.getClass().getSimpleName() + " did not give up");
+		} catch (SolverGivingUpException x) {
+			System.out.println(solver.getClass().getSimpleName() + " gave up: " + x.getMessage());
+		}
+	}
+
+	@Test
+	public void testGivingUpDepthFirst() {
+		assertGivesUp(new SolverIDDFS(Solver.runtimeMillisMax(200)), 5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1, 15, 9, 7);
+		assertGivesUp(new SolverHillClimbing(Solver.frontierSizeMax(10)), 5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1, 15,
+				9, 7);
+	}
+
+	@Test
+	public void testReuseAfterGivingUp() throws SolverGivingUpException {
+		// the frontier size of a run that gave up must not make the next run give up
+		Puzzle15 oneMove = Puzzle15.ordered(4);
+		oneMove = oneMove.move(oneMove.possibleMoveDirs().findFirst().get());
+		Solver iddfs = new SolverIDDFS(Solver.frontierSizeMax(20));
+		assertGivesUp(iddfs, 5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1, 15, 9, 7);
+		assertEquals(2, iddfs.solve(oneMove).get().size());
+		Solver fresh = new SolverIDDFS(Solver.frontierSizeMax(20));
+		fresh.solve(oneMove);
+		assertEquals(fresh.getMaxFrontierSize(), iddfs.getMaxFrontierSize());
+		Solver hillClimbing = new SolverHillClimbing(Solver.frontierSizeMax(10));
+		assertGivesUp(hillClimbing, 5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1, 15, 9, 7);
+		assertEquals(2, hillClimbing.solve(oneMove).get().size());
+	}
+
+	// depth-first enumeration of move sequences, returns number of sequences
+	private long enumerate(MoveGenerator generator, Puzzle15 puzzle, int moveState, int depth, int maxDepth,
+			Map<Puzzle15, Integer> minDepth) {
+		minDepth.merge(puzzle, depth, Math::min);
+		long count = 1;
+		if (depth < maxDepth) {
+			for (Dir dir : generator.moves(puzzle.blank())) {
+				int nextMoveState = generator.next(moveState, dir);
+				if (nextMoveState != MoveGenerator.PRUNED) {
+					count += enumerate(generator, puzzle.move(dir), nextMoveState, depth + 1, maxDepth, minDepth);
+				}
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void testMoveGenerator() {
+		int maxDepth = 16;
+		Puzzle15 start = Puzzle15.ordered(3);
+		Map<Puzzle15, Integer> distance = new HashMap<>();
+		Queue<Puzzle15> queue = new ArrayDeque<>();
+		distance.put(start, 0);
+		queue.add(start);
+		while (!queue.isEmpty()) {
+			Puzzle15 current = queue.poll();
+			if (distance.get(current) < maxDepth) {
+				current.possibleMoveDirs().map(current::move).filter(next -> !distance.containsKey(next)).forEach(next -> {
+					distance.put(next, distance.get(current) + 1);
+					queue.add(next);
+				});
+			}
+		}
+		// both pruning variants reach each state first with its shortest distance
+		Map<Puzzle15, Integer> minDepth = new HashMap<>();
+		long inverseOnly = enumerate(MoveGenerator.of(3, false), start, MoveGenerator.START, 0, maxDepth, minDepth);
+		assertEquals(distance, minDepth);
+		minDepth.clear();
+		long fsm = enumerate(MoveGenerator.of(3, true), start, MoveGenerator.START, 0, maxDepth, minDepth);
+		assertEquals(distance, minDepth);
+		assertTrue(fsm < inverseOnly);
+	}
+
+	@Test
+	public void testDistanceStatistics() throws SolverGivingUpException {
+		DistanceStatistics.StateSpace space = DistanceStatistics.fullPuzzle(3);
+		DistanceStatistics.Result result = DistanceStatistics.compute(space, 5);
+		assertEquals(181_440, Arrays.stream(result.histogram()).sum());
+		assertEquals(31, result.maxDistance());
+		assertEquals(2, result.histogram()[31]);
+		// the hardest samples need 31 moves
+		for (long state : result.samples().get(31)) {
+			int[] cells = Arrays.stream(space.format(state).split(" ")).mapToInt(Integer::parseInt).toArray();
+			assertEquals(32, new SolverIDAStar(s -> false).solve(Puzzle15.of(cells)).get().size());
+		}
+		// abstract distances are lower bounds
+		DistanceStatistics.Result abstraction = DistanceStatistics
+				.compute(DistanceStatistics.pattern(3, new int[] { 1, 2, 3 }), 0);
+		assertEquals(9 * 8 * 7 * 6, Arrays.stream(abstraction.histogram()).sum());
+		assertTrue(abstraction.maxDistance() <= 31);
+	}
+
+	// random walk from the given puzzle, each node scored incrementally from its parent
+	private void checkIncremental(Puzzle15 start, Function<Node, Integer> heuristic,
+			Function<Puzzle15, Integer> fullComputation, Random rnd) {
+		Node node = new Node(start);
+		assertEquals(fullComputation.apply(start), heuristic.apply(node));
+		for (int i = 0; i < 500; ++i) {
+			List<Node> successors = node.successors().collect(Collectors.toList());
+			node = successors.get(rnd.nextInt(successors.size()));
+			assertEquals(fullComputation.apply(node.getPuzzle()), heuristic.apply(node));
+		}
+	}
+
+	@Test
+	public void testIncrementalHeuristics() {
+		Random rnd = new Random(11);
+		for (int size = 3; size <= 5; ++size) {
+			checkIncremental(Puzzle15.ordered(size), Heuristics::manhattan, Heuristics::manhattanDistFromOrdered, rnd);
+			checkIncremental(Puzzle15.ordered(size), Heuristics::linearConflict,
+					Heuristics::linearConflictDistFromOrdered, rnd);
+		}
+		checkIncremental(Puzzle15.ordered(), Heuristics::walkingDistance, Heuristics::walkingDistFromOrdered, rnd);
+		checkIncremental(Puzzle15.randomMoves(80, rnd), Heuristics::walkingDistance,
+				Heuristics::walkingDistFromOrdered, rnd);
+		checkIncremental(Puzzle15.randomMoves(80, rnd), Heuristics::linearConflict,
+				Heuristics::linearConflictDistFromOrdered, rnd);
+	}
+
+	@Test
+	public void testHeuristicStateOfOtherHeuristic() {
+		Node parent = new Node(Puzzle15.of(5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1, 15, 9, 7));
+		Heuristics.manhattan(parent);
+		for (Node child : parent.successors().collect(Collectors.toList())) {
+			assertEquals(Heuristics.linearConflictDistFromOrdered(child.getPuzzle()), Heuristics.linearConflict(child));
+			assertEquals(Heuristics.walkingDistFromOrdered(child.getPuzzle()), Heuristics.walkingDistance(child));
+			assertEquals(Heuristics.manhattanDistFromOrdered(child.getPuzzle()), Heuristics.manhattan(child));
+		}
+		assertEquals(Heuristics.walkingDistFromOrdered(parent.getPuzzle()), Heuristics.walkingDistance(parent));
+		assertEquals(Heuristics.manhattanDistFromOrdered(parent.getPuzzle()), Heuristics.manhattan(parent));
+	}
+
+	// puzzle mirrored at the main diagonal, renumbered such that the ordered puzzle stays ordered
+	private Puzzle15 transpose(Puzzle15 puzzle) {
+		int size = puzzle.size();
+		int[] cells = new int[size * size];
+		for (int i = 0; i < cells.length; ++i) {
+			int number = puzzle.get(i);
+			cells[i % size * size + i / size] = number == 0 ? 0 : (number - 1) % size * size + (number - 1) / size + 1;
+		}
+		return Puzzle15.of(cells);
+	}
+
+	private int patternDistSum(PatternDatabase pdb, Puzzle15 puzzle) {
+		byte[] positions = new byte[puzzle.size() * puzzle.size()];
+		for (byte i = 0; i < positions.length; ++i) {
+			positions[puzzle.get(i)] = i;
+		}
+		int sum = 0;
+		for (int p = 0; p < pdb.numPatterns(); ++p) {
+			sum += pdb.distance(p, positions);
+		}
+		return sum;
+	}
+
+	@Test
+	public void testPatternDatabaseSymmetry() throws SolverGivingUpException {
+		PatternDatabase pdb = PatternDatabaseGenerator.generate(new int[][] { { 1, 2, 3, 4 }, { 5, 6, 7, 8 } });
+		Random rnd = new Random(42);
+		int improved = 0;
+		for (int i = 0; i < 100; ++i) {
+			Puzzle15 puzzle = Puzzle15.randomMoves(3, 60, rnd);
+			Puzzle15 transposed = transpose(puzzle);
+			int dist = patternDistSum(pdb, puzzle), transposedDist = patternDistSum(pdb, transposed);
+			int h = pdb.distFromOrdered(puzzle);
+			assertEquals(Math.max(dist, transposedDist), h);
+			assertEquals(h, pdb.distFromOrdered(transposed));
+			if (h > dist) {
+				++improved;
+			}
+			// still admissible, IDA* finds optimal solutions
+			int optimal = new SolverIDAStar(s -> false).solve(puzzle).get().size();
+			assertTrue(h < optimal);
+			assertEquals(optimal, new SolverIDAStar(pdb, s -> false).solve(puzzle).get().size());
+		}
+		assertTrue(improved > 0);
+	}
+
+	@Test
+	public void testPatternDatabaseSaveLoad() throws IOException, SolverGivingUpException {
+		PatternDatabase pdb = PatternDatabaseGenerator.generate(new int[][] { { 1, 2, 3, 4 }, { 5, 6, 7, 8 } });
+		Path file = Files.createTempFile("pdb", ".bin"), copy = Files.createTempFile("pdb", ".bin");
+		try {
+			pdb.save(file);
+			PatternDatabase loaded = PatternDatabase.load(file);
+			assertEquals(3, loaded.size());
+			assertEquals(pdb.numPatterns(), loaded.numPatterns());
+			for (int tile = 1; tile < 9; ++tile) {
+				assertEquals(pdb.patternOf(tile), loaded.patternOf(tile));
+			}
+			loaded.save(copy);
+			assertEquals(-1, Files.mismatch(file, copy));
+			Random rnd = new Random(7);
+			for (int i = 0; i < 1000; ++i) {
+				Puzzle15 puzzle = Puzzle15.randomMoves(3, 40, rnd);
+				assertEquals(pdb.distFromOrdered(puzzle), loaded.distFromOrdered(puzzle));
+			}
+			// hardest 8-puzzle (31 moves), IDA* with the loaded database finds an optimal solution
+			Puzzle15 hardest = Puzzle15.of(8, 6, 7, 2, 5, 4, 3, 0, 1);
+			assertEquals(32, new SolverIDAStar(loaded, s -> false).solve(hardest).get().size());
+		} finally {
+			Files.delete(file);
+			Files.delete(copy);
+		}
+	}
+
+	@Test
+	public void testLargeHeuristicValues() throws SolverGivingUpException {
+		// scores beyond 127 must neither wrap nor break the bucket queues
+		Function<Node, Integer> weighted = node -> 10 * Heuristics.manhattan(node);
+		Puzzle15 puzzle = Puzzle15.of(5, 2, 4, 8, 10, 0, 3, 14, 13, 6, 11, 12, 1, 15, 9, 7);
+		assertTrue(weighted.apply(new Node(puzzle)) > 127);
+		assertTrue(new SolverAStar(weighted, s -> false).solve(puzzle).get().size() >= 39);
+		assertTrue(new SolverBestFirstSearch(weighted, s -> false).solve(puzzle).get().size() >= 39);
+	}
+
+	@Test
+	public void testPuzzle8() {
+		// hardest 8-puzzle (31 moves), Solution length=32
+		assertEquals(32, testIDAStar(8, 6, 7, 2, 5, 4, 3, 0, 1).get().size());
+		assertEquals(32, testParallelIDAStar(8, 6, 7, 2, 5, 4, 3, 0, 1).get().size());
+		assertEquals(32, testAStar(8, 6, 7, 2, 5, 4, 3, 0, 1).get().size());
+	}
+
+	@Test
+	public void testParallelIDAStarThreads() throws SolverGivingUpException {
+		SolverParallelIDAStar first = new SolverParallelIDAStar(null, 2, s -> false);
+		for (int i = 0; i < 50; ++i) {
+			SolverParallelIDAStar solver = new SolverParallelIDAStar(null, 2, s -> false);
+			assertEquals(16, solver.solve(Puzzle15.of(5, 1, 7, 3, 9, 2, 11, 4, 13, 6, 15, 8, 0, 10, 14, 12)).get().size());
+			// the solvers share their pool
+			assertSame(first.getPool(), solver.getPool());
+		}
+		assertTrue(first.getPool().getPoolSize() <= 2);
+	}
+
+	@Test
+	public void testLongSolution() throws SolverGivingUpException {
+		// the blank snakes through all cells of an 11x11 puzzle, each tile moves once: 120 moves, optimal
+		Puzzle15 puzzle = Puzzle15.ordered(11);
+		for (int row = 10; row >= 0; --row) {
+			for (int i = 0; i < 10; ++i) {
+				puzzle = puzzle.move(row % 2 == 0 ? Dir.RIGHT : Dir.LEFT);
+			}
+			if (row > 0) {
+				puzzle = puzzle.move(Dir.DOWN);
+			}
+		}
+		assertEquals(120, Heuristics.manhattanDistFromOrdered(puzzle));
+		assertEquals(121, new SolverIDAStar(s -> false).solve(puzzle).get().size());
+		assertEquals(121, new SolverParallelIDAStar(s -> false).solve(puzzle).get().size());
+		// unsolvable, no search
+		assertTrue(new SolverIDAStar(s -> false).solve(Puzzle15.of(2, 1, 3, 0)).isEmpty());
+		assertTrue(new SolverParallelIDAStar(s -> false).solve(Puzzle15.of(2, 1, 3, 0)).isEmpty());
+	}
+
+	@Test
+	public void testPuzzle24() {
+		// IDA*: Solution length=47
+		assertEquals(47, testIDAStar(6, 4, 8, 5, 10, 2, 1, 7, 9, 15, 12, 17, 3, 21, 14, 11, 0, 18, 24, 19, 22, 16, 13, 23,
+				20).get().size());
+		assertEquals(47, testParallelIDAStar(6, 4, 8, 5, 10, 2, 1, 7, 9, 15, 12, 17, 3, 21, 14, 11, 0, 18, 24, 19, 22, 16,
+				13, 23, 20).get().size());
+	}
+
+	@Test
+	public void testPuzzle24ArenaSolvers() throws SolverGivingUpException {
+		// puzzles larger than 4x4 have no packed state, the arena solvers keep the puzzle objects
+		Puzzle15 puzzle = Puzzle15.ordered(5);
+		Dir last = null;
+		for (int i = 0; i < 8; ++i) {
+			Dir previous = last;
+			last = puzzle.possibleMoveDirs().filter(dir -> previous == null || dir != previous.opposite())
+					.skip(i % 2).findFirst().get();
+			puzzle = puzzle.move(last);
+		}
+		int length = new SolverIDAStar(s -> false).solve(puzzle).get().size();
+		assertEquals(length, new SolverAStar(Heuristics::manhattan, s -> false).solve(puzzle).get().size());
+		assertEquals(length, new SolverAStar(Heuristics::linearConflict, s -> false).solve(puzzle).get().size());
+		assertEquals(length, new SolverBFS(s -> false).solve(puzzle).get().size());
+		assertTrue(new SolverBestFirstSearch(Heuristics::manhattan, s -> false).solve(puzzle).get().size() >= length);
+	}
 }
\ No newline at end of file
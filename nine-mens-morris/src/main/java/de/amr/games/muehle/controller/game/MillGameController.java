@@ -24,6 +24,7 @@ import de.amr.easy.game.view.VisualController;
 import de.amr.games.muehle.MillGameApp;
 import de.amr.games.muehle.controller.move.MoveController;
 import de.amr.games.muehle.controller.move.MoveState;
+import de.amr.games.muehle.controller.player.AlphaBetaPlayer;
 import de.amr.games.muehle.controller.player.InteractivePlayer;
 import de.amr.games.muehle.controller.player.Player;
 import de.amr.games.muehle.controller.player.Zwick;
@@ -56,6 +57,8 @@ public class MillGameController implements VisualController {
 	private MoveController moveControl;
 	private float moveTimeSeconds;
 	private float placingTimeSeconds;
+	private boolean searchOpponent;
+	private AlphaBetaPlayer searchPlayer; // created when first needed, reused for all games
 	private OptionalInt positionNearMouse;
 
 	public MillGameController(MillGameApp app, MillGameModel model) {
@@ -226,6 +229,9 @@ public class MillGameController implements VisualController {
 			}
 		} else if (Keyboard.keyPressedOnce(KeyEvent.VK_N)) {
 			view.toggleBoardPositionNumbers();
+		} else if (Keyboard.keyPressedOnce(KeyEvent.VK_S)) {
+			searchOpponent = !searchOpponent;
+			loginfo(Messages.text(searchOpponent ? "search_opponent_on" : "search_opponent_off"));
 		}
 		if (Mouse.moved()) {
 			positionNearMouse = view.findBoardPosition(Mouse.getX(), Mouse.getY());
@@ -347,6 +353,15 @@ public class MillGameController implements VisualController {
 	protected void resetGame() {
 		view.clearBoard();
 		model.whiteStonesPlaced = model.blackStonesPlaced = 0;
+		if (searchPlayer != null) {
+			searchPlayer.newGame();
+		}
+		if (!blackPlayer.isInteractive()) {
+			if (searchOpponent && searchPlayer == null) {
+				searchPlayer = new AlphaBetaPlayer(this, BLACK);
+			}
+			setBlackPlayer(searchOpponent ? searchPlayer : new Zwick(model, BLACK));
+		}
 		turnPlacingTo(whitePlayer);
 	}
 
@@ -367,4 +382,8 @@ public class MillGameController implements VisualController {
 	public float getPlacingTimeSeconds() {
 		return placingTimeSeconds;
 	}
+
+	public float getMoveTimeSeconds() {
+		return moveTimeSeconds;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+package de.amr.games.muehle.controller.player;
+
+import static de.amr.easy.game.Application.loginfo;
+import static de.amr.games.muehle.model.board.StoneColor.WHITE;
+import static de.amr.games.muehle.search.MillPosition.NONE;
+
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.amr.games.muehle.controller.game.MillGameController;
+import de.amr.games.muehle.model.MillGameModel;
+import de.amr.games.muehle.model.board.Move;
+import de.amr.games.muehle.model.board.StoneColor;
+import de.amr.games.muehle.msg.Messages;
+import de.amr.games.muehle.search.AlphaBetaSearch;
+import de.amr.games.muehle.search.AlphaBetaSearch.Result;
+import de.amr.games.muehle.search.Evaluation;
+import de.amr.games.muehle.search.MillPosition;
+
+/**
+ * A player searching its moves with alpha-beta search (see {@link AlphaBetaSearch}).
+ *
+ * <p>
+ * The search runs in the background with the placing or moving time of the game controller as time
+ * budget, so the game keeps running while the player is thinking. Until the search is finished, the
+ * supply methods return nothing. A move closing a mill already contains the stone to remove, so the
+ * removal position is supplied without another search.
+ *
+ * <p>
+ * The player is created once and reused for all games because its search owns a large
+ * transposition table. A search still running when a new move or a new game starts is stopped and
+ * its result is discarded.
+ *
+ * @author Armin Reichert
+ */
+public class AlphaBetaPlayer implements Player {
+
+	private final MillGameController control;
+	private final StoneColor color;
+	private final AlphaBetaSearch search;
+	private CompletableFuture<Result> runningSearch;
+	private AtomicBoolean searchStopped;
+	private int plannedRemoval = NONE;
+
+	public AlphaBetaPlayer(MillGameController control, StoneColor color, Evaluation evaluation) {
+		this.control = control;
+		this.color = color;
+		this.search = new AlphaBetaSearch(evaluation, AlphaBetaSearch.MAX_DEPTH);
+	}
+
+	public AlphaBetaPlayer(MillGameController control, StoneColor color) {
+		this(control, color, Evaluation.DEFAULT);
+	}
+
+	@Override
+	public String name() {
+		return String.format("Alpha-Beta (%s)", Messages.text(color() == WHITE ? "white" : "black"));
+	}
+
+	@Override
+	public boolean isInteractive() {
+		return false;
+	}
+
+	@Override
+	public MillGameModel model() {
+		return control.model;
+	}
+
+	@Override
+	public StoneColor color() {
+		return color;
+	}
+
+	@Override
+	public OptionalInt supplyPlacingPosition() {
+		Optional<Result> result = searchResult(false, control.getPlacingTimeSeconds());
+		if (result.isEmpty()) {
+			return OptionalInt.empty();
+		}
+		plannedRemoval = MillPosition.removal(result.get().move());
+		return OptionalInt.of(MillPosition.to(result.get().move()));
+	}
+
+	@Override
+	public OptionalInt supplyRemovalPosition() {
+		if (plannedRemoval != NONE) {
+			int p = plannedRemoval;
+			plannedRemoval = NONE;
+			return OptionalInt.of(p);
+		}
+		int stonesPlaced = color == WHITE ? model().whiteStonesPlaced : model().blackStonesPlaced;
+		boolean placing = stonesPlaced < MillPosition.STONES_PER_COLOR;
+		Optional<Result> result = searchResult(true,
+				placing ? control.getPlacingTimeSeconds() : control.getMoveTimeSeconds());
+		if (result.isEmpty()) {
+			return OptionalInt.empty();
+		}
+		return OptionalInt.of(MillPosition.removal(result.get().move()));
+	}
+
+	@Override
+	public void newMove() {
+		stopSearch();
+	}
+
+	/**
+	 * Prepares the player for a new game: stops a running search and forgets a planned removal.
+	 */
+	public void newGame() {
+		stopSearch();
+		plannedRemoval = NONE;
+	}
+
+	/*
+	 * Stops a running search and waits until it has ended because the search object is reused.
+	 */
+	private void stopSearch() {
+		if (runningSearch != null) {
+			searchStopped.set(true);
+			runningSearch.join();
+			runningSearch = null;
+		}
+	}
+
+	@Override
+	public Optional<Move> supplyMove() {
+		Optional<Result> result = searchResult(false, control.getMoveTimeSeconds());
+		if (result.isEmpty()) {
+			return Optional.empty();
+		}
+		int move = result.get().move();
+		plannedRemoval = MillPosition.removal(move);
+		return Optional.of(new Move(MillPosition.from(move), MillPosition.to(move)));
+	}
+
+	/*
+	 * Starts the search when called first and returns the result when the search has finished and has
+	 * found a move.
+	 */
+	private Optional<Result> searchResult(boolean removing, float timeSeconds) {
+		if (runningSearch == null) {
+			MillPosition position = MillPosition.of(model(), color, removing);
+			long timeMillis = (long) (timeSeconds * 1000);
+			AtomicBoolean stopped = new AtomicBoolean();
+			searchStopped = stopped;
+			runningSearch = CompletableFuture.supplyAsync(() -> search.search(position, timeMillis, stopped::get));
+		}
+		if (!runningSearch.isDone()) {
+			return Optional.empty();
+		}
+		Result result = runningSearch.join();
+		runningSearch = null;
+		if (result.move() == AlphaBetaSearch.NO_MOVE) {
+			return Optional.empty();
+		}
+		loginfo(name() + ": " + result);
+		return Optional.of(result);
+	}
+}
\ No newline at end of file
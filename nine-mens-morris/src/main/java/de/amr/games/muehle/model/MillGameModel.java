@@ -1,6 +1,12 @@
 package de.amr.games.muehle.model;
 
+import static de.amr.games.muehle.model.board.StoneColor.BLACK;
+import static de.amr.games.muehle.model.board.StoneColor.WHITE;
+
+import java.util.Random;
+
 import de.amr.games.muehle.model.board.Board;
+import de.amr.games.muehle.model.board.StoneColor;
 
 /**
  * Data model of the mill game.
@@ -9,6 +15,32 @@ import de.amr.games.muehle.model.board.Board;
  */
 public class MillGameModel {
 
+	/** Number of stones each color places. */
+	public static final int STONES_PER_COLOR = 9;
+
+	// STONES_PLACED_KEY[color.ordinal()][n] = random key for n stones placed by the given color
+	private static final long[][] STONES_PLACED_KEY = new long[2][STONES_PER_COLOR + 1];
+
+	static {
+		Random rnd = new Random(0x7374_6F6E_6573L);
+		for (long[] keys : STONES_PLACED_KEY) {
+			for (int n = 0; n <= STONES_PER_COLOR; ++n) {
+				keys[n] = rnd.nextLong();
+			}
+		}
+	}
+
+	/**
+	 * @param color
+	 *                a stone color
+	 * @param n
+	 *                number of stones placed by that color
+	 * @return Zobrist key for the number of placed stones
+	 */
+	public static long stonesPlacedKey(StoneColor color, int n) {
+		return STONES_PLACED_KEY[color.ordinal()][n];
+	}
+
 	public final Board board;
 	public int whiteStonesPlaced;
 	public int blackStonesPlaced;
@@ -16,4 +48,16 @@ public class MillGameModel {
 	public MillGameModel() {
 		this.board = new Board();
 	}
+
+	/**
+	 * Returns the Zobrist hash of the game state: the hash of the board content combined with the keys
+	 * for the number of stones placed by each color. The placed stones determine the stones in hand
+	 * and the game phase (placing or moving), so positions with the same board content but in
+	 * different phases get different hashes.
+	 * 
+	 * @return Zobrist hash of the game state
+	 */
+	public long hash() {
+		return board.hash() ^ stonesPlacedKey(WHITE, whiteStonesPlaced) ^ stonesPlacedKey(BLACK, blackStonesPlaced);
+	}
 }
\ No newline at end of file
@@ -1,18 +1,24 @@
 package de.amr.games.muehle.model.board;
 
-import static de.amr.games.muehle.model.board.Direction.NORTH;
-import static de.amr.games.muehle.model.board.Direction.SOUTH;
+import static de.amr.games.muehle.model.board.StoneColor.BLACK;
+import static de.amr.games.muehle.model.board.StoneColor.WHITE;
 
-import java.util.Arrays;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.Random;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
  * Represents the board as an undirected graph and provides information about the board content and
  * mill-related functionality.
+ * 
+ * <p>
+ * The content is stored as two bitboards, one per stone color, where bit <code>p</code> is set if
+ * position <code>p</code> carries a stone of that color. Together with the precomputed masks of the
+ * neighbors and mills of each position, queries like mill checks, stone counts or empty neighbor
+ * tests are single bit operations. The bitboards and masks are also accessible for search-based
+ * players.
  *
  * @author Armin Reichert, Peter & Anna Schillo
  */
@@ -124,6 +130,51 @@ public class Board {
 			/*@formatter:on*/
 	};
 
+	/** Bitboard with all positions set. */
+	public static final int ALL_POSITIONS = (1 << NUM_POS) - 1;
+
+	/** The number of mills (rows and columns of three positions). */
+	public static final int NUM_MILLS = 16;
+
+	// NEIGHBOR_MASK[p] = bitboard of the neighbors of p
+	private static final int[] NEIGHBOR_MASK = new int[NUM_POS];
+
+	// H_MILL_MASK[p], V_MILL_MASK[p] = bitboard of the row/column containing p
+	private static final int[] H_MILL_MASK = new int[NUM_POS];
+	private static final int[] V_MILL_MASK = new int[NUM_POS];
+
+	// bitboards of all rows and columns
+	private static final int[] MILL_MASK = new int[NUM_MILLS];
+
+	// ZOBRIST_KEY[color.ordinal()][p] = random key of a stone of the given color at position p
+	private static final long[][] ZOBRIST_KEY = new long[2][NUM_POS];
+
+	static {
+		Random rnd = new Random(0x6D75_6568_6C65L);
+		for (long[] keys : ZOBRIST_KEY) {
+			for (int p = 0; p < NUM_POS; ++p) {
+				keys[p] = rnd.nextLong();
+			}
+		}
+		int mills = 0;
+		for (int p = 0; p < NUM_POS; ++p) {
+			for (int q : NEIGHBOR[p]) {
+				if (q != -1) {
+					NEIGHBOR_MASK[p] |= 1 << q;
+				}
+			}
+			H_MILL_MASK[p] = 1 << p | 1 << ROW[p][0] | 1 << ROW[p][1];
+			V_MILL_MASK[p] = 1 << p | 1 << COL[p][0] | 1 << COL[p][1];
+			// each mill is added for its lowest position
+			if (p < ROW[p][0] && p < ROW[p][1]) {
+				MILL_MASK[mills++] = H_MILL_MASK[p];
+			}
+			if (p < COL[p][0] && p < COL[p][1]) {
+				MILL_MASK[mills++] = V_MILL_MASK[p];
+			}
+		}
+	}
+
 	public static void checkPosition(int p) {
 		if (!isValidPosition(p)) {
 			throw new IllegalArgumentException("Illegal position: " + p);
@@ -253,34 +304,170 @@ public class Board {
 		return v1 == q && v2 == r || v1 == r && v2 == q;
 	}
 
+	// Bitboard related methods
+
+	/**
+	 * @param p
+	 *            a position
+	 * @return bitboard with only the given position set
+	 */
+	public static int bit(int p) {
+		checkPosition(p);
+		return 1 << p;
+	}
+
+	/**
+	 * @param mask
+	 *               a bitboard
+	 * @return a stream of the positions set in the bitboard, in ascending order
+	 */
+	public static IntStream positions(int mask) {
+		return IntStream.iterate(mask & ALL_POSITIONS, m -> m != 0, m -> m & (m - 1))
+				.map(Integer::numberOfTrailingZeros);
+	}
+
+	/**
+	 * @param p
+	 *            a position
+	 * @return bitboard of the neighbor positions
+	 */
+	public static int neighborMask(int p) {
+		checkPosition(p);
+		return NEIGHBOR_MASK[p];
+	}
+
+	/**
+	 * @param p
+	 *            a position
+	 * @return bitboard of the row containing the given position
+	 */
+	public static int hMillMask(int p) {
+		checkPosition(p);
+		return H_MILL_MASK[p];
+	}
+
+	/**
+	 * @param p
+	 *            a position
+	 * @return bitboard of the column containing the given position
+	 */
+	public static int vMillMask(int p) {
+		checkPosition(p);
+		return V_MILL_MASK[p];
+	}
+
+	/**
+	 * @param i
+	 *            mill index (<code>0..NUM_MILLS-1</code>)
+	 * @return bitboard of the mill (row or column) with the given index
+	 */
+	public static int millMask(int i) {
+		if (i < 0 || i >= NUM_MILLS) {
+			throw new IllegalArgumentException("Illegal mill index: " + i);
+		}
+		return MILL_MASK[i];
+	}
+
+	/**
+	 * @param stones
+	 *                 bitboard of stones of one color
+	 * @return bitboard of the stones which are inside some mill
+	 */
+	public static int stonesInMills(int stones) {
+		int inMills = 0;
+		for (int mill : MILL_MASK) {
+			if ((stones & mill) == mill) {
+				inMills |= mill;
+			}
+		}
+		return inMills;
+	}
+
 	// non-static content
 
-	private final StoneColor[] content;
+	private int whiteStones; // bitboard
+	private int blackStones; // bitboard
+	private long hash; // Zobrist hash of the content
 
 	private void set(int p, StoneColor color) {
-		content[p] = color;
+		StoneColor old = get(p);
+		if (old != null) {
+			hash ^= ZOBRIST_KEY[old.ordinal()][p];
+		}
+		if (color != null) {
+			hash ^= ZOBRIST_KEY[color.ordinal()][p];
+		}
+		int bit = 1 << p;
+		whiteStones &= ~bit;
+		blackStones &= ~bit;
+		if (color == WHITE) {
+			whiteStones |= bit;
+		} else if (color == BLACK) {
+			blackStones |= bit;
+		}
 	}
 
 	private StoneColor get(int p) {
-		return content[p];
+		int bit = 1 << p;
+		return (whiteStones & bit) != 0 ? WHITE : (blackStones & bit) != 0 ? BLACK : null;
 	}
 
 	private boolean has(int p, StoneColor color) {
-		return content[p] == color;
+		return color == null ? ((whiteStones | blackStones) & 1 << p) == 0 : (stones(color) & 1 << p) != 0;
 	}
 
 	/**
 	 * Constructs an empty board.
 	 */
 	public Board() {
-		content = new StoneColor[NUM_POS];
+	}
+
+	/**
+	 * Constructs a copy of the given board.
+	 * 
+	 * @param board
+	 *                a board
+	 */
+	public Board(Board board) {
+		whiteStones = board.whiteStones;
+		blackStones = board.blackStones;
+		hash = board.hash;
 	}
 
 	/**
 	 * Clears the board.
 	 */
 	public void clear() {
-		Arrays.fill(content, null);
+		whiteStones = blackStones = 0;
+		hash = 0;
+	}
+
+	/**
+	 * Returns the Zobrist hash of the board content: the XOR of a fixed random key for each stone,
+	 * depending on its position and color. The hash is updated incrementally whenever a stone is put,
+	 * removed or moved, so boards with the same content have the same hash, independent of how the
+	 * content was created. The empty board has hash 0.
+	 * 
+	 * @return Zobrist hash of the board content
+	 */
+	public long hash() {
+		return hash;
+	}
+
+	/**
+	 * @param color
+	 *                a stone color
+	 * @return bitboard of the stones of the given color
+	 */
+	public int stones(StoneColor color) {
+		return color == WHITE ? whiteStones : color == BLACK ? blackStones : 0;
+	}
+
+	/**
+	 * @return bitboard of the empty positions
+	 */
+	public int emptyMask() {
+		return ~(whiteStones | blackStones) & ALL_POSITIONS;
 	}
 
 	/**
@@ -290,14 +477,14 @@ public class Board {
 	 */
 	public IntStream positions(StoneColor color) {
 		checkStoneColor(color);
-		return positions().filter(p -> has(p, color));
+		return positions(stones(color));
 	}
 
 	/**
 	 * @return the number of stones
 	 */
 	public long stoneCount() {
-		return Stream.of(content).filter(Objects::nonNull).count();
+		return Integer.bitCount(whiteStones | blackStones);
 	}
 
 	/**
@@ -307,7 +494,7 @@ public class Board {
 	 */
 	public long stoneCount(StoneColor color) {
 		checkStoneColor(color);
-		return Stream.of(content).filter(c -> c == color).count();
+		return Integer.bitCount(stones(color));
 	}
 
 	/**
@@ -385,7 +572,7 @@ public class Board {
 	 * @return stream of all empty positions on the board
 	 */
 	public IntStream emptyPositions() {
-		return positions().filter(p -> has(p, null));
+		return positions(emptyMask());
 	}
 
 	/**
@@ -418,7 +605,7 @@ public class Board {
 	 */
 	public boolean hasEmptyNeighbor(int p) {
 		checkPosition(p);
-		return neighbors(p).anyMatch(this::isEmptyPosition);
+		return (NEIGHBOR_MASK[p] & emptyMask()) != 0;
 	}
 
 	/**
@@ -428,7 +615,8 @@ public class Board {
 	 */
 	public IntStream emptyNeighbors(int p) {
 		checkPosition(p);
-		return neighbors(p).filter(this::isEmptyPosition);
+		int empty = emptyMask();
+		return neighbors(p).filter(q -> (empty & 1 << q) != 0);
 	}
 
 	/**
@@ -438,7 +626,24 @@ public class Board {
 	 *         neighbor position
 	 */
 	public IntStream positionsWithEmptyNeighbor(StoneColor color) {
-		return positions(color).filter(this::hasEmptyNeighbor);
+		checkStoneColor(color);
+		return positions(movableStones(color));
+	}
+
+	/**
+	 * @param color
+	 *                a stone color
+	 * @return bitboard of the stones of the given color having an empty neighbor position
+	 */
+	public int movableStones(StoneColor color) {
+		int stones = stones(color), empty = emptyMask(), movable = 0;
+		for (int m = stones; m != 0; m &= m - 1) {
+			int p = Integer.numberOfTrailingZeros(m);
+			if ((NEIGHBOR_MASK[p] & empty) != 0) {
+				movable |= 1 << p;
+			}
+		}
+		return movable;
 	}
 
 	/**
@@ -448,7 +653,7 @@ public class Board {
 	 */
 	public boolean isTrapped(StoneColor color) {
 		checkStoneColor(color);
-		return positions(color).noneMatch(this::hasEmptyNeighbor);
+		return movableStones(color) == 0;
 	}
 
 	// Mill related methods
@@ -469,7 +674,7 @@ public class Board {
 		checkPosition(q);
 		checkPosition(r);
 		checkStoneColor(color);
-		return inRow(p, q, r) && IntStream.of(p, q, r).allMatch(pos -> has(pos, color));
+		return inRow(p, q, r) && (stones(color) & H_MILL_MASK[p]) == H_MILL_MASK[p];
 	}
 
 	/**
@@ -488,7 +693,7 @@ public class Board {
 		checkPosition(q);
 		checkPosition(r);
 		checkStoneColor(color);
-		return inCol(p, q, r) && IntStream.of(p, q, r).allMatch(pos -> has(pos, color));
+		return inCol(p, q, r) && (stones(color) & V_MILL_MASK[p]) == V_MILL_MASK[p];
 	}
 
 	/**
@@ -501,7 +706,7 @@ public class Board {
 	public boolean inHMill(int p, StoneColor color) {
 		checkPosition(p);
 		checkStoneColor(color);
-		return IntStream.of(p, ROW[p][0], ROW[p][1]).allMatch(q -> has(q, color));
+		return (stones(color) & H_MILL_MASK[p]) == H_MILL_MASK[p];
 	}
 
 	/**
@@ -514,7 +719,7 @@ public class Board {
 	public boolean inVMill(int p, StoneColor color) {
 		checkPosition(p);
 		checkStoneColor(color);
-		return IntStream.of(p, COL[p][0], COL[p][1]).allMatch(q -> has(q, color));
+		return (stones(color) & V_MILL_MASK[p]) == V_MILL_MASK[p];
 	}
 
 	/**
@@ -549,7 +754,7 @@ public class Board {
 	public boolean isPartOfOpenHMill(int p, StoneColor color) {
 		checkPosition(p);
 		checkStoneColor(color);
-		return isPartOfOpenXMill(p, color, ROW);
+		return isPartOfOpenXMill(p, color, H_MILL_MASK[p]);
 	}
 
 	/**
@@ -562,13 +767,14 @@ public class Board {
 	public boolean isPartOfOpenVMill(int p, StoneColor color) {
 		checkPosition(p);
 		checkStoneColor(color);
-		return isPartOfOpenXMill(p, color, COL);
+		return isPartOfOpenXMill(p, color, V_MILL_MASK[p]);
 	}
 
-	private boolean isPartOfOpenXMill(int p, StoneColor color, int[][] mill) {
-		int q = mill[p][0], r = mill[p][1];
-		return has(p, color) && has(q, color) && has(r, null)
-				|| has(p, color) && has(q, null) && has(r, color);
+	// p carries a stone of the given color, one other position of the mill too, the third one is empty
+	private boolean isPartOfOpenXMill(int p, StoneColor color, int mill) {
+		int stones = stones(color);
+		return (stones & 1 << p) != 0 && Integer.bitCount(stones & mill) == 2
+				&& Integer.bitCount(emptyMask() & mill) == 1;
 	}
 
 	/**
@@ -577,7 +783,9 @@ public class Board {
 	 * @return if all stones of the given color are inside some mill
 	 */
 	public boolean allStonesInMills(StoneColor color) {
-		return positions(color).allMatch(p -> inMill(p, color));
+		checkStoneColor(color);
+		int stones = stones(color);
+		return stonesInMills(stones) == stones;
 	}
 
 	/**
@@ -617,7 +825,7 @@ public class Board {
 	public boolean isHMillOpenedAt(int p, StoneColor color) {
 		checkPosition(p);
 		checkStoneColor(color);
-		return isXMillOpenedAt(p, color, ROW[p]);
+		return isXMillOpenedAt(p, color, H_MILL_MASK[p]);
 	}
 
 	/**
@@ -630,13 +838,14 @@ public class Board {
 	public boolean isVMillOpenedAt(int p, StoneColor color) {
 		checkPosition(p);
 		checkStoneColor(color);
-		return isXMillOpenedAt(p, color, COL[p]);
+		return isXMillOpenedAt(p, color, V_MILL_MASK[p]);
 	}
 
-	private boolean isXMillOpenedAt(int p, StoneColor color, int[] mill) {
-		int q = mill[0], r = mill[1];
-		return has(p, null) && has(q, color) && has(r, null)
-				|| has(p, null) && has(q, null) && has(r, color);
+	// p is empty, one other position of the mill carries a stone of the given color, the third is empty
+	private boolean isXMillOpenedAt(int p, StoneColor color, int mill) {
+		int empty = emptyMask();
+		return (empty & 1 << p) != 0 && Integer.bitCount(stones(color) & mill) == 1
+				&& Integer.bitCount(empty & mill) == 2;
 	}
 
 	/**
@@ -681,11 +890,23 @@ public class Board {
 	}
 
 	private boolean isHMillClosingPosition(int p, StoneColor color) {
-		return has(p, null) && has(ROW[p][0], color) && has(ROW[p][1], color);
+		return isXMillClosingPosition(p, stones(color), H_MILL_MASK[p]);
 	}
 
 	private boolean isVMillClosingPosition(int p, StoneColor color) {
-		return has(p, null) && has(COL[p][0], color) && has(COL[p][1], color);
+		return isXMillClosingPosition(p, stones(color), V_MILL_MASK[p]);
+	}
+
+	// p is empty and the other two positions of the mill carry stones
+	private boolean isXMillClosingPosition(int p, int stones, int mill) {
+		int others = mill & ~(1 << p);
+		return has(p, null) && (stones & others) == others;
+	}
+
+	// the mill closed at "to" is the one not containing the neighbor position "from"
+	private boolean closesMillByMove(int from, int to, int stones) {
+		int mill = (H_MILL_MASK[to] & 1 << from) != 0 ? V_MILL_MASK[to] : H_MILL_MASK[to];
+		return isXMillClosingPosition(to, stones, mill);
 	}
 
 	/**
@@ -702,18 +923,8 @@ public class Board {
 		checkPosition(from);
 		checkPosition(to);
 		checkStoneColor(color);
-		if (has(from, color) && has(to, null)) {
-			Optional<Direction> optDir = getDirection(from, to);
-			if (optDir.isPresent()) {
-				Direction dir = optDir.get();
-				if (dir == NORTH || dir == SOUTH) {
-					return has(ROW[to][0], color) && has(ROW[to][1], color);
-				} else {
-					return has(COL[to][0], color) && has(COL[to][1], color);
-				}
-			}
-		}
-		return false;
+		return has(from, color) && (NEIGHBOR_MASK[from] & 1 << to) != 0
+				&& closesMillByMove(from, to, stones(color));
 	}
 
 	public boolean isMillClosedByJump(int from, int to, StoneColor color) {
@@ -733,22 +944,16 @@ public class Board {
 	public boolean canCloseMillMovingFrom(int p, StoneColor color) {
 		checkPosition(p);
 		checkStoneColor(color);
-		return has(p, color) && (getVMillClosingNeighbors(p, color).findFirst().isPresent()
-				|| getHMillClosingNeighbors(p, color).findFirst().isPresent());
-	}
-
-	private IntStream getVMillClosingNeighbors(int p, StoneColor color) {
-		return emptyNeighbors(p).filter(n -> isVMillClosingPosition(n, color)).filter(n -> {
-			Direction dir = getDirection(n, p).get();
-			return dir == Direction.WEST || dir == Direction.EAST;
-		});
-	}
-
-	private IntStream getHMillClosingNeighbors(int p, StoneColor color) {
-		return emptyNeighbors(p).filter(n -> isHMillClosingPosition(n, color)).filter(n -> {
-			Direction dir = getDirection(n, p).get();
-			return dir == Direction.NORTH || dir == Direction.SOUTH;
-		});
+		if (!has(p, color)) {
+			return false;
+		}
+		int stones = stones(color);
+		for (int m = NEIGHBOR_MASK[p] & emptyMask(); m != 0; m &= m - 1) {
+			if (closesMillByMove(p, Integer.numberOfTrailingZeros(m), stones)) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	public boolean canCloseMillJumpingFrom(int from, StoneColor color) {
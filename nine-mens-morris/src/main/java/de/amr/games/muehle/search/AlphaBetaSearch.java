@@ -0,0 +1,285 @@
+package de.amr.games.muehle.search;
+
+import static de.amr.games.muehle.search.MillPosition.MAX_MOVES;
+import static de.amr.games.muehle.search.TranspositionTable.EXACT;
+import static de.amr.games.muehle.search.TranspositionTable.LOWER_BOUND;
+import static de.amr.games.muehle.search.TranspositionTable.NO_ENTRY;
+import static de.amr.games.muehle.search.TranspositionTable.UPPER_BOUND;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Negamax search with alpha-beta pruning and iterative deepening.
+ *
+ * <p>
+ * The search is run with a time budget: the depth is increased by one ply until the time is up or
+ * the maximum depth is reached, and the best move of the deepest finished iteration is returned.
+ * Each iteration searches the best move of the previous one first. If the time runs out during an
+ * iteration, its best move is still used if it has been searched completely, because it is at least
+ * as good as the move of the previous iteration. Inside the tree, moves closing a mill are searched
+ * first (see {@link MillPosition#generateMoves(int[])}).
+ *
+ * <p>
+ * The results of the inner nodes are stored in a {@link TranspositionTable} by the Zobrist hash of
+ * the position. In the moving phase, the same position is reached by many move orders. When it is
+ * reached again, a stored result of sufficient depth cuts off the search or narrows the window.
+ * Otherwise the stored best move is searched first.
+ *
+ * <p>
+ * Won and lost positions get scores beyond {@link #MAX_SCORE}, the faster the win the higher the
+ * score. Otherwise the leaves are scored by the {@link Evaluation}.
+ *
+ * <p>
+ * All data structures are allocated when the search is created. A search object must only be used
+ * by one thread at a time. A search running in another thread can be stopped early by a stop
+ * condition, see {@link #search(MillPosition, long, BooleanSupplier)}.
+ *
+ * @author Armin Reichert
+ */
+public class AlphaBetaSearch {
+
+	/** Maximum search depth in plies. */
+	public static final int MAX_DEPTH = 64;
+
+	/** Score of a won position at the root. */
+	public static final int WIN = 1_000_000;
+
+	/** Maximum absolute score of a position which is neither won nor lost. */
+	public static final int MAX_SCORE = WIN - MAX_DEPTH - 1;
+
+	/** Move returned if there is no legal move. */
+	public static final int NO_MOVE = -1;
+
+	/** Binary logarithm of the number of transposition table entries used if not specified. */
+	public static final int DEFAULT_TABLE_SIZE_LOG2 = 20;
+
+	private static final int INFINITY = WIN + 1;
+
+	/**
+	 * Result of a search.
+	 *
+	 * @param move
+	 *                best move found or {@link AlphaBetaSearch#NO_MOVE}
+	 * @param score
+	 *                score of the move from the view of the color in turn
+	 * @param depth
+	 *                depth of the deepest finished iteration
+	 * @param nodes
+	 *                number of searched positions
+	 */
+	public record Result(int move, int score, int depth, long nodes) {
+
+		@Override
+		public String toString() {
+			return String.format("%s, score %d, depth %d, %d nodes", MillPosition.toString(move), score, depth, nodes);
+		}
+	}
+
+	private final Evaluation evaluation;
+	private final int maxDepth;
+	private final TranspositionTable table;
+	private final int[][] moves; // move lists by ply
+	private MillPosition position;
+	private long deadline; // nanoseconds
+	private BooleanSupplier stopCondition;
+	private boolean timeUp;
+	private long nodes;
+
+	/**
+	 * @param evaluation
+	 *                     evaluation of the leaf positions
+	 * @param maxDepth
+	 *                     maximum search depth (at most {@link #MAX_DEPTH})
+	 * @param table
+	 *                     transposition table or <code>null</code> for searching without
+	 */
+	public AlphaBetaSearch(Evaluation evaluation, int maxDepth, TranspositionTable table) {
+		if (maxDepth < 1 || maxDepth > MAX_DEPTH) {
+			throw new IllegalArgumentException("Maximum depth must be between 1 and " + MAX_DEPTH);
+		}
+		this.evaluation = evaluation;
+		this.maxDepth = maxDepth;
+		this.table = table;
+		this.moves = new int[maxDepth + 1][MAX_MOVES];
+	}
+
+	/**
+	 * Creates a search with a transposition table of the default size.
+	 * 
+	 * @param evaluation
+	 *                     evaluation of the leaf positions
+	 * @param maxDepth
+	 *                     maximum search depth (at most {@link #MAX_DEPTH})
+	 */
+	public AlphaBetaSearch(Evaluation evaluation, int maxDepth) {
+		this(evaluation, maxDepth, new TranspositionTable(DEFAULT_TABLE_SIZE_LOG2));
+	}
+
+	/**
+	 * Creates a search using the default evaluation, maximum depth and transposition table size.
+	 */
+	public AlphaBetaSearch() {
+		this(Evaluation.DEFAULT, MAX_DEPTH);
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Searches the best move for the color in turn.
+	 *
+	 * @param position
+	 *                     position to search, is restored when the search is finished
+	 * @param timeMillis
+	 *                     time budget in milliseconds
+	 * @return search result
+	 */
+	public Result search(MillPosition position, long timeMillis) {
+		return search(position, timeMillis, () -> false);
+	}
+
+	/**
+	 * Searches the best move for the color in turn until the time is up or the stop condition holds.
+	 * The condition is checked as often as the time, so a search stopped from another thread ends
+	 * after a few microseconds, with the result of the deepest finished iteration.
+	 *
+	 * @param position
+	 *                        position to search, is restored when the search is finished
+	 * @param timeMillis
+	 *                        time budget in milliseconds
+	 * @param stopCondition
+	 *                        condition for stopping the search early
+	 * @return search result
+	 */
+	public Result search(MillPosition position, long timeMillis, BooleanSupplier stopCondition) {
+		this.position = position;
+		this.stopCondition = stopCondition;
+		deadline = System.nanoTime() + timeMillis * 1_000_000;
+		timeUp = false;
+		nodes = 0;
+		if (table != null) {
+			table.newSearch();
+		}
+		int[] rootMoves = moves[0];
+		int numMoves = position.isLost() ? 0 : position.generateMoves(rootMoves);
+		if (numMoves == 0) {
+			return new Result(NO_MOVE, -WIN, 0, 0);
+		}
+		if (numMoves == 1) {
+			return new Result(rootMoves[0], 0, 0, 0);
+		}
+		Result result = new Result(rootMoves[0], 0, 0, 0);
+		for (int depth = 1; depth <= maxDepth; ++depth) {
+			int bestIndex = -1, bestScore = -INFINITY;
+			for (int i = 0; i < numMoves; ++i) {
+				position.makeMove(rootMoves[i]);
+				int score = -negamax(depth - 1, 1, -INFINITY, -bestScore);
+				position.undoMove(rootMoves[i]);
+				if (timeUp) {
+					break;
+				}
+				if (score > bestScore) {
+					bestIndex = i;
+					bestScore = score;
+				}
+			}
+			if (bestIndex != -1) {
+				int bestMove = rootMoves[bestIndex];
+				System.arraycopy(rootMoves, 0, rootMoves, 1, bestIndex);
+				rootMoves[0] = bestMove;
+				result = new Result(bestMove, bestScore, timeUp ? result.depth() : depth, nodes);
+			}
+			if (timeUp || Math.abs(bestScore) > MAX_SCORE) {
+				break;
+			}
+		}
+		return new Result(result.move(), result.score(), result.depth(), nodes);
+	}
+
+	private int negamax(int depth, int ply, int alpha, int beta) {
+		if ((++nodes & 0x3FF) == 0 && (System.nanoTime() > deadline || stopCondition.getAsBoolean())) {
+			timeUp = true;
+		}
+		if (timeUp) {
+			return 0;
+		}
+		if (position.isLost()) {
+			return -WIN + ply;
+		}
+		if (depth == 0) {
+			return evaluation.evaluate(position);
+		}
+		long hash = 0;
+		int tableMove = NO_MOVE;
+		if (table != null) {
+			hash = position.hash();
+			long entry = table.probe(hash);
+			if (entry != NO_ENTRY) {
+				tableMove = TranspositionTable.move(entry);
+				if (TranspositionTable.depth(entry) >= depth) {
+					int score = scoreFromTable(TranspositionTable.score(entry), ply);
+					int bound = TranspositionTable.bound(entry);
+					if (bound == EXACT || bound == LOWER_BOUND && score >= beta || bound == UPPER_BOUND && score <= alpha) {
+						return score;
+					}
+				}
+			}
+		}
+		int[] plyMoves = moves[ply];
+		int numMoves = position.generateMoves(plyMoves);
+		if (numMoves == 0) {
+			return -WIN + ply;
+		}
+		if (tableMove != NO_MOVE) {
+			moveToFront(plyMoves, numMoves, tableMove);
+		}
+		int originalAlpha = alpha, bestScore = -INFINITY, bestMove = NO_MOVE;
+		for (int i = 0; i < numMoves; ++i) {
+			position.makeMove(plyMoves[i]);
+			int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+			position.undoMove(plyMoves[i]);
+			if (timeUp) {
+				return 0;
+			}
+			if (score > bestScore) {
+				bestScore = score;
+				bestMove = plyMoves[i];
+				if (score > alpha) {
+					alpha = score;
+					if (alpha >= beta) {
+						break;
+					}
+				}
+			}
+		}
+		if (table != null) {
+			int bound = bestScore <= originalAlpha ? UPPER_BOUND : bestScore >= beta ? LOWER_BOUND : EXACT;
+			table.store(hash, bestMove, scoreToTable(bestScore, ply), depth, bound);
+		}
+		return bestScore;
+	}
+
+	private static void moveToFront(int[] moveList, int numMoves, int move) {
+		for (int i = 0; i < numMoves; ++i) {
+			if (moveList[i] == move) {
+				System.arraycopy(moveList, 0, moveList, 1, i);
+				moveList[0] = move;
+				return;
+			}
+		}
+	}
+
+	// won and lost scores are stored relative to the node, not to the root
+	private static int scoreToTable(int score, int ply) {
+		return score > MAX_SCORE ? score + ply : score < -MAX_SCORE ? score - ply : score;
+	}
+
+	private static int scoreFromTable(int score, int ply) {
+		return score > MAX_SCORE ? score - ply : score < -MAX_SCORE ? score + ply : score;
+	}
+}
\ No newline at end of file
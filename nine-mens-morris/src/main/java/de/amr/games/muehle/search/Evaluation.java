@@ -0,0 +1,85 @@
+package de.amr.games.muehle.search;
+
+import static de.amr.games.muehle.model.board.Board.NUM_MILLS;
+import static de.amr.games.muehle.model.board.Board.millMask;
+import static de.amr.games.muehle.model.board.Board.neighborMask;
+
+import de.amr.games.muehle.model.board.Board;
+import de.amr.games.muehle.model.board.StoneColor;
+
+/**
+ * Static evaluation of a game position used at the leaves of the search.
+ *
+ * @author Armin Reichert
+ */
+@FunctionalInterface
+public interface Evaluation {
+
+	/** Evaluation with the weights of {@link #weighted(int, int, int, int)} used by default. */
+	Evaluation DEFAULT = weighted(100, 20, 15, 5);
+
+	/**
+	 * @param position
+	 *                   a position which is not lost for the color in turn
+	 * @return score of the position from the view of the color in turn, positive values are good for
+	 *         that color. The absolute value must be less than {@link AlphaBetaSearch#MAX_SCORE}.
+	 */
+	int evaluate(MillPosition position);
+
+	/**
+	 * Creates an evaluation summing up weighted differences of the features of both colors:
+	 * <ul>
+	 * <li>the stones on the board and in hand,
+	 * <li>the closed mills,
+	 * <li>the open mills (two stones of a mill where the third position is empty),
+	 * <li>the mobility (the number of empty neighbor positions of all stones) if no color can jump.
+	 * </ul>
+	 *
+	 * @param stoneWeight
+	 *                         weight of a stone
+	 * @param millWeight
+	 *                         weight of a closed mill
+	 * @param openMillWeight
+	 *                         weight of an open mill
+	 * @param mobilityWeight
+	 *                         weight of a possible move
+	 * @return the evaluation
+	 */
+	static Evaluation weighted(int stoneWeight, int millWeight, int openMillWeight, int mobilityWeight) {
+		return position -> {
+			Board board = position.board();
+			StoneColor color = position.turn(), other = color.other();
+			int own = board.stones(color), opponent = board.stones(other), empty = board.emptyMask();
+			int stones = Integer.bitCount(own) + position.stonesInHand(color) - Integer.bitCount(opponent)
+					- position.stonesInHand(other);
+			int mills = 0, openMills = 0;
+			for (int i = 0; i < NUM_MILLS; ++i) {
+				int mill = millMask(i);
+				if ((own & mill) == mill) {
+					++mills;
+				} else if ((opponent & mill) == mill) {
+					--mills;
+				} else if (Integer.bitCount(empty & mill) == 1) {
+					if (Integer.bitCount(own & mill) == 2) {
+						++openMills;
+					} else if (Integer.bitCount(opponent & mill) == 2) {
+						--openMills;
+					}
+				}
+			}
+			int mobility = 0;
+			if (!position.canJump(color) && !position.canJump(other)) {
+				mobility = mobility(own, empty) - mobility(opponent, empty);
+			}
+			return stoneWeight * stones + millWeight * mills + openMillWeight * openMills + mobilityWeight * mobility;
+		};
+	}
+
+	private static int mobility(int stones, int empty) {
+		int moves = 0;
+		for (int m = stones; m != 0; m &= m - 1) {
+			moves += Integer.bitCount(neighborMask(Integer.numberOfTrailingZeros(m)) & empty);
+		}
+		return moves;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,316 @@
+package de.amr.games.muehle.search;
+
+import static de.amr.games.muehle.model.board.Board.hMillMask;
+import static de.amr.games.muehle.model.board.Board.neighborMask;
+import static de.amr.games.muehle.model.board.Board.stonesInMills;
+import static de.amr.games.muehle.model.board.Board.vMillMask;
+import static de.amr.games.muehle.model.board.StoneColor.BLACK;
+import static de.amr.games.muehle.model.board.StoneColor.WHITE;
+
+import java.util.Random;
+
+import de.amr.games.muehle.model.MillGameModel;
+import de.amr.games.muehle.model.board.Board;
+import de.amr.games.muehle.model.board.StoneColor;
+
+/**
+ * A game position as seen by the search: the board content, the number of stones placed by each
+ * color, the color in turn and if that color has to remove a stone of the opponent.
+ *
+ * <p>
+ * Moves are encoded as integers holding the source position (or {@link #NONE} when placing a stone),
+ * the target position and the position of the removed opponent stone (or {@link #NONE}). A move
+ * closing a mill always includes the removal, so there is one move for each removable stone. In a
+ * position with a pending removal, the moves only consist of the removal.
+ *
+ * <p>
+ * The game rules are the ones of the game controller: each color places {@value #STONES_PER_COLOR}
+ * stones, white first. Then the stones are moved to neighbor positions, a color with only three
+ * stones can jump. A color in turn with less than three stones or which cannot move has lost.
+ *
+ * @author Armin Reichert
+ */
+public class MillPosition {
+
+	/** Number of stones each color places. */
+	public static final int STONES_PER_COLOR = MillGameModel.STONES_PER_COLOR;
+
+	/** Position value of a move for "no position". */
+	public static final int NONE = 31;
+
+	/** Maximum number of moves in a position (3 jumping stones, 21 targets, 9 removals). */
+	public static final int MAX_MOVES = 3 * 21 * STONES_PER_COLOR;
+
+	// Zobrist keys for black in turn and for a pending removal
+	private static final long BLACK_TURN_KEY, REMOVING_KEY;
+
+	static {
+		Random rnd = new Random(0x7475_726EL);
+		BLACK_TURN_KEY = rnd.nextLong();
+		REMOVING_KEY = rnd.nextLong();
+	}
+
+	/**
+	 * @param from
+	 *                  source position or {@link #NONE} when placing
+	 * @param to
+	 *                  target position or {@link #NONE} for a removal only
+	 * @param removal
+	 *                  position of the removed stone or {@link #NONE}
+	 * @return encoded move
+	 */
+	public static int encode(int from, int to, int removal) {
+		return from | to << 5 | removal << 10;
+	}
+
+	/**
+	 * @param move
+	 *               encoded move
+	 * @return source position or {@link #NONE} if a stone is placed
+	 */
+	public static int from(int move) {
+		return move & 31;
+	}
+
+	/**
+	 * @param move
+	 *               encoded move
+	 * @return target position or {@link #NONE} if the move is a removal only
+	 */
+	public static int to(int move) {
+		return move >> 5 & 31;
+	}
+
+	/**
+	 * @param move
+	 *               encoded move
+	 * @return position of the removed stone or {@link #NONE}
+	 */
+	public static int removal(int move) {
+		return move >> 10 & 31;
+	}
+
+	/**
+	 * @param move
+	 *               encoded move
+	 * @return readable form of the move
+	 */
+	public static String toString(int move) {
+		StringBuilder sb = new StringBuilder();
+		if (from(move) != NONE) {
+			sb.append(from(move)).append(" -> ");
+		}
+		if (to(move) != NONE) {
+			sb.append(to(move));
+		}
+		if (removal(move) != NONE) {
+			sb.append(to(move) != NONE ? ", " : "").append("x").append(removal(move));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Creates the position of the given game model.
+	 *
+	 * @param model
+	 *                   game model, its board is copied
+	 * @param turn
+	 *                   color in turn
+	 * @param removing
+	 *                   if the color in turn has to remove a stone
+	 * @return the position
+	 */
+	public static MillPosition of(MillGameModel model, StoneColor turn, boolean removing) {
+		return new MillPosition(model.board, model.whiteStonesPlaced, model.blackStonesPlaced, turn, removing);
+	}
+
+	private final Board board;
+	private final int[] stonesPlaced = new int[2]; // indexed by color ordinal
+	private StoneColor turn;
+	private boolean removing;
+
+	/**
+	 * @param board
+	 *                      board, is copied
+	 * @param whitePlaced
+	 *                      number of white stones placed
+	 * @param blackPlaced
+	 *                      number of black stones placed
+	 * @param turn
+	 *                      color in turn
+	 * @param removing
+	 *                      if the color in turn has to remove a stone
+	 */
+	public MillPosition(Board board, int whitePlaced, int blackPlaced, StoneColor turn, boolean removing) {
+		this.board = new Board(board);
+		this.stonesPlaced[WHITE.ordinal()] = whitePlaced;
+		this.stonesPlaced[BLACK.ordinal()] = blackPlaced;
+		this.turn = turn;
+		this.removing = removing;
+	}
+
+	public Board board() {
+		return board;
+	}
+
+	public StoneColor turn() {
+		return turn;
+	}
+
+	public boolean isRemoving() {
+		return removing;
+	}
+
+	/**
+	 * Returns the Zobrist hash of this position: the hash of the game model (see
+	 * {@link MillGameModel#hash()}) combined with the keys for the color in turn and a pending removal.
+	 * The board part is maintained incrementally by the board.
+	 * 
+	 * @return Zobrist hash of this position
+	 */
+	public long hash() {
+		long hash = board.hash() ^ MillGameModel.stonesPlacedKey(WHITE, stonesPlaced[WHITE.ordinal()])
+				^ MillGameModel.stonesPlacedKey(BLACK, stonesPlaced[BLACK.ordinal()]);
+		if (turn == BLACK) {
+			hash ^= BLACK_TURN_KEY;
+		}
+		if (removing) {
+			hash ^= REMOVING_KEY;
+		}
+		return hash;
+	}
+
+	/**
+	 * @param color
+	 *                a stone color
+	 * @return number of stones the given color still has to place
+	 */
+	public int stonesInHand(StoneColor color) {
+		return STONES_PER_COLOR - stonesPlaced[color.ordinal()];
+	}
+
+	/**
+	 * @param color
+	 *                a stone color
+	 * @return if the given color has placed all stones and only three stones left
+	 */
+	public boolean canJump(StoneColor color) {
+		return stonesInHand(color) == 0 && Integer.bitCount(board.stones(color)) == 3;
+	}
+
+	/**
+	 * @return if the color in turn has lost the game
+	 */
+	public boolean isLost() {
+		if (removing || stonesInHand(turn) > 0) {
+			return false;
+		}
+		int count = Integer.bitCount(board.stones(turn));
+		return count < 3 || count > 3 && board.movableStones(turn) == 0;
+	}
+
+	/**
+	 * Generates the moves of the color in turn. Moves closing a mill come first.
+	 *
+	 * @param moves
+	 *                array receiving the moves, must have at least {@link #MAX_MOVES} elements
+	 * @return number of moves
+	 */
+	public int generateMoves(int[] moves) {
+		int stones = board.stones(turn), empty = board.emptyMask();
+		if (removing) {
+			return addRemovals(moves, 0, NONE, NONE);
+		}
+		// moves not closing a mill are collected from the end of the array
+		int first = 0, last = moves.length;
+		if (stonesInHand(turn) > 0) {
+			for (int m = empty; m != 0; m &= m - 1) {
+				int to = Integer.numberOfTrailingZeros(m);
+				if (closesMill(stones | 1 << to, to)) {
+					first = addRemovals(moves, first, NONE, to);
+				} else {
+					moves[--last] = encode(NONE, to, NONE);
+				}
+			}
+		} else {
+			boolean jumping = Integer.bitCount(stones) == 3;
+			for (int s = stones; s != 0; s &= s - 1) {
+				int from = Integer.numberOfTrailingZeros(s);
+				int targets = jumping ? empty : neighborMask(from) & empty;
+				for (int m = targets; m != 0; m &= m - 1) {
+					int to = Integer.numberOfTrailingZeros(m);
+					if (closesMill(stones & ~(1 << from) | 1 << to, to)) {
+						first = addRemovals(moves, first, from, to);
+					} else {
+						moves[--last] = encode(from, to, NONE);
+					}
+				}
+			}
+		}
+		System.arraycopy(moves, last, moves, first, moves.length - last);
+		return first + moves.length - last;
+	}
+
+	private static boolean closesMill(int stones, int p) {
+		return (stones & hMillMask(p)) == hMillMask(p) || (stones & vMillMask(p)) == vMillMask(p);
+	}
+
+	// stones in mills may only be removed if all stones are in mills
+	private int addRemovals(int[] moves, int n, int from, int to) {
+		int opponentStones = board.stones(turn.other());
+		int removable = opponentStones & ~stonesInMills(opponentStones);
+		if (removable == 0) {
+			removable = opponentStones;
+		}
+		if (removable == 0) {
+			moves[n++] = encode(from, to, NONE);
+		}
+		for (int m = removable; m != 0; m &= m - 1) {
+			moves[n++] = encode(from, to, Integer.numberOfTrailingZeros(m));
+		}
+		return n;
+	}
+
+	/**
+	 * Makes the given move of the color in turn. Afterwards the other color is in turn.
+	 *
+	 * @param move
+	 *               encoded move
+	 */
+	public void makeMove(int move) {
+		int from = from(move), to = to(move), removal = removal(move);
+		if (from != NONE) {
+			board.moveStone(from, to);
+		} else if (to != NONE) {
+			board.putStoneAt(to, turn);
+			stonesPlaced[turn.ordinal()] += 1;
+		}
+		if (removal != NONE) {
+			board.removeStoneAt(removal);
+		}
+		removing = false;
+		turn = turn.other();
+	}
+
+	/**
+	 * Takes back the given move which must be the last move made.
+	 *
+	 * @param move
+	 *               encoded move
+	 */
+	public void undoMove(int move) {
+		int from = from(move), to = to(move), removal = removal(move);
+		turn = turn.other();
+		if (removal != NONE) {
+			board.putStoneAt(removal, turn.other());
+		}
+		if (from != NONE) {
+			board.moveStone(to, from);
+		} else if (to != NONE) {
+			board.removeStoneAt(to);
+			stonesPlaced[turn.ordinal()] -= 1;
+		} else {
+			removing = true;
+		}
+	}
+}
\ No newline at end of file
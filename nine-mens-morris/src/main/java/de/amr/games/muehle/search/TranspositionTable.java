@@ -0,0 +1,178 @@
+package de.amr.games.muehle.search;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size transposition table storing search results by the Zobrist hash of the position (see
+ * {@link MillPosition#hash()}).
+ *
+ * <p>
+ * Each entry consists of two longs, the packed data (move, score, depth, bound type and search age)
+ * and the hash XOR the data. An entry is valid only if its stored hash XOR its data gives the probed
+ * hash again. If several searching threads share the table without locks, an entry mixed from two
+ * concurrent stores (or a torn write, since writes of longs are not guaranteed to be atomic) fails
+ * this check with high probability, but not with certainty. A search sharing the table must
+ * therefore tolerate an occasional wrong entry, e.g. by checking that the stored move is legal.
+ *
+ * <p>
+ * Replacement is depth-preferred: an entry stored by the current search is only replaced by an entry
+ * of at least the same depth. Entries stored by earlier searches (see {@link #newSearch()}) are
+ * always replaced.
+ *
+ * @author Armin Reichert
+ */
+public class TranspositionTable {
+
+	/** Returned by {@link #probe(long)} if the table contains no entry for the hash. */
+	public static final long NO_ENTRY = 0;
+
+	/** Bound type of an exact score. */
+	public static final int EXACT = 0;
+
+	/** Bound type of a score which is a lower bound (the search failed high). */
+	public static final int LOWER_BOUND = 1;
+
+	/** Bound type of a score which is an upper bound (the search failed low). */
+	public static final int UPPER_BOUND = 2;
+
+	private static final int MOVE_BITS = 15, SCORE_BITS = 21, DEPTH_BITS = 7, BOUND_BITS = 2, AGE_BITS = 8;
+	private static final int SCORE_SHIFT = MOVE_BITS;
+	private static final int DEPTH_SHIFT = SCORE_SHIFT + SCORE_BITS;
+	private static final int BOUND_SHIFT = DEPTH_SHIFT + DEPTH_BITS;
+	private static final int AGE_SHIFT = BOUND_SHIFT + BOUND_BITS;
+	private static final int SCORE_OFFSET = 1 << SCORE_BITS - 1; // stored score is always positive
+	private static final int MOVE_NONE = (1 << MOVE_BITS) - 1;
+
+	private final long[] hashes; // hash XOR data
+	private final long[] data;
+	private final int indexMask;
+	private int age;
+
+	/**
+	 * @param log2Size
+	 *                   binary logarithm of the number of entries (between 1 and 28)
+	 */
+	public TranspositionTable(int log2Size) {
+		if (log2Size < 1 || log2Size > 28) {
+			throw new IllegalArgumentException("Table size must be between 2^1 and 2^28 entries");
+		}
+		hashes = new long[1 << log2Size];
+		data = new long[1 << log2Size];
+		indexMask = (1 << log2Size) - 1;
+	}
+
+	/**
+	 * @return number of entries
+	 */
+	public int size() {
+		return data.length;
+	}
+
+	/**
+	 * @return memory used by the entries in bytes
+	 */
+	public long memoryUsage() {
+		return 2L * Long.BYTES * data.length;
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear() {
+		Arrays.fill(hashes, NO_ENTRY);
+		Arrays.fill(data, NO_ENTRY);
+	}
+
+	/**
+	 * Starts a new search. Entries of earlier searches are replaced by new ones independent of their
+	 * depth.
+	 */
+	public void newSearch() {
+		age = (age + 1) & (1 << AGE_BITS) - 1;
+	}
+
+	private int index(long hash) {
+		return (int) (hash ^ hash >>> 32) & indexMask;
+	}
+
+	/**
+	 * @param hash
+	 *               Zobrist hash of a position
+	 * @return packed entry for the position or {@link #NO_ENTRY}. The parts are accessed with
+	 *         {@link #move(long)}, {@link #score(long)}, {@link #depth(long)} and {@link #bound(long)}.
+	 */
+	public long probe(long hash) {
+		int i = index(hash);
+		long entry = data[i];
+		return entry != NO_ENTRY && (hashes[i] ^ entry) == hash ? entry : NO_ENTRY;
+	}
+
+	/**
+	 * Stores a search result unless the table contains a deeper result of the current search in the
+	 * same slot.
+	 *
+	 * @param hash
+	 *                Zobrist hash of the position
+	 * @param move
+	 *                best move (encoded as in {@link MillPosition}) or {@link AlphaBetaSearch#NO_MOVE}
+	 * @param score
+	 *                score of the position (absolute value at most {@link AlphaBetaSearch#WIN})
+	 * @param depth
+	 *                search depth of the result
+	 * @param bound
+	 *                bound type ({@link #EXACT}, {@link #LOWER_BOUND} or {@link #UPPER_BOUND})
+	 */
+	public void store(long hash, int move, int score, int depth, int bound) {
+		int i = index(hash);
+		long entry = data[i];
+		if (entry != NO_ENTRY && age(entry) == age && depth(entry) > depth) {
+			return;
+		}
+		long newEntry = (move == AlphaBetaSearch.NO_MOVE ? MOVE_NONE : move)
+				| (long) (score + SCORE_OFFSET) << SCORE_SHIFT | (long) depth << DEPTH_SHIFT | (long) bound << BOUND_SHIFT
+				| (long) age << AGE_SHIFT;
+		hashes[i] = hash ^ newEntry;
+		data[i] = newEntry;
+	}
+
+	/**
+	 * @param entry
+	 *                packed entry
+	 * @return best move or {@link AlphaBetaSearch#NO_MOVE}
+	 */
+	public static int move(long entry) {
+		int move = (int) entry & MOVE_NONE;
+		return move == MOVE_NONE ? AlphaBetaSearch.NO_MOVE : move;
+	}
+
+	/**
+	 * @param entry
+	 *                packed entry
+	 * @return score
+	 */
+	public static int score(long entry) {
+		return (int) (entry >>> SCORE_SHIFT & (1 << SCORE_BITS) - 1) - SCORE_OFFSET;
+	}
+
+	/**
+	 * @param entry
+	 *                packed entry
+	 * @return search depth
+	 */
+	public static int depth(long entry) {
+		return (int) (entry >>> DEPTH_SHIFT & (1 << DEPTH_BITS) - 1);
+	}
+
+	/**
+	 * @param entry
+	 *                packed entry
+	 * @return bound type
+	 */
+	public static int bound(long entry) {
+		return (int) (entry >>> BOUND_SHIFT & (1 << BOUND_BITS) - 1);
+	}
+
+	private static int age(long entry) {
+		return (int) (entry >>> AGE_SHIFT & (1 << AGE_BITS) - 1);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,232 @@
+package de.amr.games.muehle.unittest;
+
+import static de.amr.games.muehle.model.board.StoneColor.BLACK;
+import static de.amr.games.muehle.model.board.StoneColor.WHITE;
+import static de.amr.games.muehle.search.MillPosition.MAX_MOVES;
+import static de.amr.games.muehle.search.MillPosition.NONE;
+import static de.amr.games.muehle.search.MillPosition.from;
+import static de.amr.games.muehle.search.MillPosition.removal;
+import static de.amr.games.muehle.search.MillPosition.to;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.amr.games.muehle.model.MillGameModel;
+import de.amr.games.muehle.model.board.Board;
+import de.amr.games.muehle.model.board.StoneColor;
+import de.amr.games.muehle.search.AlphaBetaSearch;
+import de.amr.games.muehle.search.AlphaBetaSearch.Result;
+import de.amr.games.muehle.search.Evaluation;
+import de.amr.games.muehle.search.MillPosition;
+import de.amr.games.muehle.search.TranspositionTable;
+
+public class AlphaBetaSearchTest {
+
+	private Board board;
+	private int[] moves;
+
+	private void put(StoneColor color, int... positions) {
+		for (int p : positions) {
+			board.putStoneAt(p, color);
+		}
+	}
+
+	@Before
+	public void setUp() {
+		board = new Board();
+		moves = new int[MAX_MOVES];
+	}
+
+	@Test
+	public void testPlacingMoves() {
+		MillPosition position = new MillPosition(board, 0, 0, WHITE, false);
+		assertEquals(24, position.generateMoves(moves));
+		put(WHITE, 0, 1);
+		put(BLACK, 3, 4, 5, 10);
+		position = new MillPosition(board, 2, 4, WHITE, false);
+		int n = position.generateMoves(moves);
+		// placing at 2 closes a mill, the black stones in the mill 3-4-5 cannot be removed
+		assertEquals(17 + 1, n);
+		assertEquals(2, to(moves[0]));
+		assertEquals(10, removal(moves[0]));
+		assertEquals(NONE, from(moves[0]));
+		for (int i = 1; i < n; ++i) {
+			assertEquals(NONE, removal(moves[i]));
+		}
+	}
+
+	@Test
+	public void testMovingAndJumpingMoves() {
+		put(WHITE, 0, 1, 14, 21);
+		put(BLACK, 3, 5, 16);
+		MillPosition position = new MillPosition(board, 9, 9, WHITE, false);
+		int n = position.generateMoves(moves);
+		// 14 -> 2 closes a mill and can remove any of the 3 black stones
+		for (int i = 0; i < 3; ++i) {
+			assertEquals(14, from(moves[i]));
+			assertEquals(2, to(moves[i]));
+		}
+		// 0 -> 9, 1 -> 2, 1 -> 4, 14 -> 13, 14 -> 23, 21 -> 9, 21 -> 22 do not close a mill
+		assertEquals(3 + 7, n);
+		position = new MillPosition(board, 9, 9, BLACK, false);
+		// each black stone can jump to each of the 17 empty positions, 16 -> 4 closes a mill and can
+		// remove any of the 4 white stones
+		assertEquals(3 * 17 + 3, position.generateMoves(moves));
+	}
+
+	@Test
+	public void testRemovalMoves() {
+		put(WHITE, 0, 1, 2);
+		put(BLACK, 3, 4, 5, 10);
+		MillPosition position = new MillPosition(board, 3, 4, WHITE, true);
+		assertEquals(1, position.generateMoves(moves));
+		assertEquals(10, removal(moves[0]));
+		board.removeStoneAt(10);
+		position = new MillPosition(board, 3, 4, WHITE, true);
+		assertEquals(3, position.generateMoves(moves));
+	}
+
+	@Test
+	public void testMakeAndUndoMoves() {
+		Random rnd = new Random(42);
+		for (int game = 0; game < 100; ++game) {
+			MillPosition position = new MillPosition(new Board(), 0, 0, WHITE, false);
+			int[] played = new int[200];
+			int[] whiteStones = new int[200], blackStones = new int[200], inHand = new int[200];
+			int numPlayed = 0;
+			while (numPlayed < played.length && !position.isLost()) {
+				int n = position.generateMoves(moves);
+				whiteStones[numPlayed] = position.board().stones(WHITE);
+				blackStones[numPlayed] = position.board().stones(BLACK);
+				inHand[numPlayed] = position.stonesInHand(WHITE) << 4 | position.stonesInHand(BLACK);
+				played[numPlayed] = moves[rnd.nextInt(n)];
+				position.makeMove(played[numPlayed++]);
+			}
+			while (numPlayed > 0) {
+				position.undoMove(played[--numPlayed]);
+				assertEquals(whiteStones[numPlayed], position.board().stones(WHITE));
+				assertEquals(blackStones[numPlayed], position.board().stones(BLACK));
+				assertEquals(inHand[numPlayed], position.stonesInHand(WHITE) << 4 | position.stonesInHand(BLACK));
+			}
+			assertEquals(WHITE, position.turn());
+		}
+	}
+
+	@Test
+	public void testSearchClosesMill() {
+		put(WHITE, 0, 1, 14, 21);
+		put(BLACK, 3, 5, 6, 8, 16);
+		MillPosition position = new MillPosition(board, 9, 9, WHITE, false);
+		Result result = new AlphaBetaSearch(Evaluation.DEFAULT, 3).search(position, 1000);
+		assertEquals(14, from(result.move()));
+		assertEquals(2, to(result.move()));
+		assertEquals(3, result.depth());
+		assertEquals(board.stones(WHITE), position.board().stones(WHITE));
+	}
+
+	@Test
+	public void testSearchFindsWin() {
+		put(WHITE, 0, 1, 14, 21);
+		put(BLACK, 3, 5, 16);
+		MillPosition position = new MillPosition(board, 9, 9, WHITE, false);
+		Result result = new AlphaBetaSearch().search(position, 200);
+		assertEquals(2, to(result.move()));
+		assertEquals(AlphaBetaSearch.WIN - 1, result.score());
+	}
+
+	@Test
+	public void testSearchRemovesThreateningStone() {
+		put(WHITE, 0, 1, 2, 9, 22);
+		put(BLACK, 3, 5, 7, 16, 20);
+		MillPosition position = new MillPosition(board, 9, 9, WHITE, true);
+		Result result = new AlphaBetaSearch().search(position, 200);
+		int removed = removal(result.move());
+		assertTrue(removed == 3 || removed == 5 || removed == 7);
+	}
+
+	@Test
+	public void testPositionHash() {
+		Random rnd = new Random(7);
+		MillPosition position = new MillPosition(board, 0, 0, WHITE, false);
+		for (int i = 0; i < 60 && !position.isLost(); ++i) {
+			int n = position.generateMoves(moves);
+			position.makeMove(moves[rnd.nextInt(n)]);
+			int placedWhite = 9 - position.stonesInHand(WHITE), placedBlack = 9 - position.stonesInHand(BLACK);
+			MillPosition copy = new MillPosition(position.board(), placedWhite, placedBlack, position.turn(), false);
+			assertEquals(copy.hash(), position.hash());
+			MillGameModel model = new MillGameModel();
+			position.board().positions(WHITE).forEach(p -> model.board.putStoneAt(p, WHITE));
+			position.board().positions(BLACK).forEach(p -> model.board.putStoneAt(p, BLACK));
+			model.whiteStonesPlaced = placedWhite;
+			model.blackStonesPlaced = placedBlack;
+			assertEquals(model.hash(), MillPosition.of(model, WHITE, false).hash());
+		}
+		// same board, different phase, turn or pending removal
+		long hash = new MillPosition(board, 9, 9, WHITE, false).hash();
+		assertTrue(hash != new MillPosition(board, 8, 8, WHITE, false).hash());
+		assertTrue(hash != new MillPosition(board, 9, 9, BLACK, false).hash());
+		assertTrue(hash != new MillPosition(board, 9, 9, WHITE, true).hash());
+	}
+
+	@Test
+	public void testTranspositionTable() {
+		TranspositionTable table = new TranspositionTable(4);
+		long hash = 0x1234_5678_9ABCL;
+		assertEquals(TranspositionTable.NO_ENTRY, table.probe(hash));
+		int move = MillPosition.encode(14, 2, 5);
+		table.store(hash, move, -AlphaBetaSearch.WIN + 3, 5, TranspositionTable.LOWER_BOUND);
+		long entry = table.probe(hash);
+		assertEquals(move, TranspositionTable.move(entry));
+		assertEquals(-AlphaBetaSearch.WIN + 3, TranspositionTable.score(entry));
+		assertEquals(5, TranspositionTable.depth(entry));
+		assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.bound(entry));
+		// same slot, other hash
+		long other = hash + table.size();
+		assertEquals(TranspositionTable.NO_ENTRY, table.probe(other));
+		// depth-preferred: a shallower entry of the same search does not replace a deeper one
+		table.store(other, AlphaBetaSearch.NO_MOVE, 42, 4, TranspositionTable.EXACT);
+		assertEquals(TranspositionTable.NO_ENTRY, table.probe(other));
+		table.store(other, AlphaBetaSearch.NO_MOVE, 42, 5, TranspositionTable.EXACT);
+		assertEquals(AlphaBetaSearch.NO_MOVE, TranspositionTable.move(table.probe(other)));
+		assertEquals(42, TranspositionTable.score(table.probe(other)));
+		assertEquals(TranspositionTable.NO_ENTRY, table.probe(hash));
+		// entries of an earlier search are always replaced
+		table.newSearch();
+		table.store(hash, move, 0, 1, TranspositionTable.UPPER_BOUND);
+		assertEquals(move, TranspositionTable.move(table.probe(hash)));
+		table.clear();
+		assertEquals(TranspositionTable.NO_ENTRY, table.probe(hash));
+	}
+
+	@Test
+	public void testSearchWithoutTranspositionTable() {
+		put(WHITE, 0, 1, 14, 21);
+		put(BLACK, 3, 5, 16);
+		MillPosition position = new MillPosition(board, 9, 9, WHITE, false);
+		Result result = new AlphaBetaSearch(Evaluation.DEFAULT, 4, null).search(position, 1000);
+		assertEquals(AlphaBetaSearch.WIN - 1, result.score());
+	}
+
+	@Test
+	public void testNoMoveWhenLost() {
+		put(WHITE, 0, 1);
+		put(BLACK, 3, 5, 16);
+		MillPosition position = new MillPosition(board, 9, 9, WHITE, false);
+		assertTrue(position.isLost());
+		assertEquals(AlphaBetaSearch.NO_MOVE, new AlphaBetaSearch().search(position, 100).move());
+	}
+
+	@Test
+	public void testStopCondition() {
+		MillPosition position = new MillPosition(board, 0, 0, WHITE, false);
+		long start = System.nanoTime();
+		Result result = new AlphaBetaSearch().search(position, 60_000, () -> true);
+		assertTrue(System.nanoTime() - start < 1_000_000_000L);
+		assertTrue(result.move() != AlphaBetaSearch.NO_MOVE);
+		assertEquals(NONE, from(result.move()));
+	}
+}
\ No newline at end of file
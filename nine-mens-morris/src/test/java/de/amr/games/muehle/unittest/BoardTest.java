@@ -1,9 +1,14 @@
 package de.amr.games.muehle.unittest;
 
+import static de.amr.games.muehle.model.board.Board.ALL_POSITIONS;
+import static de.amr.games.muehle.model.board.Board.NUM_MILLS;
 import static de.amr.games.muehle.model.board.Board.NUM_POS;
+import static de.amr.games.muehle.model.board.Board.bit;
 import static de.amr.games.muehle.model.board.Board.inCol;
 import static de.amr.games.muehle.model.board.Board.inRow;
+import static de.amr.games.muehle.model.board.Board.millMask;
 import static de.amr.games.muehle.model.board.Board.neighbor;
+import static de.amr.games.muehle.model.board.Board.neighborMask;
 import static de.amr.games.muehle.model.board.Board.neighbors;
 import static de.amr.games.muehle.model.board.Board.nextToNeighbors;
 import static de.amr.games.muehle.model.board.Board.positions;
@@ -270,4 +275,85 @@ public class BoardTest {
 		assertTrue(board.isMillClosedByMove(19, 22, WHITE));
 	}
 
+	// Bitboard tests
+
+	@Test
+	public void testMillMasks() {
+		int covered = 0;
+		for (int i = 0; i < NUM_MILLS; ++i) {
+			int mill = millMask(i);
+			assertTrue(Integer.bitCount(mill) == 3);
+			int[] p = Board.positions(mill).toArray();
+			assertTrue(inRow(p[0], p[1], p[2]) || inCol(p[0], p[1], p[2]));
+			covered |= mill;
+		}
+		assertTrue(covered == ALL_POSITIONS);
+		positions().forEach(p -> {
+			assertTrue((Board.hMillMask(p) & Board.vMillMask(p)) == bit(p));
+			assertTrue(sameElements(Board.positions(neighborMask(p)), neighbors(p)));
+		});
+	}
+
+	@Test
+	public void testStoneMasks() {
+		board.putStoneAt(0, WHITE);
+		board.putStoneAt(1, WHITE);
+		board.putStoneAt(9, BLACK);
+		assertTrue(board.stones(WHITE) == (bit(0) | bit(1)));
+		assertTrue(board.stones(BLACK) == bit(9));
+		assertTrue(board.emptyMask() == (ALL_POSITIONS & ~(bit(0) | bit(1) | bit(9))));
+		assertTrue(board.stoneCount() == 3);
+		assertTrue(board.stoneCount(WHITE) == 2);
+		board.moveStone(1, 4);
+		assertTrue(board.stones(WHITE) == (bit(0) | bit(4)));
+		assertTrue(board.movableStones(WHITE) == (bit(0) | bit(4)));
+		board.putStoneAt(1, BLACK);
+		assertTrue(board.movableStones(WHITE) == bit(4));
+		board.removeStoneAt(9);
+		assertTrue(board.movableStones(WHITE) == (bit(0) | bit(4)));
+		assertTrue(board.stoneCount() == 3);
+	}
+
+	@Test
+	public void testStonesInMills() {
+		IntStream.of(0, 1, 2, 14, 23).forEach(p -> board.putStoneAt(p, WHITE));
+		assertTrue(Board.stonesInMills(board.stones(WHITE)) == (bit(0) | bit(1) | bit(2) | bit(14) | bit(23)));
+		assertTrue(board.allStonesInMills(WHITE));
+		board.putStoneAt(4, WHITE);
+		assertTrue(!board.allStonesInMills(WHITE));
+	}
+
+	@Test
+	public void testZobristHash() {
+		assertTrue(board.hash() == 0);
+		board.putStoneAt(0, WHITE);
+		board.putStoneAt(5, BLACK);
+		board.putStoneAt(9, WHITE);
+		long hash = board.hash();
+		assertTrue(hash != 0);
+		// same content created in another order
+		Board other = new Board();
+		other.putStoneAt(9, WHITE);
+		other.putStoneAt(1, WHITE);
+		other.putStoneAt(5, BLACK);
+		other.moveStone(1, 0);
+		assertTrue(other.hash() == hash);
+		assertTrue(new Board(board).hash() == hash);
+		// colors matter
+		other.removeStoneAt(5);
+		other.putStoneAt(5, WHITE);
+		assertTrue(other.hash() != hash);
+		// moving back and forth restores the hash
+		board.moveStone(0, 1);
+		assertTrue(board.hash() != hash);
+		board.moveStone(1, 0);
+		assertTrue(board.hash() == hash);
+		board.removeStoneAt(0);
+		board.removeStoneAt(5);
+		board.removeStoneAt(9);
+		assertTrue(board.hash() == 0);
+		other.clear();
+		assertTrue(other.hash() == 0);
+	}
+
 }
\ No newline at end of file